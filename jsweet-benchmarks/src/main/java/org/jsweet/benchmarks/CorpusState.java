@@ -0,0 +1,112 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.jsweet.transpiler.GlobalBeforeTranslationScanner;
+import org.jsweet.transpiler.JSweetProblem;
+import org.jsweet.transpiler.JSweetTranspiler;
+import org.jsweet.transpiler.SourceFile;
+import org.jsweet.transpiler.SourcePosition;
+import org.jsweet.transpiler.TranspilationHandler;
+import org.jsweet.transpiler.util.JavaCompilationEnvironment;
+import org.jsweet.transpiler.util.Util;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.sun.tools.javac.main.Option;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+
+/**
+ * A benchmark state holding a corpus of Java sources (one of the test source
+ * packages of the transpiler), parsed and attributed once per trial.
+ * 
+ * @author Renaud Pawlak
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+
+	/**
+	 * The system property that holds the directory of the corpora (the
+	 * transpiler's test sources directory).
+	 */
+	public static final String CORPUS_DIR_PROPERTY = "jsweet.benchmarks.corpusDir";
+
+	/**
+	 * A transpilation handler that ignores the reported problems (some of the
+	 * corpus sources are meant to raise JSweet errors).
+	 */
+	public static final TranspilationHandler SILENT_HANDLER = new TranspilationHandler() {
+		@Override
+		public void report(JSweetProblem problem, SourcePosition sourcePosition, String message) {
+		}
+
+		@Override
+		public void onCompleted(JSweetTranspiler transpiler, boolean fullPass, SourceFile[] files) {
+		}
+	};
+
+	/**
+	 * The corpus name (a sub-package of the <code>source</code> test package).
+	 */
+	@Param({ "blocksgame", "overload", "structural" })
+	public String corpus;
+
+	/**
+	 * The transpiler holding the options.
+	 */
+	public JSweetTranspiler transpiler;
+
+	/**
+	 * The compilation environment where the corpus was attributed.
+	 */
+	public JavaCompilationEnvironment environment;
+
+	/**
+	 * The attributed compilation units of the corpus.
+	 */
+	public List<JCCompilationUnit> compilationUnits;
+
+	/**
+	 * Parses and attributes the corpus.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		File corpusRoot = new File(System.getProperty(CORPUS_DIR_PROPERTY, "../src/test/java"));
+		File corpusDir = new File(corpusRoot, "source" + File.separator + corpus);
+		LinkedList<File> files = new LinkedList<>();
+		Util.addFiles(".java", corpusDir, files);
+		if (files.isEmpty()) {
+			throw new IllegalStateException("no Java sources found in " + corpusDir + " (use -D" + CORPUS_DIR_PROPERTY + " to set the corpora directory)");
+		}
+		transpiler = new JSweetTranspiler();
+		environment = JavaCompilationEnvironment.create(transpiler, System.getProperty("java.class.path"));
+		// the sources referenced by the corpus are looked up in the other test
+		// packages
+		environment.options.put(Option.SOURCEPATH, corpusRoot.getPath());
+		compilationUnits = environment.parseAndAttributeJavaFiles(files);
+		new GlobalBeforeTranslationScanner(SILENT_HANDLER, environment.context).process(compilationUnits);
+	}
+
+}
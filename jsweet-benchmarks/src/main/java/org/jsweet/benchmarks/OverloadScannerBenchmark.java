@@ -0,0 +1,72 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jsweet.transpiler.JSweetContext;
+import org.jsweet.transpiler.OverloadScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the overload scanning ({@link OverloadScanner#process(java.util.List)})
+ * of the attributed compilation units of a corpus.
+ * 
+ * @author Renaud Pawlak
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class OverloadScannerBenchmark {
+
+	/**
+	 * A corpus which context is cleared before each scan, so that the
+	 * overloads are not accumulated from one scan to another.
+	 */
+	@State(Scope.Benchmark)
+	public static class OverloadScannerState extends CorpusState {
+		/**
+		 * Clears the overloads found by the previous scan.
+		 */
+		@Setup(Level.Invocation)
+		public void resetContext() {
+			environment.context.reset();
+		}
+	}
+
+	/**
+	 * Scans the overloads of the corpus.
+	 */
+	@Benchmark
+	public JSweetContext scan(OverloadScannerState state) {
+		new OverloadScanner(CorpusState.SILENT_HANDLER, state.environment.context).process(state.compilationUnits);
+		return state.environment.context;
+	}
+
+}
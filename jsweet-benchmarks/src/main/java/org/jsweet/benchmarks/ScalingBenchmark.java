@@ -0,0 +1,176 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.benchmarks;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.jsweet.JSweetConfig;
+import org.jsweet.transpiler.JSweetTranspiler;
+import org.jsweet.transpiler.SourceFile;
+import org.jsweet.transpiler.TranspilationMetrics;
+import org.jsweet.transpiler.util.ConsoleTranspilationHandler;
+import org.jsweet.transpiler.util.ErrorCountTranspilationHandler;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Switch;
+
+/**
+ * An end-to-end benchmark that runs the whole transpilation of synthetic
+ * projects of increasing sizes (see {@link SyntheticProjectGenerator}), with
+ * and without tsc, and reports the time, the peak heap usage and the garbage
+ * collections of each transpilation as CSV.
+ * 
+ * <p>
+ * Usage (run <code>--help</code> for all the options):
+ * 
+ * <pre>
+ * java -Xmx4g -cp target/benchmarks.jar:$JAVA_HOME/lib/tools.jar org.jsweet.benchmarks.ScalingBenchmark --sizes 1000,10000 --output scaling.csv
+ * </pre>
+ * 
+ * @author Renaud Pawlak
+ */
+public class ScalingBenchmark {
+
+	private static final String CSV_HEADER = "classes,packages,tsc,run,timeMs,peakHeapMb,gcCount,gcTimeMs,parseMs,attributeMs,translationMs,writeMs,tscMs,errors";
+
+	/**
+	 * Runs the benchmark.
+	 */
+	public static void main(String[] args) throws Exception {
+		JSAP jsap = new JSAP();
+		jsap.registerParameter(new Switch("help", JSAP.NO_SHORTFLAG, "help", "Print this help."));
+		jsap.registerParameter(new FlaggedOption("sizes", JSAP.STRING_PARSER, "1000,10000,50000", JSAP.NOT_REQUIRED, JSAP.NO_SHORTFLAG, "sizes",
+				"The comma-separated numbers of classes of the generated projects."));
+		jsap.registerParameter(new FlaggedOption("packageSize", JSAP.INTEGER_PARSER, "50", JSAP.NOT_REQUIRED, JSAP.NO_SHORTFLAG, "packageSize",
+				"The number of classes per package."));
+		jsap.registerParameter(new FlaggedOption("inheritanceDepth", JSAP.INTEGER_PARSER, "3", JSAP.NOT_REQUIRED, JSAP.NO_SHORTFLAG,
+				"inheritanceDepth", "The maximum depth of the inheritance chains."));
+		jsap.registerParameter(new FlaggedOption("methodCount", JSAP.INTEGER_PARSER, "3", JSAP.NOT_REQUIRED, JSAP.NO_SHORTFLAG, "methodCount",
+				"The number of (overloaded) method names per class."));
+		jsap.registerParameter(new FlaggedOption("overloadDensity", JSAP.INTEGER_PARSER, "3", JSAP.NOT_REQUIRED, JSAP.NO_SHORTFLAG,
+				"overloadDensity", "The number of overloads per method name (at most " + SyntheticProjectGenerator.MAX_OVERLOAD_DENSITY + ")."));
+		jsap.registerParameter(new Switch("noStaticInitializers", JSAP.NO_SHORTFLAG, "noStaticInitializers", "Do not generate static initializers."));
+		jsap.registerParameter(new Switch("noLambdas", JSAP.NO_SHORTFLAG, "noLambdas", "Do not generate lambdas."));
+		jsap.registerParameter(new Switch("noCandy", JSAP.NO_SHORTFLAG, "noCandy", "Do not use the JSweet core candy."));
+		jsap.registerParameter(new FlaggedOption("modes", JSAP.STRING_PARSER, "java2ts,tsc", JSAP.NOT_REQUIRED, JSAP.NO_SHORTFLAG, "modes",
+				"The comma-separated transpilation modes: java2ts (TypeScript generation only) and/or tsc (TypeScript generation and compilation)."));
+		jsap.registerParameter(new FlaggedOption("runs", JSAP.INTEGER_PARSER, "1", JSAP.NOT_REQUIRED, JSAP.NO_SHORTFLAG, "runs",
+				"The number of transpilations per size and mode."));
+		jsap.registerParameter(new FlaggedOption("workDir", JSAP.STRING_PARSER, "target/scaling", JSAP.NOT_REQUIRED, JSAP.NO_SHORTFLAG, "workDir",
+				"The directory where the projects are generated and transpiled."));
+		jsap.registerParameter(new FlaggedOption("output", JSAP.STRING_PARSER, null, JSAP.NOT_REQUIRED, JSAP.NO_SHORTFLAG, "output",
+				"The CSV output file (standard output by default)."));
+
+		JSAPResult config = jsap.parse(args);
+		if (!config.success() || config.getBoolean("help")) {
+			System.err.println("Usage: java " + ScalingBenchmark.class.getName() + " " + jsap.getUsage());
+			System.err.println(jsap.getHelp());
+			System.exit(config.success() ? 0 : 1);
+		}
+
+		// the transpiler's logs would distort the measures
+		LogManager.getLogger("org.jsweet").setLevel(Level.WARN);
+		JSweetConfig.initClassPath(null);
+
+		File workDir = new File(config.getString("workDir"));
+		try (PrintStream out = config.getString("output") == null ? new PrintStream(System.out) : new PrintStream(new File(config.getString("output")))) {
+			out.println(CSV_HEADER);
+			out.flush();
+			for (String size : config.getString("sizes").split(",")) {
+				SyntheticProjectGenerator generator = new SyntheticProjectGenerator();
+				generator.setClassCount(Integer.parseInt(size.trim()));
+				generator.setPackageCount(Math.max(1, generator.getClassCount() / config.getInt("packageSize")));
+				generator.setInheritanceDepth(config.getInt("inheritanceDepth"));
+				generator.setMethodCount(config.getInt("methodCount"));
+				generator.setOverloadDensity(config.getInt("overloadDensity"));
+				generator.setStaticInitializers(!config.getBoolean("noStaticInitializers"));
+				generator.setLambdas(!config.getBoolean("noLambdas"));
+				generator.setCandyUsage(!config.getBoolean("noCandy"));
+				List<File> files = generator.generate(new File(workDir, "src"));
+				for (String mode : config.getString("modes").split(",")) {
+					boolean tsc = "tsc".equals(mode.trim());
+					for (int run = 0; run < config.getInt("runs"); run++) {
+						out.println(generator.getClassCount() + "," + generator.getPackageCount() + "," + tsc + "," + run + ","
+								+ transpile(workDir, files, tsc));
+						out.flush();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Transpiles the given files with a new transpiler and returns the CSV
+	 * measures.
+	 */
+	private static String transpile(File workDir, List<File> files, boolean tsc) throws Exception {
+		JSweetTranspiler transpiler = new JSweetTranspiler(new File(workDir, ".jsweet"), new File(workDir, "ts"), new File(workDir, "js"), null,
+				System.getProperty("java.class.path"));
+		transpiler.setGenerateJsFiles(tsc);
+		ErrorCountTranspilationHandler handler = new ErrorCountTranspilationHandler(new ConsoleTranspilationHandler());
+		SourceFile[] sourceFiles = SourceFile.toSourceFiles(files);
+
+		System.gc();
+		List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans();
+		heapPools.removeIf(pool -> pool.getType() != MemoryType.HEAP);
+		heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+		long gcCount = getGcCount();
+		long gcTime = getGcTime();
+		long start = System.nanoTime();
+
+		transpiler.transpile(handler, sourceFiles);
+
+		long time = System.nanoTime() - start;
+		gcCount = getGcCount() - gcCount;
+		gcTime = getGcTime() - gcTime;
+		long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+		TranspilationMetrics metrics = transpiler.getLastMetrics();
+		return (time / 1000000) + "," + (peakHeap / (1024 * 1024)) + "," + gcCount + "," + gcTime + ","
+				+ (getPhaseTime(metrics, TranspilationMetrics.PHASE_PARSE) + getPhaseTime(metrics, TranspilationMetrics.PHASE_ENTER_TREES)) + ","
+				+ getPhaseTime(metrics, TranspilationMetrics.PHASE_ATTRIBUTE) + ","
+				+ (getPhaseTime(metrics, TranspilationMetrics.PHASE_GLOBAL_SCAN) + getPhaseTime(metrics, TranspilationMetrics.PHASE_OVERLOAD_SCAN)
+						+ getPhaseTime(metrics, TranspilationMetrics.PHASE_TRANSLATION))
+				+ "," + getPhaseTime(metrics, TranspilationMetrics.PHASE_WRITE) + "," + getPhaseTime(metrics, TranspilationMetrics.PHASE_TSC) + ","
+				+ handler.getErrorCount();
+	}
+
+	private static long getPhaseTime(TranspilationMetrics metrics, String phase) {
+		if (metrics == null || metrics.getPhase(phase) == null) {
+			return 0;
+		}
+		return metrics.getPhase(phase).getWallTime() / 1000000;
+	}
+
+	private static long getGcCount() {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+	}
+
+	private static long getGcTime() {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jsweet.transpiler.OverloadScanner;
+import org.jsweet.transpiler.typescript.Java2TypeScriptTranslator;
+import org.jsweet.transpiler.util.Position;
+import org.jsweet.transpiler.util.SourceMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+
+/**
+ * Measures the lookups in the source maps built when translating a corpus
+ * (as done when mapping the tsc errors back to the Java sources).
+ * 
+ * @author Renaud Pawlak
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SourceMapBenchmark {
+
+	/**
+	 * The source maps of the translated corpus.
+	 */
+	@State(Scope.Benchmark)
+	public static class SourceMapState extends CorpusState {
+		/**
+		 * The source maps, one per compilation unit.
+		 */
+		public List<SourceMap> sourceMaps = new ArrayList<>();
+
+		/**
+		 * The number of output lines of each source map.
+		 */
+		public List<Integer> lineCounts = new ArrayList<>();
+
+		/**
+		 * Translates the corpus, preserving the source line numbers.
+		 */
+		@Setup(Level.Trial)
+		public void translate() {
+			new OverloadScanner(SILENT_HANDLER, environment.context).process(compilationUnits);
+			for (JCCompilationUnit cu : compilationUnits) {
+				Java2TypeScriptTranslator translator = new Java2TypeScriptTranslator(SILENT_HANDLER, environment.context, cu, true);
+				translator.print(cu);
+				environment.context.poolFooterStatements();
+				sourceMaps.add(translator.sourceMap);
+				lineCounts.add(translator.getCurrentLine());
+			}
+		}
+	}
+
+	/**
+	 * Looks up the input position of each output line of the corpus.
+	 */
+	@Benchmark
+	public void findInputPosition(SourceMapState state, Blackhole blackhole) {
+		for (int i = 0; i < state.sourceMaps.size(); i++) {
+			SourceMap sourceMap = state.sourceMaps.get(i);
+			int lineCount = state.lineCounts.get(i);
+			for (int line = 0; line < lineCount; line++) {
+				Position position = sourceMap.findInputPosition(line, 0);
+				blackhole.consume(position);
+			}
+		}
+	}
+
+}
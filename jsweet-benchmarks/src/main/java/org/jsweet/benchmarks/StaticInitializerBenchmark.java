@@ -0,0 +1,127 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jsweet.transpiler.StaticInitilializerAnalyzer;
+import org.jsweet.transpiler.util.DirectedGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+
+/**
+ * Measures the static initializers analysis and the topological sort of the
+ * compilation units performed in bundle mode, as well as the topological sort
+ * of larger synthetic graphs.
+ * 
+ * @author Renaud Pawlak
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StaticInitializerBenchmark {
+
+	/**
+	 * A random acyclic graph of integers.
+	 */
+	@State(Scope.Benchmark)
+	public static class GraphState {
+		/**
+		 * The number of nodes in the graph.
+		 */
+		@Param({ "100", "1000", "10000", "100000" })
+		public int size;
+
+		/**
+		 * The average number of outgoing edges per node.
+		 */
+		@Param({ "4" })
+		public int degree;
+
+		/**
+		 * The graph to be sorted.
+		 */
+		public DirectedGraph<Integer> graph;
+
+		/**
+		 * Builds the graph (edges always go to greater nodes, so that there is
+		 * no cycle).
+		 */
+		@Setup(Level.Trial)
+		public void setUp() {
+			Random random = new Random(size);
+			graph = new DirectedGraph<>();
+			for (int i = 0; i < size; i++) {
+				graph.add(i);
+			}
+			for (int i = 0; i < size - 1; i++) {
+				for (int j = 0; j < degree; j++) {
+					int destination = i + 1 + random.nextInt(size - i - 1);
+					if (!graph.hasEdge(i, destination)) {
+						graph.addEdge(i, destination);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Analyzes the static initializers of the corpus and sorts the compilation
+	 * units accordingly.
+	 */
+	@Benchmark
+	public List<JCCompilationUnit> analyzeAndSort(CorpusState state) {
+		StaticInitilializerAnalyzer analyzer = new StaticInitilializerAnalyzer(state.environment.context);
+		analyzer.process(state.compilationUnits);
+		return analyzer.globalStaticInitializersDependencies.topologicalSort(node -> {
+		});
+	}
+
+	/**
+	 * Sorts a synthetic graph.
+	 */
+	@Benchmark
+	public List<Integer> topologicalSort(GraphState state) {
+		return state.graph.topologicalSort(node -> {
+		});
+	}
+
+	/**
+	 * Finds the cycles of a synthetic graph.
+	 */
+	@Benchmark
+	public List<List<Integer>> findCycles(GraphState state) {
+		return state.graph.findCycles();
+	}
+
+}
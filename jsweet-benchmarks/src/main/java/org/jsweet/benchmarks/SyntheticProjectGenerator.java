@@ -0,0 +1,254 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Generates synthetic JSweet projects of arbitrary sizes, to measure how the
+ * transpiler scales (see {@link ScalingBenchmark}).
+ * 
+ * <p>
+ * Class <code>C&lt;i&gt;</code> is generated in package
+ * <code>synthetic.p&lt;i % packageCount&gt;</code>. The classes of a package
+ * form inheritance chains of the configured depth. Each class declares
+ * overloaded methods (overridden by the subclasses), a static field
+ * initialized from the static field of the previous class (in another
+ * package), and a field referencing another class. Optionally, the methods
+ * use lambdas and the JSweet core candy.
+ * 
+ * @author Renaud Pawlak
+ */
+public class SyntheticProjectGenerator {
+
+	private static final String[][] OVERLOAD_PARAMETERS = { //
+			{ "int a", "a + %s" }, //
+			{ "String a", "%m(a.length())" }, //
+			{ "int a, int b", "%m(a) + b" }, //
+			{ "double a", "%m((int) a)" }, //
+			{ "boolean a", "%m(a ? 1 : 0)" }, //
+			{ "int a, String b", "%m(a, b.length())" } };
+
+	/**
+	 * The maximum number of overloads per method name.
+	 */
+	public static final int MAX_OVERLOAD_DENSITY = OVERLOAD_PARAMETERS.length;
+
+	private int classCount = 1000;
+	private int packageCount = 20;
+	private int inheritanceDepth = 3;
+	private int methodCount = 3;
+	private int overloadDensity = 3;
+	private boolean staticInitializers = true;
+	private boolean lambdas = true;
+	private boolean candyUsage = true;
+
+	/**
+	 * Generates the project's Java files in the given directory (which is
+	 * cleaned first).
+	 * 
+	 * @return the generated files
+	 */
+	public List<File> generate(File sourceDir) throws IOException {
+		FileUtils.deleteDirectory(sourceDir);
+		List<File> files = new ArrayList<>();
+		for (int i = 0; i < classCount; i++) {
+			File file = new File(sourceDir, "synthetic" + File.separator + "p" + getPackageIndex(i) + File.separator + "C" + i + ".java");
+			FileUtils.write(file, generateClass(i));
+			files.add(file);
+		}
+		return files;
+	}
+
+	private int getPackageIndex(int classIndex) {
+		return classIndex % packageCount;
+	}
+
+	private String getQualifiedName(int classIndex) {
+		return "synthetic.p" + getPackageIndex(classIndex) + ".C" + classIndex;
+	}
+
+	/**
+	 * Generates the source code of the given class.
+	 */
+	public String generateClass(int i) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("package synthetic.p" + getPackageIndex(i) + ";\n\n");
+		if (candyUsage) {
+			sb.append("import static jsweet.dom.Globals.console;\n\n");
+			sb.append("import jsweet.lang.Array;\n\n");
+		}
+		if (lambdas) {
+			sb.append("import java.util.function.Function;\n\n");
+		}
+		// the classes of a package are chained, C<i> extending C<i - packageCount>
+		int depth = (i / packageCount) % (inheritanceDepth + 1);
+		sb.append("public class C" + i + (depth > 0 ? " extends C" + (i - packageCount) : "") + " {\n\n");
+		if (staticInitializers) {
+			sb.append("\tpublic static int S" + i + " = " + (i > 0 ? getQualifiedName(i - 1) + ".S" + (i - 1) + " + 1" : "0") + ";\n\n");
+			sb.append("\tstatic {\n\t\tS" + i + " *= 2;\n\t}\n\n");
+		}
+		sb.append("\tprotected int f" + i + " = " + i + ";\n\n");
+		if (i > 1) {
+			sb.append("\tprotected " + getQualifiedName(i - 2) + " ref" + i + ";\n\n");
+		}
+		for (int j = 0; j < methodCount; j++) {
+			String name = "m" + j;
+			for (int k = 0; k < Math.min(overloadDensity, MAX_OVERLOAD_DENSITY); k++) {
+				String[] overload = OVERLOAD_PARAMETERS[k];
+				sb.append("\tpublic int " + name + "(" + overload[0] + ") {\n");
+				sb.append("\t\treturn " + overload[1].replace("%m", name).replace("%s", "f" + i) + ";\n");
+				sb.append("\t}\n\n");
+			}
+		}
+		if (lambdas) {
+			sb.append("\tpublic int apply" + i + "(int a) {\n");
+			sb.append("\t\tFunction<Integer, Integer> f = x -> x * 2 + f" + i + ";\n");
+			sb.append("\t\treturn f.apply(a);\n");
+			sb.append("\t}\n\n");
+		}
+		if (candyUsage) {
+			sb.append("\tpublic void log" + i + "() {\n");
+			sb.append("\t\tArray<Integer> values = new Array<Integer>();\n");
+			sb.append("\t\tvalues.push(m0(" + i + "));\n");
+			sb.append("\t\tconsole.log(\"C" + i + "\", values);\n");
+			sb.append("\t}\n\n");
+		}
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the number of generated classes.
+	 */
+	public int getClassCount() {
+		return classCount;
+	}
+
+	/**
+	 * Sets the number of generated classes.
+	 */
+	public void setClassCount(int classCount) {
+		this.classCount = classCount;
+	}
+
+	/**
+	 * Gets the number of generated packages.
+	 */
+	public int getPackageCount() {
+		return packageCount;
+	}
+
+	/**
+	 * Sets the number of generated packages.
+	 */
+	public void setPackageCount(int packageCount) {
+		this.packageCount = packageCount;
+	}
+
+	/**
+	 * Gets the maximum depth of the inheritance chains.
+	 */
+	public int getInheritanceDepth() {
+		return inheritanceDepth;
+	}
+
+	/**
+	 * Sets the maximum depth of the inheritance chains (0 for no
+	 * inheritance).
+	 */
+	public void setInheritanceDepth(int inheritanceDepth) {
+		this.inheritanceDepth = inheritanceDepth;
+	}
+
+	/**
+	 * Gets the number of (overloaded) method names per class.
+	 */
+	public int getMethodCount() {
+		return methodCount;
+	}
+
+	/**
+	 * Sets the number of (overloaded) method names per class.
+	 */
+	public void setMethodCount(int methodCount) {
+		this.methodCount = methodCount;
+	}
+
+	/**
+	 * Gets the number of overloads per method name.
+	 */
+	public int getOverloadDensity() {
+		return overloadDensity;
+	}
+
+	/**
+	 * Sets the number of overloads per method name (at most
+	 * {@link #MAX_OVERLOAD_DENSITY}).
+	 */
+	public void setOverloadDensity(int overloadDensity) {
+		this.overloadDensity = overloadDensity;
+	}
+
+	/**
+	 * Tells if the classes have static initializers.
+	 */
+	public boolean isStaticInitializers() {
+		return staticInitializers;
+	}
+
+	/**
+	 * Sets if the classes have static initializers.
+	 */
+	public void setStaticInitializers(boolean staticInitializers) {
+		this.staticInitializers = staticInitializers;
+	}
+
+	/**
+	 * Tells if the classes use lambdas.
+	 */
+	public boolean isLambdas() {
+		return lambdas;
+	}
+
+	/**
+	 * Sets if the classes use lambdas.
+	 */
+	public void setLambdas(boolean lambdas) {
+		this.lambdas = lambdas;
+	}
+
+	/**
+	 * Tells if the classes use the JSweet core candy.
+	 */
+	public boolean isCandyUsage() {
+		return candyUsage;
+	}
+
+	/**
+	 * Sets if the classes use the JSweet core candy.
+	 */
+	public void setCandyUsage(boolean candyUsage) {
+		this.candyUsage = candyUsage;
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullWriter;
+
+import org.jsweet.transpiler.OverloadScanner;
+import org.jsweet.transpiler.typescript.Java2TypeScriptTranslator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+
+/**
+ * Measures the translation (pretty printing to TypeScript) of the attributed
+ * compilation units of a corpus.
+ * 
+ * @author Renaud Pawlak
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TranslatorBenchmark {
+
+	/**
+	 * A corpus where the overloads were scanned, as required by the
+	 * translation.
+	 */
+	@State(Scope.Benchmark)
+	public static class TranslatorState extends CorpusState {
+		/**
+		 * Scans the overloads (once the corpus is attributed).
+		 */
+		@Setup(Level.Trial)
+		public void scanOverloads() {
+			new OverloadScanner(SILENT_HANDLER, environment.context).process(compilationUnits);
+		}
+	}
+
+	/**
+	 * Translates all the compilation units of the corpus.
+	 */
+	@Benchmark
+	public void translate(TranslatorState state, Blackhole blackhole) {
+		for (JCCompilationUnit cu : state.compilationUnits) {
+			Java2TypeScriptTranslator translator = new Java2TypeScriptTranslator(CorpusState.SILENT_HANDLER, state.environment.context, cu, false);
+			translator.print(cu);
+			blackhole.consume(translator.getResult());
+			blackhole.consume(state.environment.context.poolFooterStatements());
+		}
+	}
+
+	/**
+	 * Translates all the compilation units of the corpus, while preserving
+	 * the Java line numbers (which adds and removes new lines in the output).
+	 */
+	@Benchmark
+	public void translatePreservingLines(TranslatorState state, Blackhole blackhole) {
+		for (JCCompilationUnit cu : state.compilationUnits) {
+			Java2TypeScriptTranslator translator = new Java2TypeScriptTranslator(CorpusState.SILENT_HANDLER, state.environment.context, cu, true);
+			translator.print(cu);
+			blackhole.consume(translator.getResult());
+			blackhole.consume(state.environment.context.poolFooterStatements());
+		}
+	}
+
+	/**
+	 * Translates all the compilation units of the corpus, while streaming the
+	 * finished top-level members to a writer (as done for bundles).
+	 */
+	@Benchmark
+	public void translateStreaming(TranslatorState state, Blackhole blackhole) throws IOException {
+		for (JCCompilationUnit cu : state.compilationUnits) {
+			Java2TypeScriptTranslator translator = new Java2TypeScriptTranslator(CorpusState.SILENT_HANDLER, state.environment.context, cu, false);
+			translator.setOutputWriter(NullWriter.NULL_WRITER);
+			translator.print(cu);
+			translator.writeOutput(NullWriter.NULL_WRITER);
+			blackhole.consume(translator.getCurrentPosition());
+			blackhole.consume(state.environment.context.poolFooterStatements());
+		}
+	}
+
+}
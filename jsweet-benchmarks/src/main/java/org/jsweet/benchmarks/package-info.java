@@ -0,0 +1,45 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * JMH benchmarks for the hot paths of the JSweet transpiler.
+ * 
+ * <p>
+ * The benchmarks work on corpora of Java sources taken from the transpiler's
+ * tests (see {@link org.jsweet.benchmarks.CorpusState}), which are parsed and
+ * attributed once per trial. To run all the benchmarks from this module's
+ * directory:
+ * 
+ * <pre>
+ * mvn package
+ * java -cp target/benchmarks.jar:$JAVA_HOME/lib/tools.jar org.openjdk.jmh.Main
+ * </pre>
+ * 
+ * <p>
+ * The Java compiler (<code>tools.jar</code>) must be in the classpath, since
+ * it is not bundled in the benchmarks jar. The corpora are looked up in
+ * <code>../src/test/java</code>, unless the
+ * {@value org.jsweet.benchmarks.CorpusState#CORPUS_DIR_PROPERTY} system
+ * property is set.
+ * 
+ * <p>
+ * The end-to-end scaling of the transpiler is measured by
+ * {@link org.jsweet.benchmarks.ScalingBenchmark}, on large synthetic projects
+ * (see {@link org.jsweet.benchmarks.SyntheticProjectGenerator}).
+ * 
+ * @author Renaud Pawlak
+ */
+package org.jsweet.benchmarks;
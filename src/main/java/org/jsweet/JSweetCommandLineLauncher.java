@@ -19,15 +19,21 @@ package org.jsweet;
 import static org.jsweet.transpiler.TranspilationHandler.OUTPUT_LOGGER;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.jsweet.transpiler.JSweetProblem;
 import org.jsweet.transpiler.JSweetTranspiler;
+import org.jsweet.transpiler.JavaSourceWatcher;
 import org.jsweet.transpiler.ModuleKind;
 import org.jsweet.transpiler.SourceFile;
+import org.jsweet.transpiler.TranspilationMetrics;
 import org.jsweet.transpiler.util.ConsoleTranspilationHandler;
 import org.jsweet.transpiler.util.ErrorCountTranspilationHandler;
 import org.jsweet.transpiler.util.Util;
@@ -69,57 +75,163 @@ public class JSweetCommandLineLauncher {
 				printUsage(jsapSpec);
 			}
 
+			if (!jsapArgs.getBoolean("daemon") && jsapArgs.getString("input") == null) {
+				System.out.println("Error: Parameter 'input' is required.");
+				printUsage(jsapSpec);
+				System.exit(-1);
+			}
+
 			if (jsapArgs.getBoolean("verbose")) {
 				LogManager.getLogger("org.jsweet").setLevel(Level.ALL);
 			}
 
-			JSweetConfig.initClassPath(jsapArgs.getString("jdkHome"));
+			if (jsapArgs.getBoolean("daemon")) {
+				JSweetConfig.initClassPath(jsapArgs.getString("jdkHome"));
+				new JSweetDaemon(jsapArgs.getInt("daemonPort"), jsapArgs.getInt("daemonTimeout")).run();
+				System.exit(0);
+			}
 
-			String classPath = jsapArgs.getString("classpath");
-			logger.info("classpath: " + classPath);
+			if (jsapArgs.getBoolean("useDaemon") && !jsapArgs.getBoolean("watch")) {
+				Integer exitCode = JSweetDaemon.runClient(jsapArgs.getInt("daemonPort"), args, line -> System.out.println(line));
+				if (exitCode != null) {
+					System.exit(exitCode);
+				}
+				OUTPUT_LOGGER.info("no JSweet daemon running on port " + jsapArgs.getInt("daemonPort") + ": transpiling locally");
+			}
+
+			JSweetConfig.initClassPath(jsapArgs.getString("jdkHome"));
 
 			ErrorCountTranspilationHandler transpilationHandler = new ErrorCountTranspilationHandler(new ConsoleTranspilationHandler());
+			JSweetTranspiler transpiler = transpile(jsapSpec, jsapArgs, null, null, transpilationHandler);
 
-			try {
-				File tsOutputDir = jsapArgs.getFile("tsout");
-				tsOutputDir.mkdirs();
-				logger.info("ts output dir: " + tsOutputDir);
+			errorCount = transpilationHandler.getErrorCount();
+			OUTPUT_LOGGER.info(getSummary(transpilationHandler));
 
-				File jsOutputDir = null;
-				if (jsapArgs.getFile("jsout") != null) {
-					jsOutputDir = jsapArgs.getFile("jsout");
-					jsOutputDir.mkdirs();
+			if (jsapArgs.getBoolean("watch") && transpiler != null) {
+				File inputDir = new File(jsapArgs.getString("input"));
+				File metricsFile = jsapArgs.getFile("metrics");
+				ConsoleTranspilationHandler watchHandler = new ConsoleTranspilationHandler() {
+					@Override
+					public void onMetrics(JSweetTranspiler transpiler, TranspilationMetrics metrics) {
+						writeMetrics(metricsFile, metrics);
+					}
+				};
+				try (JavaSourceWatcher watcher = new JavaSourceWatcher(transpiler, watchHandler, inputDir)) {
+					watcher.start();
+					OUTPUT_LOGGER.info("watching " + inputDir + " for changes (press Ctrl+C to stop)");
+					watcher.join();
 				}
-				logger.info("js output dir: " + jsOutputDir);
+			}
+		} catch (Throwable t) {
+			t.printStackTrace();
+			System.exit(1);
+		}
+		System.exit(errorCount > 0 ? 1 : 0);
+	}
 
-				File dtsOutputDir = null;
-				if (jsapArgs.getFile("dtsout") != null) {
-					dtsOutputDir = jsapArgs.getFile("dtsout");
-				}
+	private static File resolve(File baseDir, File file) {
+		if (file == null || baseDir == null || file.isAbsolute()) {
+			return file;
+		}
+		return new File(baseDir, file.getPath());
+	}
 
-				File candiesJsOutputDir = null;
-				if (jsapArgs.getFile("candiesJsOut") != null) {
-					candiesJsOutputDir = jsapArgs.getFile("candiesJsOut");
-				}
+	private static String resolveClassPath(File baseDir, String classPath) {
+		if (classPath == null || baseDir == null) {
+			return classPath;
+		}
+		StringBuilder resolved = new StringBuilder();
+		for (String entry : classPath.split(File.pathSeparator)) {
+			if (resolved.length() > 0) {
+				resolved.append(File.pathSeparator);
+			}
+			resolved.append(resolve(baseDir, new File(entry)).getPath());
+		}
+		return resolved.toString();
+	}
 
-				File inputDir = new File(jsapArgs.getString("input"));
-				logger.info("input dir: " + inputDir);
+	/**
+	 * Transpiles the Java files as specified by the given command line
+	 * arguments.
+	 * 
+	 * @param jsapSpec
+	 *            the command line specification
+	 * @param jsapArgs
+	 *            the parsed command line arguments
+	 * @param baseDir
+	 *            the directory to resolve relative paths against (null for the
+	 *            current directory)
+	 * @param transpilers
+	 *            a cache of transpilers, indexed by configuration, in order to
+	 *            reuse transpilers from one invocation to another (null for no
+	 *            cache)
+	 * @param transpilationHandler
+	 *            the handler to report the transpilation problems to
+	 * @return the transpiler that was used, or null if the Java compiler was
+	 *         not found
+	 */
+	static JSweetTranspiler transpile(JSAP jsapSpec, JSAPResult jsapArgs, File baseDir, Map<String, JSweetTranspiler> transpilers,
+			ErrorCountTranspilationHandler transpilationHandler) throws Exception {
+		String classPath = resolveClassPath(baseDir, jsapArgs.getString("classpath"));
+		logger.info("classpath: " + classPath);
+
+		try {
+			File tsOutputDir = resolve(baseDir, jsapArgs.getFile("tsout"));
+			tsOutputDir.mkdirs();
+			logger.info("ts output dir: " + tsOutputDir);
+
+			File jsOutputDir = null;
+			if (jsapArgs.getFile("jsout") != null) {
+				jsOutputDir = resolve(baseDir, jsapArgs.getFile("jsout"));
+				jsOutputDir.mkdirs();
+			}
+			logger.info("js output dir: " + jsOutputDir);
+
+			File dtsOutputDir = null;
+			if (jsapArgs.getFile("dtsout") != null) {
+				dtsOutputDir = resolve(baseDir, jsapArgs.getFile("dtsout"));
+			}
+
+			File candiesJsOutputDir = null;
+			if (jsapArgs.getFile("candiesJsOut") != null) {
+				candiesJsOutputDir = resolve(baseDir, jsapArgs.getFile("candiesJsOut"));
+			}
 
-				LinkedList<File> files = new LinkedList<File>();
-				Util.addFiles(".java", inputDir, files);
+			File inputDir = resolve(baseDir, new File(jsapArgs.getString("input")));
+			logger.info("input dir: " + inputDir);
+
+			LinkedList<File> files = new LinkedList<File>();
+			Util.addFiles(".java", inputDir, files);
+
+			String configuration = null;
+			JSweetTranspiler transpiler = null;
+			if (transpilers != null) {
+				StringBuilder sb = new StringBuilder(String.valueOf(baseDir));
+				for (Iterator<?> i = jsapSpec.getIDMap().idIterator(); i.hasNext();) {
+					String id = (String) i.next();
+					if (!"input".equals(id) && !"verbose".equals(id)) {
+						sb.append("\n" + id + "=" + jsapArgs.getObject(id));
+					}
+				}
+				configuration = sb.toString();
+				transpiler = transpilers.get(configuration);
+			}
 
-				JSweetTranspiler transpiler = new JSweetTranspiler(tsOutputDir, jsOutputDir, candiesJsOutputDir, classPath);
+			if (transpiler == null) {
+				transpiler = new JSweetTranspiler(resolve(baseDir, new File(JSweetTranspiler.TMP_WORKING_DIR_NAME)), tsOutputDir, jsOutputDir,
+						candiesJsOutputDir, classPath);
 
 				transpiler.setBundle(jsapArgs.getBoolean("bundle"));
 				transpiler.setNoRootDirectories(jsapArgs.getBoolean("noRootDirectories"));
 				File bundlesDirectory = null;
 				if (jsapArgs.getFile("bundlesDirectory") != null) {
-					bundlesDirectory = jsapArgs.getFile("bundlesDirectory");
+					bundlesDirectory = resolve(baseDir, jsapArgs.getFile("bundlesDirectory"));
 					bundlesDirectory.getParentFile().mkdirs();
 				}
 				logger.info("bundles directory: " + bundlesDirectory);
 				transpiler.setBundlesDirectory(bundlesDirectory);
 				transpiler.setPreserveSourceLineNumbers(jsapArgs.getBoolean("sourceMap"));
+				transpiler.setGenerateSourceMaps(jsapArgs.getBoolean("generateSourceMaps"));
 				transpiler.setModuleKind(ModuleKind.valueOf(jsapArgs.getString("module")));
 				transpiler.setEncoding(jsapArgs.getString("encoding"));
 				transpiler.setIgnoreAssertions(jsapArgs.getBoolean("ignoreAssertions"));
@@ -130,30 +242,68 @@ public class JSweetCommandLineLauncher {
 				transpiler.setSupportSaticLazyInitialization(!jsapArgs.getBoolean("disableJavaAddons"));
 				transpiler.setGenerateDefinitions(jsapArgs.getBoolean("definitions"));
 				transpiler.setDeclarationsOutputDir(dtsOutputDir);
+				transpiler.setLowMemory(jsapArgs.getBoolean("lowMemory"));
+
+				if (jsapArgs.getBoolean("incremental")) {
+					transpiler.setIncremental(true);
+				}
+
+				if (jsapArgs.getBoolean("watch")) {
+					// the first transpilation populates the incremental index
+					transpiler.setIncremental(true);
+				}
 
-				transpiler.transpile(transpilationHandler, SourceFile.toSourceFiles(files));
-			} catch (NoClassDefFoundError error) {
-				transpilationHandler.report(JSweetProblem.JAVA_COMPILER_NOT_FOUND, null, JSweetProblem.JAVA_COMPILER_NOT_FOUND.getMessage());
+				if (transpilers != null) {
+					transpiler.setIncremental(true);
+					transpiler.setReuseCompilationEnvironment(true);
+					transpiler.setUseTscWorker(true);
+					transpiler.setSkipUnchangedOutputs(true);
+					transpilers.put(configuration, transpiler);
+				}
 			}
 
-			errorCount = transpilationHandler.getErrorCount();
-			if (errorCount > 0) {
-				OUTPUT_LOGGER.info("transpilation failed with " + errorCount + " error(s) and " + transpilationHandler.getWarningCount() + " warning(s)");
+			transpiler.transpile(transpilationHandler, SourceFile.toSourceFiles(files));
+			writeMetrics(resolve(baseDir, jsapArgs.getFile("metrics")), transpiler.getLastMetrics());
+			return transpiler;
+		} catch (NoClassDefFoundError error) {
+			transpilationHandler.report(JSweetProblem.JAVA_COMPILER_NOT_FOUND, null, JSweetProblem.JAVA_COMPILER_NOT_FOUND.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the given transpilation metrics as JSON to the given file (if
+	 * any).
+	 */
+	private static void writeMetrics(File metricsFile, TranspilationMetrics metrics) {
+		if (metricsFile == null || metrics == null) {
+			return;
+		}
+		try {
+			FileUtils.write(metricsFile, metrics.toJson());
+			logger.info("transpilation metrics written to " + metricsFile);
+		} catch (IOException e) {
+			logger.error("cannot write transpilation metrics to " + metricsFile, e);
+		}
+	}
+
+	/**
+	 * Gets a summary of a transpilation, to be displayed to the user.
+	 */
+	static String getSummary(ErrorCountTranspilationHandler transpilationHandler) {
+		if (transpilationHandler.getErrorCount() > 0) {
+			return "transpilation failed with " + transpilationHandler.getErrorCount() + " error(s) and " + transpilationHandler.getWarningCount()
+					+ " warning(s)";
+		} else {
+			if (transpilationHandler.getWarningCount() > 0) {
+				return "transpilation completed with " + transpilationHandler.getWarningCount() + " warning(s)";
 			} else {
-				if (transpilationHandler.getWarningCount() > 0) {
-					OUTPUT_LOGGER.info("transpilation completed with " + transpilationHandler.getWarningCount() + " warning(s)");
-				} else {
-					OUTPUT_LOGGER.info("transpilation successfully completed with no errors and no warnings");
-				}
+				return "transpilation successfully completed with no errors and no warnings";
 			}
-		} catch (Throwable t) {
-			t.printStackTrace();
-			System.exit(1);
 		}
-		System.exit(errorCount > 0 ? 1 : 0);
 	}
 
-	private static JSAP defineArgs() throws JSAPException {
+	static JSAP defineArgs() throws JSAPException {
 		// Verbose output
 		JSAP jsap = new JSAP();
 		Switch switchArg;
@@ -197,8 +347,8 @@ public class JSweetCommandLineLauncher {
 		optionArg.setShortFlag('i');
 		optionArg.setLongFlag("input");
 		optionArg.setStringParser(JSAP.STRING_PARSER);
-		optionArg.setRequired(true);
-		optionArg.setHelp("An input dir containing Java files to be transpiled.");
+		optionArg.setRequired(false);
+		optionArg.setHelp("An input dir containing Java files to be transpiled (required unless running a daemon).");
 		jsap.registerParameter(optionArg);
 
 		// Skip empty root dirs
@@ -311,7 +461,15 @@ public class JSweetCommandLineLauncher {
 		switchArg = new Switch("sourceMap");
 		switchArg.setLongFlag("sourceMap");
 		switchArg.setHelp(
-				"Set the transpiler to generate source map files for the Java files, so that it is possible to debug them in the browser. This feature is not available yet when using the --module option. Currently, when this option is on, the generated TypeScript file is not pretty printed in a programmer-friendly way (disable it in order to generate readable TypeScript code).");
+				"Set the transpiler to generate source map files for the Java files, so that it is possible to debug them in the browser. This feature is not available yet when using the --module option.");
+		switchArg.setDefault("false");
+		jsap.registerParameter(switchArg);
+
+		// Generated source maps
+		switchArg = new Switch("generateSourceMaps");
+		switchArg.setLongFlag("generateSourceMaps");
+		switchArg.setHelp(
+				"Set the transpiler to generate source map files for the Java files by composing the TypeScript compiler's source maps with its own, so that the generated files do not need to preserve the Java line numbers and remain pretty printed.");
 		switchArg.setDefault("false");
 		jsap.registerParameter(switchArg);
 
@@ -322,10 +480,77 @@ public class JSweetCommandLineLauncher {
 		switchArg.setDefault("false");
 		jsap.registerParameter(switchArg);
 
+		// Watch
+		switchArg = new Switch("watch");
+		switchArg.setLongFlag("watch");
+		switchArg.setShortFlag('w');
+		switchArg.setHelp(
+				"Keep running after the transpilation and watch the input directory: the modified Java files (and the files depending on them) are transpiled again as soon as they are saved. Not supported with the --useDaemon option.");
+		switchArg.setDefault("false");
+		jsap.registerParameter(switchArg);
+
+		// Metrics
+		optionArg = new FlaggedOption("metrics");
+		optionArg.setLongFlag("metrics");
+		optionArg.setHelp(
+				"Write the timings (per transpilation phase and per Java file) and the counters (written files and bytes, cache hits) of the transpilation to the given file, as JSON. In watch mode, the file is rewritten after each transpilation.");
+		optionArg.setStringParser(FileStringParser.getParser());
+		optionArg.setRequired(false);
+		jsap.registerParameter(optionArg);
+
+		// Low memory
+		switchArg = new Switch("lowMemory");
+		switchArg.setLongFlag("lowMemory");
+		switchArg.setHelp(
+				"Release the Java syntax trees of each file as soon as it is transpiled, in order to reduce the memory footprint of the transpilation of very large programs.");
+		switchArg.setDefault("false");
+		jsap.registerParameter(switchArg);
+
+		// Incremental
+		switchArg = new Switch("incremental");
+		switchArg.setLongFlag("incremental");
+		switchArg.setHelp(
+				"Only transpile the Java files that changed since the last transpilation, and the files depending on them. The dependency index between the files is kept in the working directory.");
+		switchArg.setDefault("false");
+		jsap.registerParameter(switchArg);
+
+		// Daemon
+		switchArg = new Switch("daemon");
+		switchArg.setLongFlag("daemon");
+		switchArg.setHelp(
+				"Start a long-lived transpilation daemon, listening on the local host (see --daemonPort), which keeps the Java compiler, the candies and the transpilers warm from one invocation to another. Invocations with the --useDaemon option are delegated to the daemon. The daemon shuts itself down after an idle timeout (see --daemonTimeout).");
+		switchArg.setDefault("false");
+		jsap.registerParameter(switchArg);
+
+		// Use daemon
+		switchArg = new Switch("useDaemon");
+		switchArg.setLongFlag("useDaemon");
+		switchArg.setHelp("Delegate the transpilation to a running JSweet daemon (see --daemon), or transpile locally if no daemon is running.");
+		switchArg.setDefault("false");
+		jsap.registerParameter(switchArg);
+
+		// Daemon port
+		optionArg = new FlaggedOption("daemonPort");
+		optionArg.setLongFlag("daemonPort");
+		optionArg.setStringParser(JSAP.INTEGER_PARSER);
+		optionArg.setDefault("" + JSweetDaemon.DEFAULT_PORT);
+		optionArg.setHelp("The local port the JSweet daemon listens to.");
+		optionArg.setRequired(false);
+		jsap.registerParameter(optionArg);
+
+		// Daemon idle timeout
+		optionArg = new FlaggedOption("daemonTimeout");
+		optionArg.setLongFlag("daemonTimeout");
+		optionArg.setStringParser(JSAP.INTEGER_PARSER);
+		optionArg.setDefault("" + JSweetDaemon.DEFAULT_IDLE_TIMEOUT);
+		optionArg.setHelp("The idle time (in seconds) after which the JSweet daemon shuts itself down.");
+		optionArg.setRequired(false);
+		jsap.registerParameter(optionArg);
+
 		return jsap;
 	}
 
-	private static JSAPResult parseArgs(JSAP jsapSpec, String[] commandLineArgs) {
+	static JSAPResult parseArgs(JSAP jsapSpec, String[] commandLineArgs) {
 		OUTPUT_LOGGER.info("JSweet transpiler version " + JSweetConfig.getVersionNumber() + " (build date: " + JSweetConfig.getBuildDate() + ")");
 
 		if (jsapSpec == null) {
@@ -0,0 +1,314 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet;
+
+import static org.jsweet.transpiler.TranspilationHandler.OUTPUT_LOGGER;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.jsweet.transpiler.JSweetTranspiler;
+import org.jsweet.transpiler.Severity;
+import org.jsweet.transpiler.util.ConsoleTranspilationHandler;
+import org.jsweet.transpiler.util.ErrorCountTranspilationHandler;
+import org.jsweet.transpiler.util.ProcessUtil;
+
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPResult;
+
+/**
+ * A long-lived transpilation server, which keeps the Java compiler, the
+ * candies and the transpilers warm from one command line invocation to
+ * another.
+ *
+ * <p>
+ * The daemon listens to a port on the loopback interface and serves the
+ * requests one at a time. A request is made of a secret token (written in a
+ * file of the user's home directory that is readable only by the user), the
+ * client's current directory, and the command line arguments, each sent as a
+ * length-prefixed UTF-8 string, so that the arguments may contain any
+ * character. The daemon answers with the output lines, followed by the exit
+ * code. A client that does not send its request within the request timeout
+ * is disconnected. The daemon shuts itself down when no request was received
+ * during the idle timeout.
+ *
+ * @author Renaud Pawlak
+ */
+public class JSweetDaemon {
+
+	private static final Logger logger = Logger.getLogger(JSweetDaemon.class);
+
+	/**
+	 * The default port the daemon listens to.
+	 */
+	public static final int DEFAULT_PORT = 7878;
+
+	/**
+	 * The default idle timeout of the daemon, in seconds.
+	 */
+	public static final int DEFAULT_IDLE_TIMEOUT = 3600;
+
+	private static final String EXIT_PREFIX = "EXIT ";
+
+	/**
+	 * The time (in milliseconds) after which a client that does not send its
+	 * request is disconnected.
+	 */
+	private static final int REQUEST_TIMEOUT = 10000;
+
+	private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+
+	private static final int MAX_ARGUMENTS = 10000;
+
+	private static final int MAX_CACHED_TRANSPILERS = 8;
+
+	private int port;
+
+	private int idleTimeout;
+
+	@SuppressWarnings("serial")
+	private Map<String, JSweetTranspiler> transpilers = new LinkedHashMap<String, JSweetTranspiler>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, JSweetTranspiler> eldest) {
+			if (size() > MAX_CACHED_TRANSPILERS) {
+				// stops the evicted transpiler's tsc worker
+				eldest.getValue().setUseTscWorker(false);
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/**
+	 * Creates a daemon.
+	 *
+	 * @param port
+	 *            the local port to listen to
+	 * @param idleTimeout
+	 *            the time (in seconds) after which the daemon shuts down if no
+	 *            request is received
+	 */
+	public JSweetDaemon(int port, int idleTimeout) {
+		this.port = port;
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * Gets the file holding the token that clients shall send to the daemon
+	 * listening to the given port.
+	 */
+	public static File getTokenFile(int port) {
+		return new File(ProcessUtil.USER_HOME_DIR, ".jsweet-daemon-" + port);
+	}
+
+	/**
+	 * Runs the daemon until the idle timeout is reached.
+	 */
+	public void run() throws IOException {
+		String token = new BigInteger(130, new SecureRandom()).toString(32);
+		File tokenFile = getTokenFile(port);
+		try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+			// restricts access to the user before writing the token
+			tokenFile.delete();
+			tokenFile.createNewFile();
+			tokenFile.setReadable(false, false);
+			tokenFile.setReadable(true, true);
+			tokenFile.setWritable(false, false);
+			tokenFile.setWritable(true, true);
+			FileUtils.write(tokenFile, token, StandardCharsets.UTF_8);
+			serverSocket.setSoTimeout(idleTimeout * 1000);
+			OUTPUT_LOGGER.info("JSweet daemon listening on port " + port + " (idle timeout: " + idleTimeout + "s)");
+			while (true) {
+				Socket socket;
+				try {
+					socket = serverSocket.accept();
+				} catch (SocketTimeoutException e) {
+					OUTPUT_LOGGER.info("JSweet daemon idle timeout reached: shutting down");
+					break;
+				}
+				try {
+					// a stalled client shall not block the daemon
+					socket.setSoTimeout(REQUEST_TIMEOUT);
+					serve(socket, token);
+				} catch (SocketTimeoutException e) {
+					logger.warn("client disconnected: request not received within " + REQUEST_TIMEOUT + "ms");
+				} catch (Exception e) {
+					logger.error("error while serving request", e);
+				} finally {
+					socket.close();
+				}
+			}
+		} finally {
+			tokenFile.delete();
+		}
+	}
+
+	/**
+	 * A transpilation handler that sends the reported problems to the client,
+	 * with the same format as the console.
+	 */
+	private static class ClientTranspilationHandler extends ConsoleTranspilationHandler {
+		private PrintWriter out;
+
+		public ClientTranspilationHandler(PrintWriter out) {
+			this.out = out;
+		}
+
+		@Override
+		protected void log(Severity severity, String message) {
+			switch (severity) {
+			case ERROR:
+				out.println("ERROR: " + message);
+				break;
+			case WARNING:
+				out.println("WARN: " + message);
+				break;
+			case MESSAGE:
+				out.println("INFO: " + message);
+				break;
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > MAX_STRING_LENGTH) {
+			throw new IOException("invalid string length: " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private void serve(Socket socket, String token) throws Exception {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+		if (!token.equals(readString(in))) {
+			logger.warn("rejected request with invalid token");
+			out.println("ERROR: invalid JSweet daemon token");
+			out.println(EXIT_PREFIX + 1);
+			return;
+		}
+		File baseDir = new File(readString(in));
+		int argCount = in.readInt();
+		if (argCount < 0 || argCount > MAX_ARGUMENTS) {
+			throw new IOException("invalid argument count: " + argCount);
+		}
+		String[] args = new String[argCount];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = readString(in);
+		}
+		logger.info("serving request from " + baseDir);
+
+		JSAP jsapSpec = JSweetCommandLineLauncher.defineArgs();
+		JSAPResult jsapArgs = jsapSpec.parse(args);
+		if (!jsapArgs.success() || jsapArgs.getString("input") == null) {
+			for (Iterator<?> errs = jsapArgs.getErrorMessageIterator(); errs.hasNext();) {
+				out.println("Error: " + errs.next());
+			}
+			if (jsapArgs.success()) {
+				out.println("Error: Parameter 'input' is required.");
+			}
+			out.println(EXIT_PREFIX + -1);
+			return;
+		}
+
+		ErrorCountTranspilationHandler transpilationHandler = new ErrorCountTranspilationHandler(new ClientTranspilationHandler(out));
+		int exitCode;
+		try {
+			JSweetCommandLineLauncher.transpile(jsapSpec, jsapArgs, baseDir, transpilers, transpilationHandler);
+			out.println("INFO: " + JSweetCommandLineLauncher.getSummary(transpilationHandler));
+			exitCode = transpilationHandler.getErrorCount() > 0 ? 1 : 0;
+		} catch (Throwable t) {
+			logger.error("transpilation failed", t);
+			out.println("ERROR: " + t);
+			exitCode = 1;
+		}
+		out.println(EXIT_PREFIX + exitCode);
+	}
+
+	/**
+	 * Delegates a command line invocation to the daemon listening to the given
+	 * port.
+	 *
+	 * @param port
+	 *            the port the daemon listens to
+	 * @param args
+	 *            the command line arguments
+	 * @param output
+	 *            receives the output lines sent back by the daemon
+	 * @return the exit code, or null if no daemon is running
+	 */
+	public static Integer runClient(int port, String[] args, Consumer<String> output) throws IOException {
+		File tokenFile = getTokenFile(port);
+		if (!tokenFile.exists()) {
+			return null;
+		}
+		String token = FileUtils.readFileToString(tokenFile, StandardCharsets.UTF_8);
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			writeString(out, token);
+			writeString(out, new File("").getAbsolutePath());
+			out.writeInt(args.length);
+			for (String arg : args) {
+				writeString(out, arg);
+			}
+			out.flush();
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.startsWith(EXIT_PREFIX)) {
+					return Integer.parseInt(line.substring(EXIT_PREFIX.length()));
+				}
+				output.accept(line);
+			}
+			output.accept("ERROR: connection to the JSweet daemon lost");
+			return 1;
+		} catch (ConnectException e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,663 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.transpiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.jsweet.JSweetConfig;
+import org.jsweet.transpiler.JSweetContext.UnitTranslationState;
+import org.jsweet.transpiler.util.DirectedGraph;
+import org.jsweet.transpiler.util.SourceMap;
+import org.jsweet.transpiler.util.Util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.PackageSymbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCFieldAccess;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
+import com.sun.tools.javac.tree.JCTree.JCImport;
+import com.sun.tools.javac.tree.TreeScanner;
+
+/**
+ * An index of the type dependencies between the compilation units of a
+ * transpiled program, which is kept from one transpilation to another in
+ * order to support incremental transpilation.
+ *
+ * <p>
+ * Each unit is indexed by its Java file and holds the (outermost) types it
+ * declares, the types it references, and the result of its last translation.
+ * A unit is considered as dirty (i.e. must be translated again) when its Java
+ * file has changed (modification date, length or content hash), or when it
+ * references a type that is declared in a dirty unit, or when one of the types
+ * it declares inherits from a dirty type. Types are indexed by qualified names
+ * so that the index remains valid when the compiler's symbols are recreated.
+ *
+ * <p>
+ * The index is updated from attributed compilation units, since dependencies
+ * are collected from the types of the trees. It does not prevent the
+ * attribution of clean units, it only avoids their translation.
+ *
+ * <p>
+ * When created with an index file, the index is persisted once committed and
+ * loaded on its first update, so that it is also kept from one process to
+ * another.
+ *
+ * @author Renaud Pawlak
+ */
+public class DependencyIndex {
+
+	private final static Logger logger = Logger.getLogger(DependencyIndex.class);
+
+	/**
+	 * The indexed data for a compilation unit.
+	 */
+	static class Entry {
+		Set<String> declaredTypes = new HashSet<>();
+		Set<String> referencedTypes = new HashSet<>();
+		Map<String, Set<String>> superTypes = new HashMap<>();
+		long javaFileLastTranspiled;
+		long javaFileLength;
+		String javaFileHash;
+		boolean hadErrors;
+		File tsFile;
+		SourceMap sourceMap;
+		File javaSourceDir;
+		File javaSourceDirRelativeFile;
+		// side effects of the translation on the context (to be restored when
+		// the unit is not translated again)
+		boolean entryFile;
+		boolean rootPackage;
+		Set<String> addedGlobalImports = new HashSet<>();
+		Set<String> skippedGlobalImports = new HashSet<>();
+		Map<String, String> addedGlobalsMappings = new LinkedHashMap<>();
+		String globalsMappingString;
+	}
+
+	/**
+	 * A scanner that grabs the declared and referenced types of a compilation
+	 * unit.
+	 */
+	private static class DependencyScanner extends TreeScanner {
+		Entry entry = new Entry();
+
+		private String getOutermostTypeName(Symbol symbol) {
+			ClassSymbol outermost = null;
+			// primitive types and other pseudo symbols have no enclosing class
+			for (Symbol s = symbol; s != null && !(s instanceof PackageSymbol); s = s.owner) {
+				if (s instanceof ClassSymbol) {
+					outermost = (ClassSymbol) s;
+				}
+			}
+			return outermost == null ? null : outermost.getQualifiedName().toString();
+		}
+
+		private void addReference(Symbol symbol) {
+			String name = getOutermostTypeName(symbol);
+			if (name != null) {
+				entry.referencedTypes.add(name);
+			}
+		}
+
+		@Override
+		public void visitClassDef(JCClassDecl classdecl) {
+			if (classdecl.sym != null) {
+				String name = getOutermostTypeName(classdecl.sym);
+				if (classdecl.sym.owner instanceof PackageSymbol) {
+					entry.declaredTypes.add(name);
+				}
+				Set<String> superTypes = entry.superTypes.get(name);
+				if (superTypes == null) {
+					superTypes = new HashSet<>();
+					entry.superTypes.put(name, superTypes);
+				}
+				if (classdecl.sym.getSuperclass() != null && classdecl.sym.getSuperclass().tsym != null) {
+					String superName = getOutermostTypeName(classdecl.sym.getSuperclass().tsym);
+					if (superName != null) {
+						superTypes.add(superName);
+					}
+				}
+				for (Type t : classdecl.sym.getInterfaces()) {
+					String superName = getOutermostTypeName(t.tsym);
+					if (superName != null) {
+						superTypes.add(superName);
+					}
+				}
+			}
+			super.visitClassDef(classdecl);
+		}
+
+		@Override
+		public void visitIdent(JCIdent ident) {
+			addReference(ident.sym);
+			super.visitIdent(ident);
+		}
+
+		@Override
+		public void visitSelect(JCFieldAccess fieldAccess) {
+			addReference(fieldAccess.sym);
+			super.visitSelect(fieldAccess);
+		}
+
+		@Override
+		public void scan(JCTree tree) {
+			if (tree != null && tree.type != null) {
+				addReference(tree.type.tsym);
+			}
+			super.scan(tree);
+		}
+	}
+
+	/**
+	 * Groups the given compilation units by connected components of their
+	 * dependency graph, so that each group can be compiled independently from
+	 * the others.
+	 *
+	 * @return the group of each compilation unit (groups are numbered from 0,
+	 *         in the order of their first compilation unit)
+	 */
+	static int[] getIndependentGroups(List<JCCompilationUnit> compilationUnits) {
+		return getIndependentGroups(compilationUnits, null);
+	}
+
+	/**
+	 * Groups the given compilation units by connected components of their
+	 * dependency graph, completed with the given package dependencies (when
+	 * not null, the units of a package and of the packages it depends on are
+	 * put in the same group).
+	 *
+	 * @return the group of each compilation unit (groups are numbered from 0,
+	 *         in the order of their first compilation unit)
+	 */
+	static int[] getIndependentGroups(List<JCCompilationUnit> compilationUnits, DirectedGraph<PackageSymbol> packageDependencies) {
+		int[] parents = new int[compilationUnits.size()];
+		Entry[] unitEntries = new Entry[parents.length];
+		Map<String, Integer> declaringUnits = new HashMap<>();
+		for (int i = 0; i < parents.length; i++) {
+			parents[i] = i;
+			DependencyScanner scanner = new DependencyScanner();
+			scanner.scan(compilationUnits.get(i));
+			unitEntries[i] = scanner.entry;
+			for (String type : scanner.entry.declaredTypes) {
+				declaringUnits.put(type, i);
+			}
+		}
+		for (int i = 0; i < parents.length; i++) {
+			Set<String> dependencies = new HashSet<>(unitEntries[i].referencedTypes);
+			unitEntries[i].superTypes.values().forEach(dependencies::addAll);
+			for (String type : dependencies) {
+				Integer j = declaringUnits.get(type);
+				if (j != null) {
+					parents[findRoot(parents, i)] = findRoot(parents, j);
+				}
+			}
+		}
+		if (packageDependencies != null && !packageDependencies.isEmpty()) {
+			Map<PackageSymbol, Integer> packageUnits = new HashMap<>();
+			for (int i = 0; i < parents.length; i++) {
+				Integer j = packageUnits.putIfAbsent(compilationUnits.get(i).packge, i);
+				if (j != null) {
+					parents[findRoot(parents, i)] = findRoot(parents, j);
+				}
+			}
+			for (PackageSymbol source : packageDependencies) {
+				Integer i = packageUnits.get(source);
+				if (i == null) {
+					continue;
+				}
+				for (PackageSymbol destination : packageDependencies.getDestinationElements(source)) {
+					Integer j = packageUnits.get(destination);
+					if (j != null) {
+						parents[findRoot(parents, i)] = findRoot(parents, j);
+					}
+				}
+			}
+		}
+		int[] groups = new int[parents.length];
+		Map<Integer, Integer> rootGroups = new HashMap<>();
+		for (int i = 0; i < parents.length; i++) {
+			groups[i] = rootGroups.computeIfAbsent(findRoot(parents, i), root -> rootGroups.size());
+		}
+		return groups;
+	}
+
+	/**
+	 * Packs the given groups into at most the given number of shards, so that
+	 * the shards hold roughly the same number of units (larger groups are
+	 * assigned first to the least loaded shard).
+	 *
+	 * @param groups
+	 *            the group of each compilation unit, as returned by
+	 *            {@link #getIndependentGroups(List, DirectedGraph)}
+	 * @return the shard of each compilation unit
+	 */
+	static int[] packGroups(int[] groups, int maxShards) {
+		int groupCount = groups.length == 0 ? 0 : Arrays.stream(groups).max().getAsInt() + 1;
+		int[] groupSizes = new int[groupCount];
+		for (int group : groups) {
+			groupSizes[group]++;
+		}
+		Integer[] sortedGroups = new Integer[groupCount];
+		for (int i = 0; i < groupCount; i++) {
+			sortedGroups[i] = i;
+		}
+		Arrays.sort(sortedGroups, (g1, g2) -> groupSizes[g2] - groupSizes[g1]);
+		int[] shardSizes = new int[Math.max(1, Math.min(maxShards, groupCount))];
+		int[] groupShards = new int[groupCount];
+		for (int group : sortedGroups) {
+			int shard = 0;
+			for (int i = 1; i < shardSizes.length; i++) {
+				if (shardSizes[i] < shardSizes[shard]) {
+					shard = i;
+				}
+			}
+			groupShards[group] = shard;
+			shardSizes[shard] += groupSizes[group];
+		}
+		int[] shards = new int[groups.length];
+		for (int i = 0; i < groups.length; i++) {
+			shards[i] = groupShards[groups[i]];
+		}
+		return shards;
+	}
+
+	private static int findRoot(int[] parents, int i) {
+		while (parents[i] != i) {
+			parents[i] = parents[parents[i]];
+			i = parents[i];
+		}
+		return i;
+	}
+
+	/**
+	 * The persisted state of the index.
+	 */
+	private static class State {
+		String version;
+		String configuration;
+		Map<String, Entry> entries;
+	}
+
+	/**
+	 * Files are persisted as their paths.
+	 */
+	private static class FileAdapter implements JsonSerializer<File>, JsonDeserializer<File> {
+		@Override
+		public JsonElement serialize(File file, java.lang.reflect.Type type, JsonSerializationContext context) {
+			return new JsonPrimitive(file.getPath());
+		}
+
+		@Override
+		public File deserialize(JsonElement json, java.lang.reflect.Type type, JsonDeserializationContext context) {
+			return new File(json.getAsString());
+		}
+	}
+
+	private File indexFile;
+
+	private boolean loaded;
+
+	private Map<String, Entry> entries = new HashMap<>();
+
+	private Map<String, Entry> currentEntries;
+
+	private String configuration;
+
+	/**
+	 * Creates an index, which is only kept in memory.
+	 */
+	public DependencyIndex() {
+		this(null);
+	}
+
+	/**
+	 * Creates an index.
+	 *
+	 * @param indexFile
+	 *            the file where the index is persisted (null to keep it in
+	 *            memory only)
+	 */
+	public DependencyIndex(File indexFile) {
+		this.indexFile = indexFile;
+		loaded = indexFile == null;
+	}
+
+	private static Gson createGson() {
+		return new GsonBuilder().registerTypeHierarchyAdapter(File.class, new FileAdapter()).create();
+	}
+
+	private void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		if (indexFile.exists()) {
+			try {
+				State state = createGson().fromJson(FileUtils.readFileToString(indexFile, StandardCharsets.UTF_8), State.class);
+				if (state != null && state.entries != null && JSweetConfig.getVersionNumber().equals(state.version)) {
+					configuration = state.configuration;
+					entries = new HashMap<>(state.entries);
+				}
+			} catch (Exception e) {
+				logger.warn("cannot read dependency index " + indexFile + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private void save() {
+		if (indexFile == null) {
+			return;
+		}
+		State state = new State();
+		state.version = JSweetConfig.getVersionNumber();
+		state.configuration = configuration;
+		state.entries = entries;
+		try {
+			FileUtils.write(indexFile, createGson().toJson(state), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			logger.warn("cannot write dependency index " + indexFile + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Clears this index, so that all the units will be considered as dirty on
+	 * the next transpilation.
+	 */
+	public void clear() {
+		entries.clear();
+		configuration = null;
+		if (indexFile != null) {
+			FileUtils.deleteQuietly(indexFile);
+		}
+	}
+
+	private static String getKey(JCCompilationUnit compilationUnit) {
+		return new File(compilationUnit.getSourceFile().getName()).getAbsolutePath();
+	}
+
+	private static String hash(CharSequence content) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-1").digest(content.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder();
+			for (byte b : hash) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static boolean isChanged(Entry previous, Entry current, SourceFile sourceFile) {
+		// modification dates are too coarse to detect all the changes
+		return previous == null || previous.hadErrors || previous.javaFileLastTranspiled != sourceFile.getJavaFile().lastModified()
+				|| previous.javaFileLength != current.javaFileLength || !current.javaFileHash.equals(previous.javaFileHash)
+				|| (previous.tsFile != null && !previous.tsFile.exists());
+	}
+
+	/**
+	 * Updates the dependencies of the given compilation units and calculates
+	 * the ones that need to be translated again.
+	 *
+	 * @param context
+	 *            the context, holding the contents of the compilation units
+	 * @param configuration
+	 *            a string representing the transpiler's configuration (all the
+	 *            units are dirty if it has changed since last time)
+	 * @param files
+	 *            the source files being transpiled
+	 * @param compilationUnits
+	 *            the attributed compilation units, in the same order as the
+	 *            source files
+	 * @return a dirty flag for each compilation unit
+	 */
+	public boolean[] update(JSweetContext context, String configuration, SourceFile[] files, List<JCCompilationUnit> compilationUnits) throws IOException {
+		load();
+		boolean[] dirty = new boolean[compilationUnits.size()];
+		currentEntries = new HashMap<>();
+		Entry[] newEntries = new Entry[dirty.length];
+		for (int i = 0; i < dirty.length; i++) {
+			DependencyScanner scanner = new DependencyScanner();
+			scanner.scan(compilationUnits.get(i));
+			newEntries[i] = scanner.entry;
+			newEntries[i].referencedTypes.removeAll(newEntries[i].declaredTypes);
+			newEntries[i].javaFileLength = files[i].getJavaFile().length();
+			newEntries[i].javaFileHash = hash(context.getSourceContent(compilationUnits.get(i)));
+		}
+		if (!configuration.equals(this.configuration)) {
+			logger.info("configuration changed: full transpilation");
+			this.configuration = configuration;
+			entries.clear();
+		}
+
+		Set<String> dirtyTypes = new HashSet<>();
+		Set<String> remainingKeys = new HashSet<>(entries.keySet());
+		for (int i = 0; i < dirty.length; i++) {
+			String key = getKey(compilationUnits.get(i));
+			remainingKeys.remove(key);
+			Entry previous = entries.get(key);
+			if (isChanged(previous, newEntries[i], files[i])) {
+				dirty[i] = true;
+				dirtyTypes.addAll(newEntries[i].declaredTypes);
+				if (previous != null) {
+					dirtyTypes.addAll(previous.declaredTypes);
+				}
+			}
+		}
+		// types of removed units
+		for (String key : remainingKeys) {
+			dirtyTypes.addAll(entries.get(key).declaredTypes);
+			entries.remove(key);
+		}
+
+		// propagates to the units depending on dirty types, until fix point
+		boolean changed = !dirtyTypes.isEmpty();
+		while (changed) {
+			changed = false;
+			for (int i = 0; i < dirty.length; i++) {
+				Entry entry = newEntries[i];
+				if (!dirty[i]) {
+					for (String type : entry.referencedTypes) {
+						if (dirtyTypes.contains(type)) {
+							dirty[i] = true;
+							changed = true;
+							break;
+						}
+					}
+				}
+				for (Map.Entry<String, Set<String>> superTypes : entry.superTypes.entrySet()) {
+					if (!dirtyTypes.contains(superTypes.getKey())) {
+						for (String superType : superTypes.getValue()) {
+							if (dirtyTypes.contains(superType)) {
+								dirtyTypes.add(superTypes.getKey());
+								dirty[i] = true;
+								changed = true;
+								break;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		int dirtyCount = 0;
+		for (int i = 0; i < dirty.length; i++) {
+			String key = getKey(compilationUnits.get(i));
+			if (dirty[i]) {
+				dirtyCount++;
+				currentEntries.put(key, newEntries[i]);
+			} else {
+				// keeps the translation results of clean units
+				Entry previous = entries.get(key);
+				newEntries[i].javaFileLastTranspiled = previous.javaFileLastTranspiled;
+				newEntries[i].tsFile = previous.tsFile;
+				newEntries[i].sourceMap = previous.sourceMap;
+				newEntries[i].javaSourceDir = previous.javaSourceDir;
+				newEntries[i].javaSourceDirRelativeFile = previous.javaSourceDirRelativeFile;
+				newEntries[i].entryFile = previous.entryFile;
+				newEntries[i].rootPackage = previous.rootPackage;
+				newEntries[i].addedGlobalImports = previous.addedGlobalImports;
+				newEntries[i].skippedGlobalImports = previous.skippedGlobalImports;
+				newEntries[i].addedGlobalsMappings = previous.addedGlobalsMappings;
+				newEntries[i].globalsMappingString = previous.globalsMappingString;
+				currentEntries.put(key, newEntries[i]);
+			}
+		}
+		logger.info("incremental transpilation: " + dirtyCount + "/" + dirty.length + " dirty compilation unit(s)");
+		return dirty;
+	}
+
+	/**
+	 * Tells if the given clean compilation unit can be restored in the current
+	 * context, i.e. if the translation of the previous units did not change
+	 * the global state its translation depends on.
+	 */
+	boolean isRestorable(JSweetContext context, JCCompilationUnit compilationUnit) {
+		Entry entry = currentEntries.get(getKey(compilationUnit));
+		if (entry == null) {
+			return false;
+		}
+		if (!context.globalImports.containsAll(entry.skippedGlobalImports)) {
+			return false;
+		}
+		for (String globalImport : entry.addedGlobalImports) {
+			if (context.globalImports.contains(globalImport)) {
+				return false;
+			}
+		}
+		if (entry.tsFile != null) {
+			Map<String, String> globalsMapping = new HashMap<>(context.getGlobalsMapping());
+			globalsMapping.putAll(entry.addedGlobalsMappings);
+			if (!JSweetContext.toGlobalsMappingString(globalsMapping).equals(entry.globalsMappingString)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Restores the translation results of a clean compilation unit in the
+	 * given source file and replays the translation side effects on the
+	 * context.
+	 */
+	void restore(JSweetContext context, SourceFile sourceFile, JCCompilationUnit compilationUnit) {
+		Entry entry = currentEntries.get(getKey(compilationUnit));
+		sourceFile.tsFile = entry.tsFile;
+		sourceFile.sourceMap = entry.sourceMap;
+		sourceFile.javaSourceDir = entry.javaSourceDir;
+		sourceFile.javaSourceDirRelativeFile = entry.javaSourceDirRelativeFile;
+		sourceFile.javaFileLastTranspiled = entry.javaFileLastTranspiled;
+		if (entry.entryFile) {
+			context.entryFiles.add(new File(compilationUnit.sourcefile.getName()));
+		}
+		if (entry.rootPackage) {
+			context.rootPackages.add(Util.getFirstEnclosingRootPackage(compilationUnit.packge));
+		}
+		if (entry.rootPackage && Util.getTopLevelPackage(compilationUnit.packge) != null) {
+			context.topLevelPackageNames.add(Util.getTopLevelPackage(compilationUnit.packge).getQualifiedName().toString());
+		}
+		context.globalImports.addAll(entry.addedGlobalImports);
+		for (Map.Entry<String, String> e : entry.addedGlobalsMappings.entrySet()) {
+			context.addGlobalsMapping(e.getKey(), e.getValue());
+		}
+	}
+
+	/**
+	 * Records the translation results of a (dirty) compilation unit, once
+	 * translated and once its translation side effects are applied to the
+	 * context.
+	 *
+	 * @param context
+	 *            the context after translation
+	 * @param sourceFile
+	 *            the source file, holding the translation results
+	 * @param compilationUnit
+	 *            the translated compilation unit
+	 * @param state
+	 *            the side effects of the translation
+	 * @param hadErrors
+	 *            true if errors were reported during the translation
+	 */
+	void record(JSweetContext context, SourceFile sourceFile, JCCompilationUnit compilationUnit, UnitTranslationState state, boolean hadErrors) {
+		String key = getKey(compilationUnit);
+		Entry entry = currentEntries.get(key);
+		if (entry == null) {
+			return;
+		}
+		entry.hadErrors = hadErrors;
+		entry.javaFileLastTranspiled = sourceFile.getJavaFile().lastModified();
+		entry.tsFile = sourceFile.tsFile;
+		entry.sourceMap = sourceFile.sourceMap;
+		entry.javaSourceDir = sourceFile.javaSourceDir;
+		entry.javaSourceDirRelativeFile = sourceFile.javaSourceDirRelativeFile;
+		entry.entryFile = !state.entryFiles.isEmpty();
+		entry.rootPackage = context.rootPackages.contains(Util.getFirstEnclosingRootPackage(compilationUnit.packge));
+		entry.addedGlobalImports = new HashSet<>(state.globalImports);
+		// conservatively assumes that all the imported names already imported
+		// at the global level were skipped
+		entry.skippedGlobalImports = new HashSet<>();
+		if (!context.useModules && Util.getTopLevelPackage(compilationUnit.packge) == null) {
+			for (JCImport importDecl : compilationUnit.getImports()) {
+				String qualId = importDecl.getQualifiedIdentifier().toString();
+				String name = qualId.substring(qualId.lastIndexOf('.') + 1);
+				if (context.globalImports.contains(name) && !state.globalImports.contains(name)) {
+					entry.skippedGlobalImports.add(name);
+				}
+			}
+		}
+		entry.addedGlobalsMappings = new LinkedHashMap<>(state.globalsMapping);
+		entry.globalsMappingString = context.getGlobalsMappingString();
+	}
+
+	/**
+	 * Commits the current state of the index, so that it is used as a
+	 * reference for the next transpilation (and persists it if an index file
+	 * is set).
+	 */
+	void commit() {
+		if (currentEntries != null) {
+			entries = currentEntries;
+			currentEntries = null;
+			save();
+		}
+	}
+
+}
@@ -28,14 +28,20 @@ import org.jsweet.transpiler.util.Util;
 
 import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Symbol.VarSymbol;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCBlock;
 import com.sun.tools.javac.tree.JCTree.JCClassDecl;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCFieldAccess;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
 import com.sun.tools.javac.tree.JCTree.JCLiteral;
 import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
+import com.sun.tools.javac.tree.JCTree.JCStatement;
+import com.sun.tools.javac.tree.JCTree.JCUnary;
 import com.sun.tools.javac.tree.JCTree.JCVariableDecl;
 import com.sun.tools.javac.tree.JCTree.JCWildcard;
+import com.sun.tools.javac.tree.TreeScanner;
 
 /**
  * This AST scanner performs global analysis and fills up the context with
@@ -65,7 +71,7 @@ public class GlobalBeforeTranslationScanner extends AbstractTreeScanner {
 		for (JCTree def : classdecl.defs) {
 			if (def instanceof JCVariableDecl) {
 				JCVariableDecl var = (JCVariableDecl) def;
-				MethodSymbol m = Util.findMethodDeclarationInType(context.types, classdecl.sym, var.name.toString(), null);
+				MethodSymbol m = context.getMemberIndex().findMethodDeclarationInType(context.types, classdecl.sym, var.name.toString(), null);
 				if (m != null) {
 					context.addFieldNameMapping(var.sym, JSweetConfig.FIELD_METHOD_CLASH_RESOLVER_PREFIX + var.name.toString());
 				}
@@ -116,6 +122,59 @@ public class GlobalBeforeTranslationScanner extends AbstractTreeScanner {
 			}
 			context.lazyInitializedStatics.add(var.sym);
 		}
+		if (!context.lazyInitializedStatics.isEmpty()) {
+			StaticInitializationPreambleScanner preambleScanner = new StaticInitializationPreambleScanner();
+			for (JCCompilationUnit compilationUnit : compilationUnits) {
+				preambleScanner.scan(compilationUnit);
+			}
+		}
+	}
+
+	/**
+	 * Marks the statements that increment or decrement lazy initialized static
+	 * fields, so that the translator initializes these fields before printing
+	 * the statements (see
+	 * {@link JSweetContext#getStaticInitializationPreamble(JCStatement)}).
+	 */
+	private class StaticInitializationPreambleScanner extends TreeScanner {
+		JCStatement statement;
+
+		@Override
+		public void scan(JCTree tree) {
+			if (tree instanceof JCStatement) {
+				JCStatement parent = statement;
+				statement = (JCStatement) tree;
+				try {
+					super.scan(tree);
+				} finally {
+					statement = parent;
+				}
+			} else {
+				super.scan(tree);
+			}
+		}
+
+		@Override
+		public void visitUnary(JCUnary unary) {
+			switch (unary.getTag()) {
+			case POSTDEC:
+			case POSTINC:
+			case PREDEC:
+			case PREINC:
+				Symbol symbol = null;
+				if (unary.arg instanceof JCIdent) {
+					symbol = ((JCIdent) unary.arg).sym;
+				} else if (unary.arg instanceof JCFieldAccess) {
+					symbol = ((JCFieldAccess) unary.arg).sym;
+				}
+				if (statement != null && context.lazyInitializedStatics.contains(symbol)) {
+					context.addStaticInitializationPreamble(statement, (VarSymbol) symbol);
+				}
+				break;
+			default:
+			}
+			super.visitUnary(unary);
+		}
 	}
 
 }
@@ -17,18 +17,28 @@
 package org.jsweet.transpiler;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.tools.JavaFileObject;
 
 import org.jsweet.transpiler.OverloadScanner.Overload;
 import org.jsweet.transpiler.util.DirectedGraph;
+import org.jsweet.transpiler.util.ErasureCache;
+import org.jsweet.transpiler.util.MemberIndex;
 
 import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Symbol.ClassSymbol;
@@ -41,6 +51,7 @@ import com.sun.tools.javac.code.Types;
 import com.sun.tools.javac.tree.JCTree.JCClassDecl;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
+import com.sun.tools.javac.tree.JCTree.JCStatement;
 import com.sun.tools.javac.tree.JCTree.JCWildcard;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Names;
@@ -149,12 +160,16 @@ public class JSweetContext extends Context {
 	public Symtab symtab;
 
 	/**
-	 * The Java compiler names for fast access.
+	 * The Java compiler names for fast access (see {@link #types} for thread
+	 * safety).
 	 */
 	public Names names;
 
 	/**
-	 * The Java compiler types for fast access.
+	 * The Java compiler types for fast access. The javac types (which hold
+	 * caches) and names are not thread-safe: since the compilation units may
+	 * be translated in parallel, they shall be accessed while synchronized on
+	 * this object.
 	 */
 	public Types types;
 
@@ -199,13 +214,105 @@ public class JSweetContext extends Context {
 		return (count = staticInitializerCounts.get(clazz)) == null ? 0 : count;
 	}
 
+	private MemberIndex memberIndex = new MemberIndex();
+
+	/**
+	 * Gets the index of the members of the types, to be used for the member
+	 * lookups once the types are attributed.
+	 */
+	public MemberIndex getMemberIndex() {
+		return memberIndex;
+	}
+
+	private ErasureCache erasureCache;
+
+	/**
+	 * Gets the cache of the type erasures and assignability checks used by the
+	 * overload analysis and printing.
+	 */
+	public synchronized ErasureCache getErasureCache() {
+		if (erasureCache == null) {
+			erasureCache = new ErasureCache(types);
+		}
+		return erasureCache;
+	}
+
+	private Map<JavaFileObject, CharSequence> sourceContents = new HashMap<>();
+
+	/**
+	 * Registers the content of the source file of the given compilation unit,
+	 * as loaded by javac when parsing it, so that the translation does not
+	 * need to read the file again.
+	 */
+	public void registerSourceContent(JCCompilationUnit compilationUnit) throws IOException {
+		sourceContents.put(compilationUnit.sourcefile, compilationUnit.sourcefile.getCharContent(false));
+	}
+
+	/**
+	 * Gets the content of the source file of the given compilation unit (the
+	 * content is taken from javac's cache if it was not registered with
+	 * {@link #registerSourceContent(JCCompilationUnit)}).
+	 */
+	public CharSequence getSourceContent(JCCompilationUnit compilationUnit) throws IOException {
+		CharSequence content = sourceContents.get(compilationUnit.sourcefile);
+		return content != null ? content : compilationUnit.sourcefile.getCharContent(false);
+	}
+
+	/**
+	 * Gets the number of lines of the source file of the given compilation
+	 * unit.
+	 */
+	public int getSourceLineCount(JCCompilationUnit compilationUnit) throws IOException {
+		return compilationUnit.lineMap.getLineNumber(getSourceContent(compilationUnit).length());
+	}
+
+	/**
+	 * Gets a line of the source file of the given compilation unit, without
+	 * its line terminator.
+	 * 
+	 * @param line
+	 *            the line number, starting at 1
+	 * @return the line, or null if the line does not exist
+	 */
+	public String getSourceLine(JCCompilationUnit compilationUnit, int line) throws IOException {
+		CharSequence content = getSourceContent(compilationUnit);
+		if (line < 1 || line > compilationUnit.lineMap.getLineNumber(content.length())) {
+			return null;
+		}
+		int start = compilationUnit.lineMap.getStartPosition(line);
+		int end = start;
+		while (end < content.length() && content.charAt(end) != '\n' && content.charAt(end) != '\r') {
+			end++;
+		}
+		return content.subSequence(start, end).toString();
+	}
+
+	private Map<JCStatement, Set<VarSymbol>> staticInitializationPreambles = new HashMap<>();
+
+	/**
+	 * Registers a lazy initialized static field that must be initialized
+	 * before the given statement (typically because the statement increments
+	 * or decrements the field).
+	 */
+	public void addStaticInitializationPreamble(JCStatement statement, VarSymbol field) {
+		staticInitializationPreambles.computeIfAbsent(statement, s -> new LinkedHashSet<>()).add(field);
+	}
+
+	/**
+	 * Gets the lazy initialized static fields that must be initialized before
+	 * the given statement (null if none).
+	 */
+	public Set<VarSymbol> getStaticInitializationPreamble(JCStatement statement) {
+		return staticInitializationPreambles.get(statement);
+	}
+
 	/**
 	 * Register a module that is used by the transpiled program.
 	 * 
 	 * @param moduleName
 	 *            the module being used
 	 */
-	public void registerUsedModule(String moduleName) {
+	public synchronized void registerUsedModule(String moduleName) {
 		if (!usedModules.contains(moduleName)) {
 			usedModules.add(moduleName);
 		}
@@ -218,8 +325,8 @@ public class JSweetContext extends Context {
 		return usedModules;
 	}
 
-	private Map<String, Set<String>> importedNamesInModules = new HashMap<>();
-	private Map<String, Map<Symbol, String>> importedElementsInModules = new HashMap<>();
+	private Map<String, Set<String>> importedNamesInModules = new ConcurrentHashMap<>();
+	private Map<String, Map<Symbol, String>> importedElementsInModules = new ConcurrentHashMap<>();
 
 	/**
 	 * Register a name that is imported by the given package of the transpiled
@@ -237,20 +344,12 @@ public class JSweetContext extends Context {
 	 *            the target name being imported
 	 */
 	public void registerImportedName(String moduleName, Symbol sourceElement, String targetName) {
-		Set<String> importedNames = importedNamesInModules.get(moduleName);
-		if (importedNames == null) {
-			importedNames = new HashSet<>();
-			importedNamesInModules.put(moduleName, importedNames);
-		}
+		Set<String> importedNames = getImportedNames(moduleName);
 		if (!importedNames.contains(targetName)) {
 			importedNames.add(targetName);
 		}
 		if (sourceElement != null) {
-			Map<Symbol, String> importedElements = importedElementsInModules.get(moduleName);
-			if (importedElements == null) {
-				importedElements = new HashMap<>();
-				importedElementsInModules.put(moduleName, importedElements);
-			}
+			Map<Symbol, String> importedElements = getImportedElements(moduleName);
 			if (!importedElements.containsKey(sourceElement)) {
 				importedElements.put(sourceElement, targetName);
 			}
@@ -262,12 +361,7 @@ public class JSweetContext extends Context {
 	 * The list of names imported by the given module of the transpiled program.
 	 */
 	public Set<String> getImportedNames(String moduleName) {
-		Set<String> importedNames = importedNamesInModules.get(moduleName);
-		if (importedNames == null) {
-			importedNames = new HashSet<>();
-			importedNamesInModules.put(moduleName, importedNames);
-		}
-		return importedNames;
+		return importedNamesInModules.computeIfAbsent(moduleName, name -> new HashSet<>());
 	}
 
 	/**
@@ -275,12 +369,7 @@ public class JSweetContext extends Context {
 	 * program.
 	 */
 	public Map<Symbol, String> getImportedElements(String moduleName) {
-		Map<Symbol, String> importedElements = importedElementsInModules.get(moduleName);
-		if (importedElements == null) {
-			importedElements = new HashMap<>();
-			importedElementsInModules.put(moduleName, importedElements);
-		}
-		return importedElements;
+		return importedElementsInModules.computeIfAbsent(moduleName, name -> new HashMap<>());
 	}
 
 	/**
@@ -298,6 +387,18 @@ public class JSweetContext extends Context {
 	 */
 	public List<File> entryFiles = new ArrayList<>();
 
+	/**
+	 * Registers a source file containing a main method.
+	 */
+	public void addEntryFile(File entryFile) {
+		UnitTranslationState state = unitTranslationState.get();
+		if (state != null) {
+			state.entryFiles.add(entryFile);
+		} else {
+			entryFiles.add(entryFile);
+		}
+	}
+
 	/**
 	 * A graph containing the module dependencies when using modules (empty
 	 * otherwise).
@@ -309,14 +410,14 @@ public class JSweetContext extends Context {
 	 * package or in a package annotated with the {@link jsweet.lang.Root}
 	 * annotation).
 	 */
-	public Set<String> topLevelPackageNames = new HashSet<>();
+	public Set<String> topLevelPackageNames = Collections.synchronizedSet(new HashSet<>());
 
 	/**
 	 * Store root packages (i.e. packages contained in the default package or in
 	 * a package annotated with the {@link jsweet.lang.Root} annotation,
 	 * including null, i.e. default package).
 	 */
-	public HashSet<PackageSymbol> rootPackages = new HashSet<>();
+	public Set<PackageSymbol> rootPackages = Collections.synchronizedSet(new HashSet<>());
 
 	/**
 	 * A flag to keep track of wether a multiple root packages problem was
@@ -330,10 +431,36 @@ public class JSweetContext extends Context {
 	public Set<String> globalImports = new HashSet<>();
 
 	/**
-	 * Imported top packages (used to avoid clashes with local variables when
-	 * bundle is on).
+	 * Registers a globally imported name.
+	 * 
+	 * <p>
+	 * Since the first unit importing a name in the global namespace is the only
+	 * one to actually import it, the units that import names at the global
+	 * level shall be translated in order.
+	 * 
+	 * @return true if the name was not already globally imported
 	 */
-	public Set<String> importedTopPackages = new HashSet<>();
+	public boolean registerGlobalImport(String name) {
+		if (!globalImports.add(name)) {
+			return false;
+		}
+		UnitTranslationState state = unitTranslationState.get();
+		if (state != null) {
+			state.globalImports.add(name);
+		}
+		return true;
+	}
+
+	private ThreadLocal<Set<String>> importedTopPackages = ThreadLocal.withInitial(HashSet::new);
+
+	/**
+	 * Gets the imported top packages of the unit being translated by the
+	 * current thread (used to avoid clashes with local variables when bundle
+	 * is on).
+	 */
+	public Set<String> getImportedTopPackages() {
+		return importedTopPackages.get();
+	}
 
 	/**
 	 * A flag that indicates if the transpilation is in "strict" mode, which
@@ -341,19 +468,23 @@ public class JSweetContext extends Context {
 	 */
 	public boolean strictMode = false;
 
-	private List<String> footerStatements = new LinkedList<String>();
+	private ThreadLocal<LinkedList<String>> topFooterStatements = ThreadLocal.withInitial(LinkedList::new);
+
+	private ThreadLocal<List<String>> footerStatements = ThreadLocal.withInitial(LinkedList::new);
 
 	/**
-	 * Gets and clears the footer statements.
+	 * Gets and clears the footer statements (of the current thread).
 	 */
 	public String poolFooterStatements() {
 		StringBuilder sb = new StringBuilder();
-		for (String footerStatement : footerStatements) {
-			sb.append("\n");
-			sb.append(footerStatement);
-			sb.append("\n");
+		for (List<String> footerStatements : Arrays.asList(this.topFooterStatements.get(), this.footerStatements.get())) {
+			for (String footerStatement : footerStatements) {
+				sb.append("\n");
+				sb.append(footerStatement);
+				sb.append("\n");
+			}
+			footerStatements.clear();
 		}
-		footerStatements.clear();
 		return sb.toString();
 	}
 
@@ -361,14 +492,14 @@ public class JSweetContext extends Context {
 	 * Adds a footer statement.
 	 */
 	public void addFooterStatement(String footerStatement) {
-		footerStatements.add(footerStatement);
+		footerStatements.get().add(footerStatement);
 	}
 
 	/**
 	 * Adds a footer statement at the first position.
 	 */
 	public void addTopFooterStatement(String footerStatement) {
-		footerStatements.add(0, footerStatement);
+		topFooterStatements.get().addFirst(footerStatement);
 	}
 
 	private Map<String, String> globalsMapping = new HashMap<>();
@@ -377,13 +508,32 @@ public class JSweetContext extends Context {
 	 * Adds a globals mapping.
 	 */
 	public void addGlobalsMapping(String from, String to) {
-		globalsMapping.put(from, to);
+		UnitTranslationState state = unitTranslationState.get();
+		if (state != null) {
+			state.globalsMapping.put(from, to);
+		} else {
+			globalsMapping.put(from, to);
+		}
+	}
+
+	/**
+	 * Gets the current globals mapping (read-only).
+	 */
+	public Map<String, String> getGlobalsMapping() {
+		return Collections.unmodifiableMap(globalsMapping);
 	}
 
 	/**
 	 * Returns the TypeScript string for globals mapping.
 	 */
 	public String getGlobalsMappingString() {
+		return toGlobalsMappingString(globalsMapping);
+	}
+
+	/**
+	 * Returns the TypeScript string for the given globals mapping.
+	 */
+	public static String toGlobalsMappingString(Map<String, String> globalsMapping) {
 		StringBuilder b = new StringBuilder();
 		for (Map.Entry<String, String> e : globalsMapping.entrySet()) {
 			b.append("var " + e.getValue() + " = " + e.getKey() + ";\n");
@@ -391,6 +541,78 @@ public class JSweetContext extends Context {
 		return b.toString();
 	}
 
+	/**
+	 * Holds the side effects of the translation of a compilation unit on the
+	 * global state of the context, which depend on the order of the
+	 * compilation units. When the units are translated concurrently, these
+	 * side effects are collected for each unit and applied with
+	 * {@link JSweetContext#applyUnitTranslation(UnitTranslationState)} in the
+	 * compilation units order.
+	 */
+	public static class UnitTranslationState {
+		/**
+		 * The source files containing a main method.
+		 */
+		public final List<File> entryFiles = new ArrayList<>();
+		/**
+		 * The globals mapping added by the unit.
+		 */
+		public final Map<String, String> globalsMapping = new LinkedHashMap<>();
+		/**
+		 * The names imported in the global namespace by the unit (already
+		 * applied to the context).
+		 */
+		public final Set<String> globalImports = new HashSet<>();
+		/**
+		 * The footer statements added at the first position by the unit and
+		 * not pooled yet.
+		 */
+		public final List<String> topFooterStatements = new ArrayList<>();
+		/**
+		 * The footer statements added by the unit and not pooled yet.
+		 */
+		public final List<String> footerStatements = new ArrayList<>();
+	}
+
+	private ThreadLocal<UnitTranslationState> unitTranslationState = new ThreadLocal<>();
+
+	/**
+	 * Starts collecting the side effects of the translation of a compilation
+	 * unit for the current thread.
+	 */
+	public void beginUnitTranslation() {
+		unitTranslationState.set(new UnitTranslationState());
+	}
+
+	/**
+	 * Stops collecting the side effects of the translation of a compilation
+	 * unit for the current thread. The footer statements that were not pooled
+	 * are moved to the returned state.
+	 * 
+	 * @return the collected side effects
+	 */
+	public UnitTranslationState endUnitTranslation() {
+		UnitTranslationState state = unitTranslationState.get();
+		unitTranslationState.remove();
+		state.topFooterStatements.addAll(topFooterStatements.get());
+		state.footerStatements.addAll(footerStatements.get());
+		topFooterStatements.get().clear();
+		footerStatements.get().clear();
+		return state;
+	}
+
+	/**
+	 * Applies the side effects of the translation of a compilation unit to this
+	 * context (the unit's footer statements are added to the ones of the
+	 * current thread, as if the unit was translated by the current thread).
+	 */
+	public void applyUnitTranslation(UnitTranslationState state) {
+		entryFiles.addAll(state.entryFiles);
+		globalsMapping.putAll(state.globalsMapping);
+		topFooterStatements.get().addAll(0, state.topFooterStatements);
+		footerStatements.get().addAll(state.footerStatements);
+	}
+
 	private Map<TypeSymbol, Set<Entry<JCClassDecl, JCMethodDecl>>> defaultMethods = new HashMap<>();
 	private Map<JCMethodDecl, JCCompilationUnit> defaultMethodsCompilationUnits = new HashMap<>();
 
@@ -499,4 +721,43 @@ public class JSweetContext extends Context {
 		return wildcards.get(holder);
 	}
 
+	/**
+	 * Clears the state built by a transpilation, so that this context can be
+	 * reused by the next one. The options, the strict mode flag and the Java
+	 * compiler components registered in this context are kept.
+	 */
+	public void reset() {
+		overloads = new HashMap<>();
+		staticOverloads = new HashMap<>();
+		classesWithWrongConstructorOverload = new HashSet<>();
+		useModules = false;
+		sourceFiles = null;
+		usedModules = new ArrayList<>();
+		bundleMode = false;
+		lazyInitializedStatics = new HashSet<>();
+		staticInitializerCounts = new HashMap<>();
+		staticInitializationPreambles = new HashMap<>();
+		sourceContents = new HashMap<>();
+		memberIndex = new MemberIndex();
+		erasureCache = null;
+		importedNamesInModules = new ConcurrentHashMap<>();
+		importedElementsInModules = new ConcurrentHashMap<>();
+		entryFiles = new ArrayList<>();
+		packageDependencies = new DirectedGraph<>();
+		topLevelPackageNames = Collections.synchronizedSet(new HashSet<>());
+		rootPackages = Collections.synchronizedSet(new HashSet<>());
+		reportedMultipleRootPackages = false;
+		globalImports = new HashSet<>();
+		importedTopPackages = ThreadLocal.withInitial(HashSet::new);
+		topFooterStatements = ThreadLocal.withInitial(LinkedList::new);
+		footerStatements = ThreadLocal.withInitial(LinkedList::new);
+		globalsMapping = new HashMap<>();
+		unitTranslationState = new ThreadLocal<>();
+		defaultMethods = new HashMap<>();
+		defaultMethodsCompilationUnits = new HashMap<>();
+		fieldNameMapping = new HashMap<>();
+		wildcardNames = new HashMap<>();
+		wildcards = new HashMap<>();
+	}
+
 }
\ No newline at end of file
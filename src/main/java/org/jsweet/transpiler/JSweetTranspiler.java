@@ -21,23 +21,33 @@ import static java.util.stream.Collectors.toList;
 import static org.jsweet.transpiler.util.Util.toJavaFileObjects;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.reflect.Field;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -51,18 +61,27 @@ import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.jsweet.JSweetConfig;
+import org.jsweet.transpiler.JSweetContext.UnitTranslationState;
+import org.jsweet.transpiler.OverloadScanner.Overload;
 import org.jsweet.transpiler.candies.CandiesProcessor;
 import org.jsweet.transpiler.typescript.Java2TypeScriptTranslator;
 import org.jsweet.transpiler.util.AbstractTreePrinter;
-import org.jsweet.transpiler.util.DirectedGraph;
-import org.jsweet.transpiler.util.DirectedGraph.Node;
 import org.jsweet.transpiler.util.ErrorCountTranspilationHandler;
 import org.jsweet.transpiler.util.EvaluationResult;
+import org.jsweet.transpiler.util.JavaCompilationEnvironment;
+import org.jsweet.transpiler.util.OutputFileWriter;
 import org.jsweet.transpiler.util.Position;
 import org.jsweet.transpiler.util.ProcessUtil;
+import org.jsweet.transpiler.util.SourceMap;
+import org.jsweet.transpiler.util.SourceMapV3;
+import org.jsweet.transpiler.util.TscWorker;
 import org.jsweet.transpiler.util.Util;
 
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.CompletionFailure;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.file.JavacFileManager;
 import com.sun.tools.javac.main.JavaCompiler;
 import com.sun.tools.javac.main.Option;
@@ -136,6 +155,7 @@ public class JSweetTranspiler implements JSweetOptions {
 	private Log log;
 	private CandiesProcessor candiesProcessor;
 	private boolean preserveSourceLineNumbers = false;
+	private boolean generateSourceMaps = false;
 	private File workingDir;
 	private File tsOutputDir;
 	private File jsOutputDir;
@@ -159,6 +179,22 @@ public class JSweetTranspiler implements JSweetOptions {
 	private boolean supportSaticLazyInitialization = true;
 	private boolean generateDefinitions = false;
 	private ArrayList<File> jsLibFiles = new ArrayList<>();
+	private boolean incremental = false;
+	private boolean parallelEmission = false;
+	private DependencyIndex dependencyIndex;
+	private boolean reuseCompilationEnvironment = false;
+	private boolean pipelinedCompilation = false;
+	private TscPipeline tscPipeline;
+	private TscWorker tscWorker;
+	private int tscShardCount = 1;
+	private OutputFileWriter outputFileWriter;
+	private String[] lastTscArguments;
+	private JavaCompilationEnvironment compilationEnvironment;
+	private TranspilationHandler javacTranspilationHandler;
+	private TranspilationMetrics metrics = new TranspilationMetrics();
+	private TranspilationMetrics lastMetrics;
+	private boolean lowMemory = false;
+	private Set<JCMethodDecl> retainedMethodDecls = new HashSet<>();
 
 	@Override
 	public String toString() {
@@ -169,7 +205,10 @@ public class JSweetTranspiler implements JSweetOptions {
 				+ ignoreJavaFileNameError + "\ngenerateDeclarations=" + generateDeclarations + "\ndeclarationsOutputDir=" + declarationsOutputDir
 				+ "\njdkAllowed=" + jdkAllowed + "\ninterfaceTracking=" + interfaceTracking + "\nsupportGetClass=" + supportGetClass
 				+ "\nsupportSaticLazyInitialization=" + supportSaticLazyInitialization + "\ngenerateDefinitions=" + generateDefinitions + "\njsLibFiles="
-				+ jsLibFiles;
+				+ jsLibFiles + "\nincremental=" + incremental + "\nparallelEmission=" + parallelEmission
+				+ "\nreuseCompilationEnvironment=" + reuseCompilationEnvironment + "\npipelinedCompilation=" + pipelinedCompilation
+				+ "\nuseTscWorker=" + (tscWorker != null) + "\ntscShardCount=" + tscShardCount
+				+ "\nskipUnchangedOutputs=" + (outputFileWriter != null);
 	}
 
 	/**
@@ -218,6 +257,7 @@ public class JSweetTranspiler implements JSweetOptions {
 	 */
 	public JSweetTranspiler(File workingDir, File tsOutputDir, File jsOutputDir, File extractedCandiesJavascriptDir, String classPath) {
 		this.workingDir = workingDir.getAbsoluteFile();
+		this.dependencyIndex = new DependencyIndex(new File(this.workingDir, "dependency-index.json"));
 		this.extractedCandyJavascriptDir = extractedCandiesJavascriptDir;
 		try {
 			tsOutputDir.mkdirs();
@@ -312,6 +352,13 @@ public class JSweetTranspiler implements JSweetOptions {
 	}
 
 	private void initJavac(final TranspilationHandler transpilationHandler) {
+		javacTranspilationHandler = transpilationHandler;
+		if (reuseCompilationEnvironment && compilationEnvironment != null && compilationEnvironment.isReusableFor(classPath, encoding)
+				&& compilationEnvironment.newRound()) {
+			logger.info("reusing compilation environment: " + compilationEnvironment.getReusedClassSymbolCount() + " classpath symbols kept, "
+					+ compilationEnvironment.getInvalidatedClassSymbolCount() + " symbols invalidated");
+			return;
+		}
 		context = new JSweetContext(this);
 		options = Options.instance(context);
 		if (classPath != null) {
@@ -350,7 +397,7 @@ public class JSweetTranspiler implements JSweetOptions {
 			public String format(JCDiagnostic diagnostic, Locale locale) {
 				if (diagnostic.getKind() == Kind.ERROR) {
 					if (!(ignoreJavaFileNameError && "compiler.err.class.public.should.be.in.file".equals(diagnostic.getCode()))) {
-						transpilationHandler.report(JSweetProblem.INTERNAL_JAVA_ERROR, new SourcePosition(new File(diagnostic.getSource().getName()), null,
+						javacTranspilationHandler.report(JSweetProblem.INTERNAL_JAVA_ERROR, new SourcePosition(new File(diagnostic.getSource().getName()), null,
 								(int) diagnostic.getLineNumber(), (int) diagnostic.getColumnNumber()), diagnostic.getMessage(locale));
 					}
 				}
@@ -375,6 +422,7 @@ public class JSweetTranspiler implements JSweetOptions {
 				}
 			}
 		});
+		compilationEnvironment = JavaCompilationEnvironment.fromContext(context);
 	}
 
 	private boolean areAllTranspiled(SourceFile... sourceFiles) {
@@ -622,15 +670,42 @@ public class JSweetTranspiler implements JSweetOptions {
 
 	public List<JCCompilationUnit> setupCompiler(java.util.List<File> files, ErrorCountTranspilationHandler transpilationHandler) throws IOException {
 		initJavac(transpilationHandler);
-		List<JavaFileObject> fileObjects = toJavaFileObjects(fileManager, files);
 
-		logger.info("parsing: " + fileObjects);
-		List<JCCompilationUnit> compilationUnits = compiler.enterTrees(compiler.parseFiles(fileObjects));
+		logger.info("parsing: " + files);
+		metrics.startPhase(TranspilationMetrics.PHASE_PARSE);
+		List<JCCompilationUnit> compilationUnits;
+		try {
+			compilationUnits = compilationEnvironment.parseJavaFiles(files);
+			if (!lowMemory) {
+				// the contents are still in javac's cache at this point
+				for (JCCompilationUnit compilationUnit : compilationUnits) {
+					context.registerSourceContent(compilationUnit);
+				}
+			}
+		} finally {
+			metrics.endPhase(TranspilationMetrics.PHASE_PARSE);
+		}
+		metrics.startPhase(TranspilationMetrics.PHASE_ENTER_TREES);
+		try {
+			compilationUnits = compilationEnvironment.enterTrees(compilationUnits);
+		} finally {
+			metrics.endPhase(TranspilationMetrics.PHASE_ENTER_TREES);
+		}
 		if (transpilationHandler.getErrorCount() > 0) {
 			return null;
 		}
 		logger.info("attribution phase");
-		compiler.attribute(compiler.todo);
+		metrics.startPhase(TranspilationMetrics.PHASE_ATTRIBUTE);
+		try {
+			compiler.attribute(compiler.todo);
+		} finally {
+			metrics.endPhase(TranspilationMetrics.PHASE_ATTRIBUTE);
+		}
+		if (compilationEnvironment.getReuseCount() > 0) {
+			logger.info("classpath symbols completed during this round: " + compilationEnvironment.getCompletedClassSymbolCount());
+			metrics.increment(TranspilationMetrics.COUNTER_REUSED_CLASS_SYMBOLS, compilationEnvironment.getReusedClassSymbolCount());
+		}
+		metrics.increment(TranspilationMetrics.COUNTER_COMPLETED_CLASS_SYMBOLS, compilationEnvironment.getCompletedClassSymbolCount());
 
 		if (transpilationHandler.getErrorCount() > 0) {
 			return null;
@@ -676,114 +751,467 @@ public class JSweetTranspiler implements JSweetOptions {
 	 */
 	synchronized public void transpile(TranspilationHandler transpilationHandler, SourceFile... files) throws IOException {
 		transpilationStartTimestamp = System.currentTimeMillis();
+		metrics = new TranspilationMetrics();
+		metrics.startPhase(TranspilationMetrics.PHASE_INIT_NODE);
 		try {
 			initNode(transpilationHandler);
 		} catch (Exception e) {
 			logger.error(e.getMessage(), e);
 			return;
+		} finally {
+			metrics.endPhase(TranspilationMetrics.PHASE_INIT_NODE);
+		}
+		metrics.startPhase(TranspilationMetrics.PHASE_PROCESS_CANDIES);
+		try {
+			candiesProcessor.processCandies(transpilationHandler);
+		} finally {
+			metrics.endPhase(TranspilationMetrics.PHASE_PROCESS_CANDIES);
 		}
-		candiesProcessor.processCandies(transpilationHandler);
 		addTsDefDir(candiesProcessor.getCandiesTsdefsDir());
 		if (classPath != null && !ArrayUtils.contains(classPath.split(File.pathSeparator), candiesProcessor.getCandiesProcessedDir().getPath())) {
 			classPath = candiesProcessor.getCandiesProcessedDir() + File.pathSeparator + classPath;
 			logger.debug("updated classpath: " + classPath);
 		}
 
+		if (outputFileWriter != null) {
+			outputFileWriter.resetCounts();
+		}
 		ErrorCountTranspilationHandler errorHandler = new ErrorCountTranspilationHandler(transpilationHandler);
 		Collection<SourceFile> jsweetSources = asList(files).stream() //
 				.filter(source -> source.getJavaFile() != null).collect(toList());
-		java2ts(errorHandler, jsweetSources.toArray(new SourceFile[0]));
+		TscPipeline pipeline = null;
+		List<JCCompilationUnit> compilationUnits = null;
+		if (pipelinedCompilation && generateJsFiles && !isTscWatchMode() && (!bundle || isUsingModules()) && jsweetSources.size() == files.length) {
+			pipeline = tscPipeline = new TscPipeline(errorHandler);
+		}
+		try {
+			compilationUnits = java2ts(errorHandler, jsweetSources.toArray(new SourceFile[0]));
+		} finally {
+			tscPipeline = null;
+			if (pipeline != null) {
+				metrics.startPhase(TranspilationMetrics.PHASE_TSC);
+				try {
+					pipeline.finish();
+				} finally {
+					metrics.endPhase(TranspilationMetrics.PHASE_TSC);
+				}
+			}
+		}
 
-		if (errorHandler.getErrorCount() == 0 && generateJsFiles) {
-			Collection<SourceFile> tsSources = asList(files).stream() //
-					.filter(source -> source.getTsFile() != null).collect(toList());
-			ts2js(errorHandler, tsSources.toArray(new SourceFile[0]));
+		if (pipeline != null) {
+			if (pipeline.isComplete()) {
+				errorHandler.onCompleted(this, true, files);
+			}
+		} else if (errorHandler.getErrorCount() == 0 && generateJsFiles) {
+			SourceFile[] tsSources = asList(files).stream() //
+					.filter(source -> source.getTsFile() != null).toArray(SourceFile[]::new);
+			String[] tscArguments = outputFileWriter != null && !isTscWatchMode() ? getTscArguments(tsSources) : null;
+			if (tscArguments != null && isJsUpToDate(tsSources, tscArguments)) {
+				logger.info("generated files unchanged: skipping tsc");
+				metrics.increment(TranspilationMetrics.COUNTER_TSC_SKIPPED, 1);
+				onTsTranspilationCompleted(true, errorHandler, tsSources);
+			} else {
+				lastTscArguments = null;
+				metrics.startPhase(TranspilationMetrics.PHASE_TSC);
+				try {
+					if (tscShardCount > 1 && !lowMemory && !isTscWatchMode() && (!bundle || isUsingModules()) && compilationUnits != null
+							&& compilationUnits.size() == files.length) {
+						ts2jsSharded(errorHandler, files, compilationUnits);
+					} else {
+						ts2js(errorHandler, tsSources);
+					}
+				} finally {
+					metrics.endPhase(TranspilationMetrics.PHASE_TSC);
+				}
+				if (tscArguments != null && errorHandler.getErrorCount() == 0) {
+					lastTscArguments = tscArguments;
+				}
+			}
 		}
 
 		if (!generateJsFiles) {
 			transpilationHandler.onCompleted(this, !isTscWatchMode(), files);
 		}
 
+		if (outputFileWriter != null) {
+			outputFileWriter.save();
+			logger.info("generated files: " + outputFileWriter.getWrittenCount() + " written, " + outputFileWriter.getSkippedCount() + " unchanged");
+			metrics.increment(TranspilationMetrics.COUNTER_WRITTEN_FILES, outputFileWriter.getWrittenCount());
+			metrics.increment(TranspilationMetrics.COUNTER_SKIPPED_FILES, outputFileWriter.getSkippedCount());
+			metrics.increment(TranspilationMetrics.COUNTER_WRITTEN_BYTES, outputFileWriter.getWrittenByteCount());
+		}
+		metrics.end();
+		lastMetrics = metrics;
 		logger.info("transpilation process finished in " + (System.currentTimeMillis() - transpilationStartTimestamp) + " ms");
+		logger.debug(metrics);
+		transpilationHandler.onMetrics(this, metrics);
+	}
+
+	/**
+	 * Tells if tsc can be skipped because the given TypeScript files were not
+	 * written by the current transpilation, and were successfully compiled
+	 * with the same arguments by the previous transpilation.
+	 */
+	private boolean isJsUpToDate(SourceFile[] tsFiles, String[] tscArguments) {
+		if (outputFileWriter.getWrittenCount() > 0 || !Arrays.equals(tscArguments, lastTscArguments)) {
+			return false;
+		}
+		for (SourceFile sourceFile : tsFiles) {
+			File jsFile = getJsOutputFile(sourceFile);
+			if (!jsFile.exists() || jsFile.lastModified() < sourceFile.getTsFile().lastModified()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private File getJsOutputFile(SourceFile sourceFile) {
+		if (!sourceFile.getTsFile().getAbsolutePath().startsWith(tsOutputDir.getAbsolutePath())) {
+			throw new RuntimeException("ts directory isn't configured properly, please use setTsDir: " + sourceFile.getTsFile().getAbsolutePath() + " != "
+					+ tsOutputDir.getAbsolutePath());
+		}
+		String outputFileRelativePath = sourceFile.getTsFile().getAbsolutePath().substring(tsOutputDir.getAbsolutePath().length());
+		return new File(jsOutputDir == null ? tsOutputDir : jsOutputDir, Util.removeExtension(outputFileRelativePath) + ".js");
+	}
+
+	/**
+	 * Writes a generated file, unless it is unchanged and unchanged outputs
+	 * are skipped (see {@link #setSkipUnchangedOutputs(boolean)}).
+	 */
+	private void writeOutputFile(File file, String content) throws IOException {
+		metrics.startPhase(TranspilationMetrics.PHASE_WRITE);
+		try {
+			if (outputFileWriter != null) {
+				outputFileWriter.write(file, content);
+			} else {
+				FileUtils.writeStringToFile(file, content);
+				outputFileWritten(file);
+			}
+		} finally {
+			metrics.endPhase(TranspilationMetrics.PHASE_WRITE);
+		}
+	}
+
+	private void outputFileWritten(File file) {
+		metrics.increment(TranspilationMetrics.COUNTER_WRITTEN_FILES, 1);
+		metrics.increment(TranspilationMetrics.COUNTER_WRITTEN_BYTES, file.length());
 	}
 
-	private void java2ts(ErrorCountTranspilationHandler transpilationHandler, SourceFile[] files) throws IOException {
+	/**
+	 * Opens a writer to stream a generated file (see
+	 * {@link #closeOutputFile(Writer, File, boolean)}).
+	 */
+	private Writer openOutputFile(File file) throws IOException {
+		if (outputFileWriter != null) {
+			return outputFileWriter.open(file);
+		} else {
+			return Files.newBufferedWriter(file.toPath(), Charset.defaultCharset());
+		}
+	}
+
+	/**
+	 * Closes a writer opened with {@link #openOutputFile(File)}. An
+	 * uncompleted file is not kept.
+	 */
+	private void closeOutputFile(Writer out, File file, boolean completed) throws IOException {
+		if (completed) {
+			metrics.startPhase(TranspilationMetrics.PHASE_WRITE);
+			try {
+				out.close();
+			} finally {
+				metrics.endPhase(TranspilationMetrics.PHASE_WRITE);
+			}
+			if (outputFileWriter == null) {
+				outputFileWritten(file);
+			}
+		} else if (out instanceof OutputFileWriter.Output) {
+			((OutputFileWriter.Output) out).discard();
+		} else {
+			out.close();
+			file.delete();
+		}
+	}
+
+	private List<JCCompilationUnit> java2ts(ErrorCountTranspilationHandler transpilationHandler, SourceFile[] files) throws IOException {
 		List<JCCompilationUnit> compilationUnits = setupCompiler(Arrays.asList(SourceFile.toFiles(files)), transpilationHandler);
 		if (compilationUnits == null) {
-			return;
+			return null;
 		}
 		context.sourceFiles = files;
 
-		new GlobalBeforeTranslationScanner(transpilationHandler, context).process(compilationUnits);
+		metrics.startPhase(TranspilationMetrics.PHASE_GLOBAL_SCAN);
+		try {
+			new GlobalBeforeTranslationScanner(transpilationHandler, context).process(compilationUnits);
+		} finally {
+			metrics.endPhase(TranspilationMetrics.PHASE_GLOBAL_SCAN);
+		}
 
-		if (context.useModules) {
-			generateTsFiles(transpilationHandler, files, compilationUnits);
-		} else {
-			if (bundle) {
-				generateTsBundle(transpilationHandler, files, compilationUnits);
-			} else {
+		metrics.startPhase(TranspilationMetrics.PHASE_TRANSLATION);
+		try {
+			if (context.useModules) {
 				generateTsFiles(transpilationHandler, files, compilationUnits);
+			} else {
+				if (bundle) {
+					generateTsBundle(transpilationHandler, files, compilationUnits);
+				} else {
+					generateTsFiles(transpilationHandler, files, compilationUnits);
+				}
 			}
+		} finally {
+			metrics.endPhase(TranspilationMetrics.PHASE_TRANSLATION);
 		}
+		retainedMethodDecls.clear();
 		log.flush();
 		getOrCreateTscRootFile();
+		return compilationUnits;
+	}
+
+	private void scanOverloads(TranspilationHandler transpilationHandler, java.util.List<JCCompilationUnit> compilationUnits) {
+		metrics.startPhase(TranspilationMetrics.PHASE_OVERLOAD_SCAN);
+		try {
+			new OverloadScanner(transpilationHandler, context).process(compilationUnits);
+		} finally {
+			metrics.endPhase(TranspilationMetrics.PHASE_OVERLOAD_SCAN);
+		}
+		if (lowMemory) {
+			// the core methods of overloads can be printed along with the
+			// subclasses, in other units
+			for (Overload overload : context.getAllOverloads()) {
+				if (overload.coreMethod != null && overload.methods.size() > 1) {
+					retainedMethodDecls.add(overload.coreMethod);
+				}
+			}
+		}
+	}
+
+	/**
+	 * In low memory mode, releases the method bodies of a compilation unit
+	 * that has been translated, except for the ones that may be printed again
+	 * by the translation of other units (default methods and overloads core
+	 * methods), so that they can be garbage collected.
+	 * 
+	 * @see #setLowMemory(boolean)
+	 */
+	private void releaseTrees(JCCompilationUnit cu) {
+		if (!lowMemory) {
+			return;
+		}
+		int[] count = { 0 };
+		new TreeScanner() {
+			@Override
+			public void visitMethodDef(JCMethodDecl methodDecl) {
+				if (methodDecl.body != null && !retainedMethodDecls.contains(methodDecl)
+						&& context.getDefaultMethodCompilationUnit(methodDecl) == null) {
+					methodDecl.body = null;
+					count[0]++;
+				}
+			}
+		}.scan(cu);
+		metrics.increment(TranspilationMetrics.COUNTER_RELEASED_METHOD_BODIES, count[0]);
 	}
 
 	private void generateModuleDefs(JCCompilationUnit moduleDefs) throws IOException {
 		StringBuilder out = new StringBuilder();
-		for (String line : FileUtils.readLines(new File(moduleDefs.getSourceFile().getName()))) {
+		int lineCount = context.getSourceLineCount(moduleDefs);
+		for (int i = 1; i <= lineCount; i++) {
+			String line = context.getSourceLine(moduleDefs, i);
 			if (line.startsWith("///")) {
 				out.append(line.substring(3));
 			}
 		}
-		FileUtils.write(new File(tsOutputDir, "module_defs.d.ts"), out, false);
+		writeOutputFile(new File(tsOutputDir, "module_defs.d.ts"), out.toString());
+	}
+
+	/**
+	 * The result of the translation of a compilation unit, which may have been
+	 * translated concurrently with other units.
+	 */
+	private static class TranslatedUnit {
+		AbstractTreePrinter printer;
+		String footerStatements;
+		UnitTranslationState state;
+		java.util.List<Runnable> reports = new ArrayList<>();
+		int errorCount = 0;
+
+		void replayReports() {
+			for (Runnable report : reports) {
+				report.run();
+			}
+		}
+	}
+
+	/**
+	 * Translates a compilation unit. The side effects on the context that
+	 * depend on the units order, as well as the reported problems, are
+	 * collected in the returned object, so that they can be applied in order.
+	 */
+	private TranslatedUnit translate(TranspilationHandler transpilationHandler, JCCompilationUnit cu) {
+		TranslatedUnit unit = new TranslatedUnit();
+		TranspilationHandler unitHandler = new TranspilationHandler() {
+			@Override
+			public void report(JSweetProblem problem, SourcePosition sourcePosition, String message) {
+				if (problem.getSeverity() == Severity.ERROR) {
+					unit.errorCount++;
+				}
+				unit.reports.add(() -> transpilationHandler.report(problem, sourcePosition, message));
+			}
+
+			@Override
+			public void onCompleted(JSweetTranspiler transpiler, boolean fullPass, SourceFile[] files) {
+			}
+		};
+		logger.info("scanning " + cu.sourcefile.getName() + "...");
+		long startTime = System.nanoTime();
+		context.beginUnitTranslation();
+		try {
+			unit.printer = new Java2TypeScriptTranslator(unitHandler, context, cu, preserveSourceLineNumbers);
+			unit.printer.print(cu);
+			if (!context.bundleMode) {
+				// in bundle mode, the footer statements are pooled at the end
+				// of the bundle
+				unit.footerStatements = context.poolFooterStatements();
+			}
+		} finally {
+			unit.state = context.endUnitTranslation();
+		}
+		metrics.addUnitTranslationTime(cu.sourcefile.getName(), System.nanoTime() - startTime);
+		return unit;
+	}
+
+	/**
+	 * Tells if the given compilation unit may import names in the global
+	 * namespace, in which case it must be translated in order.
+	 */
+	private boolean isOrderedUnit(JCCompilationUnit cu) {
+		return !context.useModules && Util.getTopLevelPackage(cu.packge) == null;
+	}
+
+	/**
+	 * Completes the class symbols (and their super types) used by the given
+	 * compilation units, so that the class reader is not invoked concurrently
+	 * during the translation.
+	 */
+	private void completeClassSymbols(java.util.List<JCCompilationUnit> compilationUnits) {
+		Set<ClassSymbol> completed = new HashSet<>();
+		TreeScanner completer = new TreeScanner() {
+			private void complete(Symbol symbol) {
+				if (symbol instanceof ClassSymbol && completed.add((ClassSymbol) symbol)) {
+					ClassSymbol classSymbol = (ClassSymbol) symbol;
+					try {
+						classSymbol.complete();
+						complete(classSymbol.getSuperclass().tsym);
+						for (Type t : classSymbol.getInterfaces()) {
+							complete(t.tsym);
+						}
+					} catch (CompletionFailure e) {
+						// ignore (will be reported by the translator if needed)
+					}
+				}
+			}
+
+			@Override
+			public void scan(JCTree tree) {
+				if (tree != null && tree.type != null) {
+					complete(tree.type.tsym);
+				}
+				super.scan(tree);
+			}
+		};
+		for (JCCompilationUnit cu : compilationUnits) {
+			completer.scan(cu);
+		}
 	}
 
 	private void generateTsFiles(ErrorCountTranspilationHandler transpilationHandler, SourceFile[] files, List<JCCompilationUnit> compilationUnits)
 			throws IOException {
 		// regular file-to-file generation
-		new OverloadScanner(transpilationHandler, context).process(compilationUnits);
-		for (int i = 0; i < compilationUnits.length(); i++) {
-			JCCompilationUnit cu = compilationUnits.get(i);
-			if (isModuleDefsFile(cu)) {
-				if (context.useModules) {
-					generateModuleDefs(cu);
+		scanOverloads(transpilationHandler, compilationUnits);
+		boolean[] dirty = incremental ? dependencyIndex.update(context, toString(), files, compilationUnits) : null;
+		if (tscPipeline != null) {
+			tscPipeline.start(files, compilationUnits);
+		}
+		ForkJoinPool pool = null;
+		java.util.List<ForkJoinTask<TranslatedUnit>> tasks = new ArrayList<>(Collections.nCopies(compilationUnits.length(), null));
+		if (parallelEmission) {
+			completeClassSymbols(compilationUnits);
+			pool = new ForkJoinPool();
+			for (int i = 0; i < compilationUnits.length(); i++) {
+				JCCompilationUnit cu = compilationUnits.get(i);
+				if (!isModuleDefsFile(cu) && (dirty == null || dirty[i]) && !isOrderedUnit(cu)) {
+					tasks.set(i, pool.submit(() -> translate(transpilationHandler, cu)));
 				}
-				continue;
 			}
-			logger.info("scanning " + cu.sourcefile.getName() + "...");
-			AbstractTreePrinter printer = new Java2TypeScriptTranslator(transpilationHandler, context, cu, preserveSourceLineNumbers);
-			printer.print(cu);
-			if (StringUtils.isWhitespace(printer.getResult())) {
-				continue;
+		}
+		try {
+			for (int i = 0; i < compilationUnits.length(); i++) {
+				JCCompilationUnit cu = compilationUnits.get(i);
+				if (isModuleDefsFile(cu)) {
+					if (context.useModules) {
+						generateModuleDefs(cu);
+					}
+					unitProcessed(i);
+					continue;
+				}
+				if (dirty != null && !dirty[i] && dependencyIndex.isRestorable(context, cu)) {
+					logger.info("unchanged " + cu.sourcefile.getName());
+					metrics.increment(TranspilationMetrics.COUNTER_RESTORED_UNITS, 1);
+					dependencyIndex.restore(context, files[i], cu);
+					unitProcessed(i);
+					continue;
+				}
+				TranslatedUnit unit = tasks.get(i) != null ? tasks.get(i).join() : translate(transpilationHandler, cu);
+				tasks.set(i, null);
+				unit.replayReports();
+				context.applyUnitTranslation(unit.state);
+				AbstractTreePrinter printer = unit.printer;
+				if (StringUtils.isWhitespace(printer.getResult())) {
+					if (dirty != null) {
+						dependencyIndex.record(context, files[i], cu, unit.state, unit.errorCount > 0);
+					}
+					releaseTrees(cu);
+					unitProcessed(i);
+					continue;
+				}
+				String[] s = cu.getSourceFile().getName().split(File.separator.equals("\\") ? "\\\\" : File.separator);
+				String cuName = s[s.length - 1];
+				s = cuName.split("\\.");
+				cuName = s[0];
+				String javaSourceFileRelativeFullName = (cu.packge.getQualifiedName().toString().replace(".", File.separator) + File.separator + cuName + ".java");
+				files[i].javaSourceDirRelativeFile = new File(javaSourceFileRelativeFullName);
+				files[i].javaSourceDir = new File(
+						cu.getSourceFile().getName().substring(0, cu.getSourceFile().getName().length() - javaSourceFileRelativeFullName.length()));
+				String packageName = isNoRootDirectories() ? Util.getRootRelativeJavaName(cu.packge) : cu.packge.getQualifiedName().toString();
+				String outputFileRelativePathNoExt = packageName.replace(".", File.separator) + File.separator + cuName;
+				String outputFileRelativePath = outputFileRelativePathNoExt + (cu.packge.fullname.toString().startsWith("def.") ? ".d.ts" : ".ts");
+				logger.info("output file: " + outputFileRelativePath);
+				File outputFile = new File(tsOutputDir, outputFileRelativePath);
+				outputFile.getParentFile().mkdirs();
+				String outputFilePath = outputFile.getPath();
+				writeOutputFile(outputFile,
+						printer.getResult() + System.lineSeparator() + context.getGlobalsMappingString() + unit.footerStatements);
+				files[i].tsFile = outputFile;
+				files[i].javaFileLastTranspiled = files[i].getJavaFile().lastModified();
+				files[i].sourceMap = printer.sourceMap;
+				logger.info("created " + outputFilePath);
+				if (dirty != null) {
+					dependencyIndex.record(context, files[i], cu, unit.state, unit.errorCount > 0);
+				}
+				releaseTrees(cu);
+				unitProcessed(i);
 			}
-			String[] s = cu.getSourceFile().getName().split(File.separator.equals("\\") ? "\\\\" : File.separator);
-			String cuName = s[s.length - 1];
-			s = cuName.split("\\.");
-			cuName = s[0];
-			String javaSourceFileRelativeFullName = (cu.packge.getQualifiedName().toString().replace(".", File.separator) + File.separator + cuName + ".java");
-			files[i].javaSourceDirRelativeFile = new File(javaSourceFileRelativeFullName);
-			files[i].javaSourceDir = new File(
-					cu.getSourceFile().getName().substring(0, cu.getSourceFile().getName().length() - javaSourceFileRelativeFullName.length()));
-			String packageName = isNoRootDirectories() ? Util.getRootRelativeJavaName(cu.packge) : cu.packge.getQualifiedName().toString();
-			String outputFileRelativePathNoExt = packageName.replace(".", File.separator) + File.separator + cuName;
-			String outputFileRelativePath = outputFileRelativePathNoExt + (cu.packge.fullname.toString().startsWith("def.") ? ".d.ts" : ".ts");
-			logger.info("output file: " + outputFileRelativePath);
-			File outputFile = new File(tsOutputDir, outputFileRelativePath);
-			outputFile.getParentFile().mkdirs();
-			String outputFilePath = outputFile.getPath();
-			PrintWriter out = new PrintWriter(outputFilePath);
-			try {
-				out.println(printer.getResult());
-				out.print(context.getGlobalsMappingString());
-				out.print(context.poolFooterStatements());
-			} finally {
-				out.close();
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
 			}
-			files[i].tsFile = outputFile;
-			files[i].javaFileLastTranspiled = files[i].getJavaFile().lastModified();
-			files[i].sourceMap = printer.sourceMap;
-			logger.info("created " + outputFilePath);
+		}
+		if (dirty != null) {
+			dependencyIndex.commit();
+		}
+	}
+
+	private void unitProcessed(int index) throws IOException {
+		if (tscPipeline != null) {
+			tscPipeline.unitProcessed(index);
 		}
 	}
 
@@ -798,20 +1226,17 @@ public class JSweetTranspiler implements JSweetOptions {
 		}
 		StaticInitilializerAnalyzer analizer = new StaticInitilializerAnalyzer(context);
 		analizer.process(compilationUnits);
-		ArrayList<Node<JCCompilationUnit>> sourcesInCycle = new ArrayList<>();
-		java.util.List<JCCompilationUnit> orderedCompilationUnits = analizer.globalStaticInitializersDependencies.topologicalSort(n -> {
-			sourcesInCycle.add(n);
-		});
-		if (!sourcesInCycle.isEmpty()) {
-			transpilationHandler.report(JSweetProblem.CYCLE_IN_STATIC_INITIALIZER_DEPENDENCIES, null, JSweetProblem.CYCLE_IN_STATIC_INITIALIZER_DEPENDENCIES
-					.getMessage(sourcesInCycle.stream().map(n -> n.element.sourcefile.getName()).collect(Collectors.toList())));
-
-			DirectedGraph.dumpCycles(sourcesInCycle, u -> u.sourcefile.getName());
-
+		java.util.List<JCCompilationUnit> orderedCompilationUnits = analizer.globalStaticInitializersDependencies.topologicalSort(null);
+		if (orderedCompilationUnits.size() < analizer.globalStaticInitializersDependencies.size()) {
+			// reports all the cycles at once
+			for (java.util.List<JCCompilationUnit> cycle : analizer.globalStaticInitializersDependencies.findCycles()) {
+				transpilationHandler.report(JSweetProblem.CYCLE_IN_STATIC_INITIALIZER_DEPENDENCIES, null, JSweetProblem.CYCLE_IN_STATIC_INITIALIZER_DEPENDENCIES
+						.getMessage(cycle.stream().map(cu -> cu.sourcefile.getName()).collect(Collectors.toList())));
+			}
 			return;
 		}
 
-		new OverloadScanner(transpilationHandler, context).process(orderedCompilationUnits);
+		scanOverloads(transpilationHandler, orderedCompilationUnits);
 
 		logger.debug("ordered compilation units: " + orderedCompilationUnits.stream().map(cu -> {
 			return cu.sourcefile.getName();
@@ -831,35 +1256,7 @@ public class JSweetTranspiler implements JSweetOptions {
 	}
 
 	private void createBundle(ErrorCountTranspilationHandler transpilationHandler, SourceFile[] files, int[] permutation,
-			java.util.List<JCCompilationUnit> orderedCompilationUnits, boolean definitionBundle) throws FileNotFoundException {
-		context.bundleMode = true;
-		StringBuilder sb = new StringBuilder();
-		int lineCount = 0;
-		for (int i = 0; i < orderedCompilationUnits.size(); i++) {
-			JCCompilationUnit cu = orderedCompilationUnits.get(i);
-			if (isModuleDefsFile(cu)) {
-				continue;
-			}
-			if (cu.packge.fullname.toString().startsWith("def.")) {
-				if (!definitionBundle) {
-					continue;
-				}
-			} else {
-				if (definitionBundle) {
-					continue;
-				}
-			}
-			logger.info("scanning " + cu.sourcefile.getName() + "...");
-			AbstractTreePrinter printer = new Java2TypeScriptTranslator(transpilationHandler, context, cu, preserveSourceLineNumbers);
-			printer.print(cu);
-			files[permutation[i]].sourceMap = printer.sourceMap;
-			files[permutation[i]].sourceMap.shiftOutputPositions(lineCount);
-			sb.append(printer.getOutput());
-			lineCount += printer.getCurrentLine();
-		}
-
-		context.bundleMode = false;
-
+			java.util.List<JCCompilationUnit> orderedCompilationUnits, boolean definitionBundle) throws IOException {
 		File bundleDirectory = tsOutputDir;
 		if (!bundleDirectory.exists()) {
 			bundleDirectory.mkdirs();
@@ -871,14 +1268,72 @@ public class JSweetTranspiler implements JSweetOptions {
 		logger.info("creating bundle file: " + outputFile);
 		outputFile.getParentFile().mkdirs();
 		String outputFilePath = outputFile.getPath();
-		PrintWriter out = new PrintWriter(outputFilePath);
+
+		context.bundleMode = true;
+		// in parallel, the units are translated concurrently and stitched in
+		// the bundle in order (the units that may import names in the global
+		// namespace are still translated in order)
+		ForkJoinPool pool = null;
+		java.util.List<ForkJoinTask<TranslatedUnit>> tasks = new ArrayList<>(Collections.nCopies(orderedCompilationUnits.size(), null));
+		if (parallelEmission) {
+			completeClassSymbols(orderedCompilationUnits);
+			pool = new ForkJoinPool();
+			for (int i = 0; i < orderedCompilationUnits.size(); i++) {
+				JCCompilationUnit cu = orderedCompilationUnits.get(i);
+				if (isInBundle(cu, definitionBundle) && !isOrderedUnit(cu)) {
+					tasks.set(i, pool.submit(() -> translate(transpilationHandler, cu)));
+				}
+			}
+		}
+		Writer out = openOutputFile(outputFile);
+		boolean completed = false;
 		try {
-			out.println(sb.toString());
-			out.print(context.getGlobalsMappingString());
-			out.print(context.poolFooterStatements());
+			int lineCount = 0;
+			for (int i = 0; i < orderedCompilationUnits.size(); i++) {
+				JCCompilationUnit cu = orderedCompilationUnits.get(i);
+				if (!isInBundle(cu, definitionBundle)) {
+					continue;
+				}
+				AbstractTreePrinter printer;
+				if (tasks.get(i) != null) {
+					TranslatedUnit unit = tasks.get(i).join();
+					tasks.set(i, null);
+					unit.replayReports();
+					context.applyUnitTranslation(unit.state);
+					printer = unit.printer;
+				} else {
+					logger.info("scanning " + cu.sourcefile.getName() + "...");
+					long startTime = System.nanoTime();
+					printer = new Java2TypeScriptTranslator(transpilationHandler, context, cu, preserveSourceLineNumbers);
+					// the finished top-level members are streamed to the bundle,
+					// so that only one unit's output is held in memory at a time
+					printer.setOutputWriter(out);
+					printer.print(cu);
+					metrics.addUnitTranslationTime(cu.sourcefile.getName(), System.nanoTime() - startTime);
+				}
+				files[permutation[i]].sourceMap = printer.sourceMap;
+				files[permutation[i]].sourceMap.shiftOutputPositions(lineCount);
+				metrics.startPhase(TranspilationMetrics.PHASE_WRITE);
+				try {
+					printer.writeOutput(out);
+				} finally {
+					metrics.endPhase(TranspilationMetrics.PHASE_WRITE);
+				}
+				lineCount += printer.getCurrentLine();
+				releaseTrees(cu);
+			}
+			out.write(System.lineSeparator());
+			out.write(context.getGlobalsMappingString());
+			out.write(context.poolFooterStatements());
+			completed = true;
 		} finally {
-			out.close();
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+			context.bundleMode = false;
+			closeOutputFile(out, outputFile, completed);
 		}
+
 		for (int i = 0; i < orderedCompilationUnits.size(); i++) {
 			JCCompilationUnit cu = orderedCompilationUnits.get(i);
 			if (cu.packge.fullname.toString().startsWith("def.")) {
@@ -897,6 +1352,14 @@ public class JSweetTranspiler implements JSweetOptions {
 
 	}
 
+	/**
+	 * Tells if the given compilation unit is part of the regular or of the
+	 * definition bundle.
+	 */
+	private boolean isInBundle(JCCompilationUnit cu, boolean definitionBundle) {
+		return !isModuleDefsFile(cu) && cu.packge.fullname.toString().startsWith("def.") == definitionBundle;
+	}
+
 	private File getOrCreateTscRootFile() throws IOException {
 		File tscRootFile = new File(tsOutputDir, TSCROOTFILE);
 
@@ -916,14 +1379,12 @@ public class JSweetTranspiler implements JSweetOptions {
 			return message + " - " + position;
 		}
 
-		public SourcePosition findOriginalPosition(Collection<SourceFile> sourceFiles) {
-			for (SourceFile sourceFile : sourceFiles) {
-				if (sourceFile.tsFile != null && sourceFile.tsFile.getAbsolutePath().endsWith(position.getFile().getPath())) {
-					if (sourceFile.sourceMap != null) {
-						Position inputPosition = sourceFile.sourceMap.findInputPosition(position.getStartLine(), position.getStartColumn());
-						if (inputPosition != null) {
-							return new SourcePosition(sourceFile.getJavaFile(), null, inputPosition);
-						}
+		public SourcePosition findOriginalPosition(TsFileIndex tsFiles) {
+			for (SourceFile sourceFile : tsFiles.get(position.getFile())) {
+				if (sourceFile.sourceMap != null) {
+					Position inputPosition = sourceFile.sourceMap.findInputPosition(position.getStartLine(), position.getStartColumn());
+					if (inputPosition != null) {
+						return new SourcePosition(sourceFile.getJavaFile(), null, inputPosition);
 					}
 				}
 			}
@@ -932,6 +1393,47 @@ public class JSweetTranspiler implements JSweetOptions {
 
 	}
 
+	/**
+	 * Finds the source files from the TypeScript file names reported by tsc,
+	 * which are relative to the TypeScript output directory (where tsc runs)
+	 * or absolute.
+	 */
+	private static class TsFileIndex {
+		private SourceFile[] sourceFiles;
+		private File tsOutputDir;
+		// several source files share the same TypeScript file in bundle mode
+		private Map<Path, java.util.List<SourceFile>> sourceFilesByTsFile = new HashMap<>();
+
+		public TsFileIndex(File tsOutputDir, SourceFile[] sourceFiles) {
+			this.tsOutputDir = tsOutputDir;
+			this.sourceFiles = sourceFiles;
+			for (SourceFile sourceFile : sourceFiles) {
+				if (sourceFile.tsFile != null) {
+					sourceFilesByTsFile.computeIfAbsent(normalize(sourceFile.tsFile), p -> new ArrayList<>(1)).add(sourceFile);
+				}
+			}
+		}
+
+		private static Path normalize(File file) {
+			return file.toPath().toAbsolutePath().normalize();
+		}
+
+		public java.util.List<SourceFile> get(File tsFile) {
+			java.util.List<SourceFile> result = sourceFilesByTsFile.get(normalize(tsFile.isAbsolute() ? tsFile : new File(tsOutputDir, tsFile.getPath())));
+			if (result == null) {
+				// unresolved path (for instance through a symbolic link)
+				result = new ArrayList<>();
+				for (SourceFile sourceFile : sourceFiles) {
+					if (sourceFile.tsFile != null && sourceFile.tsFile.getAbsolutePath().endsWith(tsFile.getPath())) {
+						result.add(sourceFile);
+					}
+				}
+			}
+			return result;
+		}
+
+	}
+
 	private static Pattern errorRE = Pattern.compile("(.*)\\((.*)\\): error TS[0-9]+: (.*)");
 
 	private static TscOutput parseTscOutput(String outputString) {
@@ -940,19 +1442,23 @@ public class JSweetTranspiler implements JSweetOptions {
 		if (m.matches()) {
 			String[] pos = m.group(2).split(",");
 			error.position = new SourcePosition(new File(m.group(1)), null, Integer.parseInt(pos[0]), Integer.parseInt(pos[1]));
-			StringBuilder sb = new StringBuilder(m.group(3));
-			sb.setCharAt(0, Character.toLowerCase(sb.charAt(0)));
-			if (sb.charAt(sb.length() - 1) == '.') {
-				sb.deleteCharAt(sb.length() - 1);
-			}
-			error.message = sb.toString();
+			error.message = normalizeTscMessage(m.group(3));
 		} else {
 			error.message = outputString;
 		}
 		return error;
 	}
 
-	private Process tsCompilationProcess;
+	private static String normalizeTscMessage(String message) {
+		StringBuilder sb = new StringBuilder(message);
+		sb.setCharAt(0, Character.toLowerCase(sb.charAt(0)));
+		if (sb.charAt(sb.length() - 1) == '.') {
+			sb.deleteCharAt(sb.length() - 1);
+		}
+		return sb.toString();
+	}
+
+	private Set<Process> tsCompilationProcesses = ConcurrentHashMap.newKeySet();
 	private SourceFile[] watchedFiles;
 
 	private File extractedCandyJavascriptDir;
@@ -998,7 +1504,7 @@ public class JSweetTranspiler implements JSweetOptions {
 	}
 
 	private void ts2js(ErrorCountTranspilationHandler transpilationHandler, SourceFile[] files) throws IOException {
-		if (tsCompilationProcess != null && isTscWatchMode()) {
+		if (!tsCompilationProcesses.isEmpty() && isTscWatchMode()) {
 			return;
 		}
 		if (isTscWatchMode()) {
@@ -1006,6 +1512,19 @@ public class JSweetTranspiler implements JSweetOptions {
 		}
 
 		logger.debug("ts2js: " + Arrays.asList(files));
+		try {
+			logger.info("launching tsc...");
+			runTSC(transpilationHandler, files, getTscArguments(files));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private String[] getTscArguments(SourceFile[] files) throws IOException {
+		return getTscArguments(files, true);
+	}
+
+	private String[] getTscArguments(SourceFile[] files, boolean includeRootFile) throws IOException {
 		LinkedList<String> args = new LinkedList<>();
 		if (System.getProperty("os.name").startsWith("Windows")) {
 			args.addAll(asList("--target", ecmaTargetVersion.name()));
@@ -1029,7 +1548,7 @@ public class JSweetTranspiler implements JSweetOptions {
 		if (isTscWatchMode()) {
 			args.add("--watch");
 		}
-		if (isPreserveSourceLineNumbers()) {
+		if (isPreserveSourceLineNumbers() || isGenerateSourceMaps()) {
 			args.add("--sourceMap");
 		}
 		if (isGenerateDeclarations()) {
@@ -1041,9 +1560,11 @@ public class JSweetTranspiler implements JSweetOptions {
 		if (jsOutputDir != null) {
 			args.addAll(asList("--outDir", jsOutputDir.getAbsolutePath()));
 		}
-		File tscRootFile = getOrCreateTscRootFile();
-		if (tscRootFile.exists()) {
-			args.add(relativizeTsFile(tscRootFile).toString());
+		if (includeRootFile) {
+			File tscRootFile = getOrCreateTscRootFile();
+			if (tscRootFile.exists()) {
+				args.add(relativizeTsFile(tscRootFile).toString());
+			}
 		}
 		for (SourceFile sourceFile : files) {
 			String filePath = relativizeTsFile(sourceFile.getTsFile()).toString();
@@ -1073,23 +1594,173 @@ public class JSweetTranspiler implements JSweetOptions {
 		for (File f : tsDefFiles) {
 			args.add(relativizeTsFile(f).toString());
 		}
+		return args.toArray(new String[0]);
+	}
 
+	/**
+	 * Compiles the given files with several tsc processes run in parallel. The
+	 * compilation units are split in independent groups (the connected
+	 * components of their type and package dependency graphs), which are
+	 * packed into at most {@link #getTscShardCount()} shards, each shard being
+	 * compiled by its own tsc process.
+	 */
+	private void ts2jsSharded(ErrorCountTranspilationHandler transpilationHandler, SourceFile[] files, List<JCCompilationUnit> compilationUnits)
+			throws IOException {
+		int[] shards = DependencyIndex.packGroups(DependencyIndex.getIndependentGroups(compilationUnits, context.packageDependencies), tscShardCount);
+		java.util.List<java.util.List<SourceFile>> shardFiles = new ArrayList<>();
+		java.util.List<SourceFile> tsFiles = new ArrayList<>();
+		for (int i = 0; i < files.length; i++) {
+			while (shardFiles.size() <= shards[i]) {
+				shardFiles.add(new ArrayList<>());
+			}
+			if (files[i].getTsFile() != null) {
+				shardFiles.get(shards[i]).add(files[i]);
+				tsFiles.add(files[i]);
+			}
+		}
+		shardFiles.removeIf(shard -> shard.isEmpty());
+		if (shardFiles.size() <= 1) {
+			ts2js(transpilationHandler, tsFiles.toArray(new SourceFile[0]));
+			return;
+		}
+		logger.info("launching tsc on " + shardFiles.size() + " shards...");
+		ExecutorService executor = Executors.newFixedThreadPool(shardFiles.size());
+		java.util.List<Future<?>> compilations = new ArrayList<>();
 		try {
-			logger.info("launching tsc...");
-			runTSC(transpilationHandler, files, args.toArray(new String[0]));
-		} catch (Exception e) {
-			e.printStackTrace();
+			for (int i = 0; i < shardFiles.size(); i++) {
+				SourceFile[] shard = shardFiles.get(i).toArray(new SourceFile[0]);
+				// the root file is compiled once, by the first shard
+				String[] args = getTscArguments(shard, i == 0);
+				compilations.add(executor.submit(() -> runTSCProcess(new PartialCompilationHandler(transpilationHandler), shard, args)));
+			}
+			for (Future<?> compilation : compilations) {
+				try {
+					compilation.get();
+				} catch (ExecutionException e) {
+					logger.error(e.getMessage(), e);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		} finally {
+			executor.shutdownNow();
+		}
+		onTsTranspilationCompleted(true, transpilationHandler, tsFiles.toArray(new SourceFile[0]));
+	}
+
+	/**
+	 * A handler for the compilation of a part of the transpiled files, which
+	 * reports to the main handler but does not notify the completion (the main
+	 * handler is notified once all the parts are compiled).
+	 */
+	private static class PartialCompilationHandler extends ErrorCountTranspilationHandler {
+		public PartialCompilationHandler(ErrorCountTranspilationHandler delegate) {
+			super(delegate);
+		}
+
+		@Override
+		public void onCompleted(JSweetTranspiler transpiler, boolean fullPass, SourceFile[] files) {
+		}
+	}
+
+	/**
+	 * Compiles the generated TypeScript files with tsc in a background thread,
+	 * group by group, so that the compilation of a group overlaps with the
+	 * translation of the next compilation units. A group is a connected
+	 * component of the compilation units dependency graph and is compiled as
+	 * soon as its last unit has been generated.
+	 */
+	private class TscPipeline {
+		private ErrorCountTranspilationHandler transpilationHandler;
+		private ExecutorService executor = Executors.newSingleThreadExecutor();
+		private java.util.List<Future<?>> compilations = new ArrayList<>();
+		private SourceFile[] files;
+		private int[] groups;
+		private int[] remainingUnits;
+		private int compiledGroupCount = 0;
+
+		public TscPipeline(ErrorCountTranspilationHandler transpilationHandler) {
+			this.transpilationHandler = transpilationHandler;
+		}
+
+		public void start(SourceFile[] files, List<JCCompilationUnit> compilationUnits) {
+			this.files = files;
+			groups = DependencyIndex.getIndependentGroups(compilationUnits);
+			remainingUnits = new int[groups.length == 0 ? 0 : Arrays.stream(groups).max().getAsInt() + 1];
+			for (int group : groups) {
+				remainingUnits[group]++;
+			}
+			logger.info("pipelined compilation: " + remainingUnits.length + " groups");
+		}
+
+		public void unitProcessed(int index) throws IOException {
+			int group = groups[index];
+			if (--remainingUnits[group] > 0 || transpilationHandler.getErrorCount() > 0) {
+				return;
+			}
+			java.util.List<SourceFile> groupFiles = new ArrayList<>();
+			for (int i = index; i >= 0; i--) {
+				if (groups[i] == group && files[i].getTsFile() != null) {
+					groupFiles.add(0, files[i]);
+				}
+			}
+			compiledGroupCount++;
+			if (groupFiles.isEmpty()) {
+				return;
+			}
+			SourceFile[] groupFileArray = groupFiles.toArray(new SourceFile[0]);
+			String[] args = getTscArguments(groupFileArray);
+			compilations.add(executor.submit(() -> {
+				logger.info("launching tsc on group " + group + "...");
+				runTSC(new PartialCompilationHandler(transpilationHandler), groupFileArray, args);
+			}));
+		}
+
+		/**
+		 * Tells if all the groups were handed to tsc.
+		 */
+		public boolean isComplete() {
+			return remainingUnits != null && compiledGroupCount == remainingUnits.length;
+		}
+
+		public void finish() {
+			if (transpilationHandler.getErrorCount() > 0) {
+				compilations.forEach(compilation -> compilation.cancel(false));
+			}
+			executor.shutdown();
+			for (Future<?> compilation : compilations) {
+				try {
+					if (!compilation.isCancelled()) {
+						compilation.get();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				} catch (ExecutionException e) {
+					logger.error(e.getMessage(), e);
+				}
+			}
 		}
 	}
 
 	private void runTSC(ErrorCountTranspilationHandler transpilationHandler, SourceFile[] files, String... args) {
+		if (tscWorker != null && !tscWatchMode && runTscWorker(transpilationHandler, files, args)) {
+			return;
+		}
+		runTSCProcess(transpilationHandler, files, args);
+	}
+
+	private void runTSCProcess(ErrorCountTranspilationHandler transpilationHandler, SourceFile[] files, String... args) {
 		boolean[] fullPass = { true };
+		TsFileIndex tsFiles = new TsFileIndex(getTsOutputDir(), files);
 
-		tsCompilationProcess = ProcessUtil.runCommand("tsc", getTsOutputDir(), isTscWatchMode(), line -> {
+		// each shard has its own process, which is tracked until it ends
+		ProcessUtil.runCommandWithProcessTracker("tsc", getTsOutputDir(), tscWatchMode, tsCompilationProcesses::add, line -> {
 			logger.info(line);
 			TscOutput output = parseTscOutput(line);
 			if (output.position != null) {
-				SourcePosition position = output.findOriginalPosition(Arrays.asList(files));
+				SourcePosition position = output.findOriginalPosition(tsFiles);
 				if (position == null) {
 					transpilationHandler.report(JSweetProblem.INTERNAL_TSC_ERROR, output.position, output.message);
 				} else {
@@ -1108,7 +1779,7 @@ public class JSweetTranspiler implements JSweetOptions {
 				}
 			}
 		}, process -> {
-			tsCompilationProcess = null;
+			tsCompilationProcesses.remove(process);
 			onTsTranspilationCompleted(fullPass[0], transpilationHandler, files);
 			fullPass[0] = false;
 		}, () -> {
@@ -1125,6 +1796,42 @@ public class JSweetTranspiler implements JSweetOptions {
 		// }
 	}
 
+	/**
+	 * Compiles with the tsc worker, and returns false if the worker could not
+	 * be used (in that case, tsc is invoked the usual way).
+	 */
+	private boolean runTscWorker(ErrorCountTranspilationHandler transpilationHandler, SourceFile[] files, String... args) {
+		TscWorker.Result result;
+		try {
+			result = tscWorker.compile(getTsOutputDir(), args);
+		} catch (Exception e) {
+			logger.warn("cannot use tsc worker, falling back to tsc: " + e.getMessage());
+			return false;
+		}
+		TsFileIndex tsFiles = new TsFileIndex(getTsOutputDir(), files);
+		for (TscWorker.Diagnostic diagnostic : result.diagnostics) {
+			logger.info(diagnostic);
+			if (!diagnostic.isError()) {
+				continue;
+			}
+			TscOutput output = new TscOutput();
+			output.message = normalizeTscMessage(diagnostic.message);
+			if (diagnostic.file == null) {
+				transpilationHandler.report(JSweetProblem.INTERNAL_TSC_ERROR, null, output.message);
+				continue;
+			}
+			output.position = new SourcePosition(new File(diagnostic.file), null, diagnostic.line, diagnostic.column);
+			SourcePosition position = output.findOriginalPosition(tsFiles);
+			if (position == null) {
+				transpilationHandler.report(JSweetProblem.INTERNAL_TSC_ERROR, output.position, output.message);
+			} else {
+				transpilationHandler.report(JSweetProblem.MAPPED_TSC_ERROR, position, output.message);
+			}
+		}
+		onTsTranspilationCompleted(true, transpilationHandler, files);
+		return true;
+	}
+
 	private void onTsTranspilationCompleted(boolean fullPass, ErrorCountTranspilationHandler handler, SourceFile[] files) {
 		try {
 			if (isGenerateDeclarations()) {
@@ -1149,39 +1856,20 @@ public class JSweetTranspiler implements JSweetOptions {
 				}
 			}
 			if (handler.getErrorCount() == 0) {
-				Set<File> handledFiles = new HashSet<>();
+				// several source files share the same output file in bundles
+				Map<File, java.util.List<SourceFile>> filesByOutputFile = new LinkedHashMap<>();
 				for (SourceFile sourceFile : files) {
-					if (!sourceFile.getTsFile().getAbsolutePath().startsWith(tsOutputDir.getAbsolutePath())) {
-						throw new RuntimeException("ts directory isn't configured properly, please use setTsDir: " + sourceFile.getTsFile().getAbsolutePath()
-								+ " != " + tsOutputDir.getAbsolutePath());
-					}
-					String outputFileRelativePath = sourceFile.getTsFile().getAbsolutePath().substring(tsOutputDir.getAbsolutePath().length());
-					File outputFile = new File(jsOutputDir == null ? tsOutputDir : jsOutputDir, Util.removeExtension(outputFileRelativePath) + ".js");
+					File outputFile = getJsOutputFile(sourceFile);
 					sourceFile.jsFile = outputFile;
-					if (outputFile.lastModified() > sourceFile.jsFileLastTranspiled) {
-						if (handledFiles.contains(outputFile)) {
-							continue;
-						}
-						handledFiles.add(outputFile);
+					filesByOutputFile.computeIfAbsent(outputFile, f -> new ArrayList<>()).add(sourceFile);
+				}
+				for (Map.Entry<File, java.util.List<SourceFile>> entry : filesByOutputFile.entrySet()) {
+					File outputFile = entry.getKey();
+					if (outputFile.lastModified() > entry.getValue().get(0).jsFileLastTranspiled) {
 						logger.info("js output file: " + outputFile);
 						File mapFile = new File(outputFile.getAbsolutePath() + ".map");
-						if (mapFile.exists() && preserveSourceLineNumbers) {
-							sourceFile.jsMapFile = mapFile;
-							logger.info("redirecting map file: " + mapFile);
-							String map = FileUtils.readFileToString(mapFile);
-							try {
-								if (sourceFile.javaSourceDir != null) {
-									map = StringUtils.replacePattern(map, "\"sourceRoot\":\"\"", "\"sourceRoot\":\"" + sourceFile.getJsFile().getParentFile()
-											.getCanonicalFile().toPath().relativize(sourceFile.javaSourceDir.getCanonicalFile().toPath()) + "/\"");
-									map = StringUtils.replacePattern(map, "\"sources\":\\[\".*\"\\]",
-											"\"sources\":\\[\"" + sourceFile.javaSourceDirRelativeFile.getPath() + "\"\\]");
-								}
-							} catch (Exception e) {
-								logger.warn("cannot resolve path to source file for .map", e);
-							}
-							FileUtils.writeStringToFile(mapFile, map);
-							// mapFile.setLastModified(sourceFile)
-							sourceFile.jsFileLastTranspiled = outputFile.lastModified();
+						if (mapFile.exists() && (preserveSourceLineNumbers || generateSourceMaps)) {
+							writeJavaSourceMap(mapFile, entry.getValue());
 						}
 					}
 				}
@@ -1193,6 +1881,36 @@ public class JSweetTranspiler implements JSweetOptions {
 		}
 	}
 
+	/**
+	 * Replaces a source map generated by tsc (JavaScript to TypeScript) with
+	 * its composition with the transpiler's source maps (TypeScript to Java).
+	 */
+	private void writeJavaSourceMap(File mapFile, java.util.List<SourceFile> sourceFiles) {
+		logger.info("redirecting map file: " + mapFile);
+		try {
+			Path jsDir = mapFile.getParentFile().getCanonicalFile().toPath();
+			java.util.List<String> sources = new ArrayList<>();
+			java.util.List<SourceMap> sourceMaps = new ArrayList<>();
+			for (SourceFile sourceFile : sourceFiles) {
+				if (sourceFile.sourceMap != null) {
+					sources.add(jsDir.relativize(sourceFile.getJavaFile().getCanonicalFile().toPath()).toString().replace('\\', '/'));
+					sourceMaps.add(sourceFile.sourceMap);
+				}
+			}
+			String tscMap = FileUtils.readFileToString(mapFile);
+			String map = SourceMapV3.compose(tscMap, sources, sourceMaps);
+			if (!map.equals(tscMap)) {
+				writeOutputFile(mapFile, map);
+			}
+			for (SourceFile sourceFile : sourceFiles) {
+				sourceFile.jsMapFile = mapFile;
+				sourceFile.jsFileLastTranspiled = sourceFile.getJsFile().lastModified();
+			}
+		} catch (Exception e) {
+			logger.warn("cannot compose source map " + mapFile, e);
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -1212,6 +1930,27 @@ public class JSweetTranspiler implements JSweetOptions {
 		this.preserveSourceLineNumbers = preserveSourceLineNumbers;
 	}
 
+	/**
+	 * Tells if this transpiler generates JavaScript to Java source maps.
+	 * 
+	 * @see #setGenerateSourceMaps(boolean)
+	 */
+	public boolean isGenerateSourceMaps() {
+		return generateSourceMaps;
+	}
+
+	/**
+	 * Sets this transpiler to generate JavaScript to Java source maps (default
+	 * is false). The source maps generated by tsc (JavaScript to TypeScript)
+	 * are composed with the transpiler's own maps (TypeScript to Java), so
+	 * that the generated files do not need to preserve the Java line numbers
+	 * (see {@link #setPreserveSourceLineNumbers(boolean)}, which also
+	 * generates source maps).
+	 */
+	public void setGenerateSourceMaps(boolean generateSourceMaps) {
+		this.generateSourceMaps = generateSourceMaps;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -1285,25 +2024,28 @@ public class JSweetTranspiler implements JSweetOptions {
 	synchronized public void setTscWatchMode(boolean tscWatchMode) {
 		this.tscWatchMode = tscWatchMode;
 		if (!tscWatchMode) {
-			if (tsCompilationProcess != null) {
-				tsCompilationProcess.destroyForcibly();
-				while (tsCompilationProcess != null && tsCompilationProcess.isAlive()) {
+			Process[] processes = tsCompilationProcesses.toArray(new Process[0]);
+			if (processes.length > 0) {
+				for (Process process : processes) {
+					process.destroyForcibly();
+				}
+				for (Process process : processes) {
+					while (process.isAlive()) {
+						try {
+							Thread.sleep(500);
+						} catch (InterruptedException e) {
+							logger.error(e.getMessage(), e);
+						}
+						logger.error("tsc did not terminate");
+					}
 					try {
-						Thread.sleep(500);
+						process.waitFor();
 					} catch (InterruptedException e) {
-						logger.error(e.getMessage(), e);
+						// TODO Auto-generated catch block
+						e.printStackTrace();
 					}
-					logger.error("tsc did not terminate");
-				}
-				try {
-					if (tsCompilationProcess != null) {
-						tsCompilationProcess.waitFor();
-					}
-				} catch (InterruptedException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
 				}
-				tsCompilationProcess = null;
+				tsCompilationProcesses.clear();
 				watchedFiles = null;
 			}
 		}
@@ -1564,4 +2306,274 @@ public class JSweetTranspiler implements JSweetOptions {
 		this.generateDefinitions = generateDefinitions;
 	}
 
+	/**
+	 * Tells if this transpiler translates the compilation units in parallel.
+	 * 
+	 * @see #setParallelEmission(boolean)
+	 */
+	public boolean isParallelEmission() {
+		return parallelEmission;
+	}
+
+	/**
+	 * Sets this transpiler to translate the compilation units in parallel
+	 * (default is false). The TypeScript outputs are still written in the
+	 * compilation units order and are identical to the ones generated
+	 * sequentially. Units that may import names in the global namespace (i.e.
+	 * in the default package or in a root package, when not using modules) are
+	 * translated in order on the calling thread. In bundle mode, the units
+	 * translated in parallel are held in memory until they are written to the
+	 * bundle in order (only the units translated on the calling thread are
+	 * streamed to the bundle).
+	 */
+	public void setParallelEmission(boolean parallelEmission) {
+		this.parallelEmission = parallelEmission;
+	}
+
+	/**
+	 * Tells if this transpiler is in incremental mode.
+	 * 
+	 * @see #setIncremental(boolean)
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * Sets this transpiler in incremental mode. In incremental mode, the
+	 * transpiler keeps a dependency index between the compilation units from
+	 * one transpilation to another and only translates again the units that
+	 * have changed since the last transpilation, as well as the units that
+	 * depend on them. The TypeScript files and source maps of the other units
+	 * are reused. Incremental mode does not apply to bundles.
+	 * 
+	 * <p>
+	 * The dependency index is persisted in the working directory, so that the
+	 * incremental mode also applies from one process to another (for instance
+	 * for successive command line invocations). A Java file is considered as
+	 * changed when its modification date, its length or the hash of its
+	 * content differs from the ones of its last translation.
+	 * 
+	 * <p>
+	 * Note that the source files should point to the same Java files from one
+	 * transpilation to another.
+	 * 
+	 * <p>
+	 * Incremental mode only saves the translation and the writing of the
+	 * clean units: all the source files are still parsed, attributed and
+	 * scanned at each transpilation. Limiting the attribution to the dirty
+	 * units is not possible in general, because the global context is built
+	 * from all the units (for instance, the overloads of a class are merged
+	 * with the ones of all its subclasses, so that translating a call to a
+	 * clean class may depend on the method bodies of any unit of its
+	 * hierarchy).
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+		if (!incremental) {
+			dependencyIndex.clear();
+		}
+	}
+
+	/**
+	 * Tells if this transpiler reuses its Java compilation environment from
+	 * one transpilation to another.
+	 * 
+	 * @see #setReuseCompilationEnvironment(boolean)
+	 */
+	public boolean isReuseCompilationEnvironment() {
+		return reuseCompilationEnvironment;
+	}
+
+	/**
+	 * Sets this transpiler to reuse its Java compilation environment from one
+	 * transpilation to another (default is false). When reused, the classpath
+	 * archives are not opened again and the classpath symbols are completed
+	 * only once, while the symbols declared by the transpiled sources are
+	 * invalidated on each transpilation. The environment is created again if
+	 * the classpath or the encoding changes, or if a classpath archive is
+	 * modified.
+	 */
+	public void setReuseCompilationEnvironment(boolean reuseCompilationEnvironment) {
+		this.reuseCompilationEnvironment = reuseCompilationEnvironment;
+		if (!reuseCompilationEnvironment) {
+			compilationEnvironment = null;
+		}
+	}
+
+	/**
+	 * Tells if this transpiler compiles the generated TypeScript files while
+	 * translating the Java files.
+	 * 
+	 * @see #setPipelinedCompilation(boolean)
+	 */
+	public boolean isPipelinedCompilation() {
+		return pipelinedCompilation;
+	}
+
+	/**
+	 * Sets this transpiler to compile the generated TypeScript files while
+	 * translating the Java files (default is false). The compilation units are
+	 * split in independent groups (the connected components of their
+	 * dependency graph) and each group is handed to tsc, in a background
+	 * thread, as soon as it is fully generated. Pipelined compilation does not
+	 * apply in tsc watch mode, to bundles, and when TypeScript source files
+	 * are transpiled along with the Java ones. Once an error is reported, the
+	 * remaining groups are not compiled, but the JavaScript files of the groups
+	 * that were compiled without errors are kept.
+	 */
+	public void setPipelinedCompilation(boolean pipelinedCompilation) {
+		this.pipelinedCompilation = pipelinedCompilation;
+	}
+
+	/**
+	 * Tells if this transpiler compiles the generated TypeScript files with a
+	 * long-lived tsc worker.
+	 * 
+	 * @see #setUseTscWorker(boolean)
+	 */
+	public boolean isUseTscWorker() {
+		return tscWorker != null;
+	}
+
+	/**
+	 * Sets this transpiler to compile the generated TypeScript files with a
+	 * long-lived tsc worker (default is false). The worker is a node process
+	 * that loads the TypeScript compiler once and keeps the parsed files
+	 * (including the candies' definitions) from one transpilation to another,
+	 * so that only the modified files are parsed and emitted again. The worker
+	 * is restarted if it dies, and tsc is invoked the usual way if the worker
+	 * cannot be used. The worker is not used in tsc watch mode.
+	 */
+	public void setUseTscWorker(boolean useTscWorker) {
+		if (useTscWorker && tscWorker == null) {
+			tscWorker = new TscWorker(workingDir, ProcessUtil.getGlobalNodePackageDir("typescript"));
+		} else if (!useTscWorker && tscWorker != null) {
+			tscWorker.stop();
+			tscWorker = null;
+		}
+	}
+
+	/**
+	 * Gets the tsc worker, if used.
+	 * 
+	 * @see #setUseTscWorker(boolean)
+	 */
+	public TscWorker getTscWorker() {
+		return tscWorker;
+	}
+
+	/**
+	 * Gets the maximum number of tsc processes run in parallel to compile the
+	 * generated TypeScript files.
+	 * 
+	 * @see #setTscShardCount(int)
+	 */
+	public int getTscShardCount() {
+		return tscShardCount;
+	}
+
+	/**
+	 * Sets the maximum number of tsc processes run in parallel to compile the
+	 * generated TypeScript files (default is 1). When greater than 1, the
+	 * compilation units are split in independent groups (according to their
+	 * type dependencies and to the package dependencies), which are packed in
+	 * at most the given number of shards of similar sizes, and each shard is
+	 * compiled by its own tsc process (the tsc worker is not used in that
+	 * case). Sharded compilation does not apply in tsc watch mode, to bundles,
+	 * when TypeScript source files are transpiled along with the Java ones,
+	 * and when the compilation is pipelined (see
+	 * {@link #setPipelinedCompilation(boolean)}).
+	 */
+	public void setTscShardCount(int tscShardCount) {
+		this.tscShardCount = tscShardCount;
+	}
+
+	/**
+	 * Tells if this transpiler skips the writing of the generated files that
+	 * are unchanged.
+	 * 
+	 * @see #setSkipUnchangedOutputs(boolean)
+	 */
+	public boolean isSkipUnchangedOutputs() {
+		return outputFileWriter != null;
+	}
+
+	/**
+	 * Sets this transpiler to skip the writing of the generated files that are
+	 * unchanged (default is false), so that their modification dates are
+	 * preserved. The content hashes of the generated files are kept in a
+	 * manifest, in the working directory. When none of the TypeScript files
+	 * has been written and they were all successfully compiled with the same
+	 * tsc arguments by the previous transpilation, tsc is not invoked.
+	 */
+	public void setSkipUnchangedOutputs(boolean skipUnchangedOutputs) {
+		if (skipUnchangedOutputs && outputFileWriter == null) {
+			outputFileWriter = new OutputFileWriter(new File(workingDir, "output-manifest.json"));
+		} else if (!skipUnchangedOutputs) {
+			outputFileWriter = null;
+			lastTscArguments = null;
+		}
+	}
+
+	/**
+	 * Gets the number of generated files written by the last transpilation
+	 * (when unchanged outputs are skipped).
+	 * 
+	 * @see #setSkipUnchangedOutputs(boolean)
+	 */
+	public int getWrittenOutputCount() {
+		return outputFileWriter == null ? 0 : outputFileWriter.getWrittenCount();
+	}
+
+	/**
+	 * Gets the number of unchanged generated files that were not written by
+	 * the last transpilation (when unchanged outputs are skipped).
+	 * 
+	 * @see #setSkipUnchangedOutputs(boolean)
+	 */
+	public int getSkippedOutputCount() {
+		return outputFileWriter == null ? 0 : outputFileWriter.getSkippedCount();
+	}
+
+	/**
+	 * Tells if this transpiler is in low memory mode.
+	 * 
+	 * @see #setLowMemory(boolean)
+	 */
+	public boolean isLowMemory() {
+		return lowMemory;
+	}
+
+	/**
+	 * Sets this transpiler in low memory mode (default is false), for very
+	 * large programs. In that mode, the method bodies of each compilation unit
+	 * are released as soon as the unit is translated (only the declarations
+	 * and the bodies that other units may need to print are kept), so that the
+	 * attributed trees do not all stay in memory until the end of the
+	 * translation. The Java source contents are not kept either (they are
+	 * read from javac's soft cache when needed). Sharded compilation (see
+	 * {@link #setTscShardCount(int)}) does not apply in that mode.
+	 */
+	public void setLowMemory(boolean lowMemory) {
+		this.lowMemory = lowMemory;
+	}
+
+	/**
+	 * Gets the timings and counters of the last transpilation (null if this
+	 * transpiler has not transpiled anything yet). See also
+	 * {@link TranspilationHandler#onMetrics(JSweetTranspiler, TranspilationMetrics)}.
+	 */
+	public TranspilationMetrics getLastMetrics() {
+		return lastMetrics;
+	}
+
+	/**
+	 * Gets the Java compilation environment used by the last transpilation, if
+	 * any.
+	 */
+	public JavaCompilationEnvironment getCompilationEnvironment() {
+		return compilationEnvironment;
+	}
+
 }
@@ -0,0 +1,324 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.transpiler;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static org.jsweet.transpiler.TranspilationHandler.OUTPUT_LOGGER;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.jsweet.transpiler.util.Util;
+
+/**
+ * Watches the Java source directories of a program and transpiles the program
+ * again when Java files are modified, created or deleted.
+ *
+ * <p>
+ * Bursts of changes (for instance when saving several files at once) are
+ * debounced, so that they trigger only one transpilation. The transpiler is
+ * set to incremental mode and reuses its Java compilation environment, so
+ * that only the units affected by the changes are translated again, and it
+ * skips the unchanged outputs. Unless it is in tsc watch mode (in which case
+ * tsc picks up the modified TypeScript files by itself), the transpiler
+ * compiles with its tsc worker, which emits only the modified TypeScript
+ * files.
+ *
+ * <p>
+ * For each transpilation, the watcher measures the latency between the
+ * (first) modification of a Java file and the end of the transpilation (i.e.
+ * when the JavaScript files are written).
+ *
+ * @author Renaud Pawlak
+ */
+public class JavaSourceWatcher implements Closeable {
+
+	private static final Logger logger = Logger.getLogger(JavaSourceWatcher.class);
+
+	/**
+	 * The default time (in milliseconds) to wait for further changes before
+	 * transpiling.
+	 */
+	public static final long DEFAULT_DEBOUNCE_DELAY = 100;
+
+	private JSweetTranspiler transpiler;
+	private File[] sourceDirs;
+	private long debounceDelay = DEFAULT_DEBOUNCE_DELAY;
+	private WatchService watchService;
+	private Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+	private Map<File, SourceFile> sourceFiles = new LinkedHashMap<>();
+	private Thread thread;
+	private long lastTranspilationTimestamp = 0;
+	private LatencyTranspilationHandler transpilationHandler;
+
+	/**
+	 * A handler that measures the latency of the transpilations triggered by
+	 * the watcher (in tsc watch mode, the transpilation completes
+	 * asynchronously).
+	 */
+	private static class LatencyTranspilationHandler implements TranspilationHandler {
+		private TranspilationHandler delegate;
+		private volatile long changeTimestamp = 0;
+		private volatile long lastLatency = -1;
+		private volatile int transpilationCount = 0;
+
+		public LatencyTranspilationHandler(TranspilationHandler delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void report(JSweetProblem problem, SourcePosition sourcePosition, String message) {
+			delegate.report(problem, sourcePosition, message);
+		}
+
+		@Override
+		public void onCompleted(JSweetTranspiler transpiler, boolean fullPass, SourceFile[] files) {
+			if (changeTimestamp > 0) {
+				lastLatency = System.currentTimeMillis() - changeTimestamp;
+				changeTimestamp = 0;
+				transpilationCount++;
+				OUTPUT_LOGGER.info("transpiled changes in " + lastLatency + " ms (from save to JavaScript output)");
+			}
+			delegate.onCompleted(transpiler, fullPass, files);
+		}
+
+		@Override
+		public void onMetrics(JSweetTranspiler transpiler, TranspilationMetrics metrics) {
+			delegate.onMetrics(transpiler, metrics);
+		}
+	}
+
+	/**
+	 * Creates a watcher (call {@link #start()} to start watching).
+	 *
+	 * @param transpiler
+	 *            the transpiler to be used (it should have transpiled the
+	 *            watched files once, so that the first transpilation triggered
+	 *            by the watcher is incremental)
+	 * @param transpilationHandler
+	 *            the handler to report the transpilation problems to
+	 * @param sourceDirs
+	 *            the directories to be (recursively) watched
+	 */
+	public JavaSourceWatcher(JSweetTranspiler transpiler, TranspilationHandler transpilationHandler, File... sourceDirs) {
+		this.transpiler = transpiler;
+		this.transpilationHandler = new LatencyTranspilationHandler(transpilationHandler);
+		this.sourceDirs = sourceDirs;
+	}
+
+	/**
+	 * Sets the time (in milliseconds) to wait for further changes before
+	 * transpiling (default is {@link #DEFAULT_DEBOUNCE_DELAY}).
+	 */
+	public void setDebounceDelay(long debounceDelay) {
+		this.debounceDelay = debounceDelay;
+	}
+
+	/**
+	 * Gets the time (in milliseconds) to wait for further changes before
+	 * transpiling.
+	 */
+	public long getDebounceDelay() {
+		return debounceDelay;
+	}
+
+	/**
+	 * Gets the latency (in milliseconds) of the last transpilation triggered by
+	 * this watcher, from the modification of the first changed file to the end
+	 * of the transpilation, or -1 if no transpilation was triggered yet.
+	 */
+	public long getLastLatency() {
+		return transpilationHandler.lastLatency;
+	}
+
+	/**
+	 * Gets the number of transpilations triggered by this watcher and
+	 * completed so far.
+	 */
+	public int getTranspilationCount() {
+		return transpilationHandler.transpilationCount;
+	}
+
+	/**
+	 * Starts watching the source directories in a background thread.
+	 */
+	public synchronized void start() throws IOException {
+		if (thread != null) {
+			return;
+		}
+		transpiler.setIncremental(true);
+		transpiler.setReuseCompilationEnvironment(true);
+		transpiler.setSkipUnchangedOutputs(true);
+		if (!transpiler.isTscWatchMode()) {
+			transpiler.setUseTscWorker(true);
+		}
+		watchService = FileSystems.getDefault().newWatchService();
+		for (File sourceDir : sourceDirs) {
+			register(sourceDir);
+		}
+		thread = new Thread(this::run, "jsweet-source-watcher");
+		thread.setDaemon(true);
+		thread.start();
+		logger.info("watching " + watchedDirectories.size() + " directories");
+	}
+
+	private void register(File directory) throws IOException {
+		if (!directory.isDirectory()) {
+			return;
+		}
+		Path path = directory.toPath();
+		watchedDirectories.put(path.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), path);
+		LinkedList<File> javaFiles = new LinkedList<>();
+		for (File file : directory.listFiles()) {
+			if (file.isDirectory()) {
+				register(file);
+			} else {
+				Util.addFiles(".java", file, javaFiles);
+			}
+		}
+		for (File javaFile : javaFiles) {
+			sourceFiles.computeIfAbsent(javaFile.getAbsoluteFile(), this::getSourceFile);
+		}
+	}
+
+	private SourceFile getSourceFile(File javaFile) {
+		// in tsc watch mode, the transpiler keeps the watched source files
+		SourceFile sourceFile = transpiler.getWatchedFile(javaFile);
+		return sourceFile != null ? sourceFile : new SourceFile(javaFile);
+	}
+
+	private void run() {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				Set<File> changedFiles = new LinkedHashSet<>();
+				long changeTimestamp = System.currentTimeMillis();
+				handleEvents(key, changedFiles);
+				// debounces bursts of changes
+				while ((key = watchService.poll(debounceDelay, TimeUnit.MILLISECONDS)) != null) {
+					handleEvents(key, changedFiles);
+				}
+				if (changedFiles.isEmpty()) {
+					continue;
+				}
+				for (File file : changedFiles) {
+					// old timestamps (for instance of copied files) are ignored
+					if (file.exists() && file.lastModified() > lastTranspilationTimestamp) {
+						changeTimestamp = Math.min(changeTimestamp, file.lastModified());
+					}
+				}
+				logger.info("changed files: " + changedFiles);
+				sourceFiles.values().removeIf(sourceFile -> !sourceFile.getJavaFile().exists());
+				transpilationHandler.changeTimestamp = changeTimestamp;
+				lastTranspilationTimestamp = System.currentTimeMillis();
+				try {
+					transpiler.transpile(transpilationHandler, sourceFiles.values().toArray(new SourceFile[0]));
+				} catch (Exception e) {
+					logger.error(e.getMessage(), e);
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// watcher closed
+		}
+	}
+
+	private void handleEvents(WatchKey key, Set<File> changedFiles) {
+		Path directory = watchedDirectories.get(key);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == OVERFLOW) {
+				// some events were lost: the sources are scanned again
+				logger.warn("watch events overflow");
+				for (File sourceDir : sourceDirs) {
+					LinkedList<File> javaFiles = new LinkedList<>();
+					Util.addFiles(".java", sourceDir, javaFiles);
+					javaFiles.forEach(javaFile -> sourceFiles.computeIfAbsent(javaFile.getAbsoluteFile(), this::getSourceFile));
+					changedFiles.addAll(javaFiles);
+				}
+				continue;
+			}
+			if (directory == null) {
+				continue;
+			}
+			File file = directory.resolve((Path) event.context()).toFile().getAbsoluteFile();
+			if (event.kind() == ENTRY_CREATE && file.isDirectory()) {
+				try {
+					int count = sourceFiles.size();
+					register(file);
+					if (sourceFiles.size() > count) {
+						changedFiles.add(file);
+					}
+				} catch (IOException e) {
+					logger.error(e.getMessage(), e);
+				}
+			} else if (file.getName().endsWith(".java")) {
+				if (event.kind() == ENTRY_DELETE) {
+					sourceFiles.remove(file);
+				} else {
+					sourceFiles.computeIfAbsent(file, this::getSourceFile);
+				}
+				changedFiles.add(file);
+			}
+		}
+		if (!key.reset()) {
+			watchedDirectories.remove(key);
+		}
+	}
+
+	/**
+	 * Waits until this watcher is closed.
+	 */
+	public void join() throws InterruptedException {
+		Thread thread;
+		synchronized (this) {
+			thread = this.thread;
+		}
+		if (thread != null) {
+			thread.join();
+		}
+	}
+
+	/**
+	 * Stops watching the source directories.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (watchService != null) {
+			watchService.close();
+			watchService = null;
+		}
+		thread = null;
+	}
+
+}
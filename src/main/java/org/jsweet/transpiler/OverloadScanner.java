@@ -18,13 +18,20 @@ package org.jsweet.transpiler;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 
 import javax.lang.model.element.Modifier;
 
 import org.jsweet.JSweetConfig;
 import org.jsweet.transpiler.util.AbstractTreeScanner;
+import org.jsweet.transpiler.util.DirectedGraph;
+import org.jsweet.transpiler.util.ErasureCache;
 import org.jsweet.transpiler.util.Util;
 
 import com.sun.tools.javac.code.Symbol.ClassSymbol;
@@ -61,7 +68,17 @@ import com.sun.tools.javac.tree.JCTree.JCStatement;
 public class OverloadScanner extends AbstractTreeScanner {
 
 	Types types;
-	int pass = 1;
+	ErasureCache erasureCache;
+	/**
+	 * The overloaded methods of the scanned classes, in scanning order (one
+	 * method per overload).
+	 */
+	private Map<ClassSymbol, Map<Overload, JCMethodDecl>> classOverloads = new LinkedHashMap<>();
+	/**
+	 * The supertypes of the already visited classes, in depth-first preorder
+	 * and without duplicates.
+	 */
+	private Map<ClassSymbol, List<ClassSymbol>> ancestors = new HashMap<>();
 
 	/**
 	 * Gathers methods overloading each other.
@@ -114,18 +131,35 @@ public class OverloadScanner extends AbstractTreeScanner {
 		 * values.
 		 */
 		public void calculate(Types types, Symtab symtab) {
+			calculate(types, symtab, new ErasureCache(types));
+		}
+
+		/**
+		 * Checks the validity of the overload and calculates the default
+		 * values, using the given cache for the erasures and assignability
+		 * checks.
+		 */
+		public void calculate(Types types, Symtab symtab, ErasureCache erasureCache) {
 			if (methods.size() < 2) {
 				return;
 			}
+			// methods with the same parameter count cannot be merged, and
+			// valid overloads can only be in the same class because of
+			// potential side effects in subclasses
+			Set<Integer> parameterCounts = new HashSet<>();
+			for (JCMethodDecl m : methods) {
+				if (!parameterCounts.add(m.getParameters().size()) || m.sym.getEnclosingElement() != methods.get(0).sym.getEnclosingElement()) {
+					isValid = false;
+				}
+			}
 			methods.sort((m1, m2) -> {
 				int i = m2.getParameters().size() - m1.getParameters().size();
 				if (i == 0) {
-					isValid = false;
 					for (int j = 0; j < m1.getParameters().size(); j++) {
-						if (types.isAssignable(types.erasure(m1.getParameters().get(j).type), types.erasure(m2.getParameters().get(j).type))) {
+						if (erasureCache.isErasedAssignable(m1.getParameters().get(j).type, m2.getParameters().get(j).type)) {
 							i--;
 						}
-						if (types.isAssignable(types.erasure(m2.getParameters().get(j).type), types.erasure(m1.getParameters().get(j).type))) {
+						if (erasureCache.isErasedAssignable(m2.getParameters().get(j).type, m1.getParameters().get(j).type)) {
 							i++;
 						}
 
@@ -160,22 +194,16 @@ public class OverloadScanner extends AbstractTreeScanner {
 						}
 					}
 				}
-
-				// valid overloads can only be in the same classe because of
-				// potential side effects in subclasses
-				if (m1.sym.getEnclosingElement() != m2.sym.getEnclosingElement()) {
-					isValid = false;
-				}
 				return i;
 			});
 			coreMethod = methods.get(0);
 
-			Type coreMethodType = types.erasureRecursive(coreMethod.type);
+			String coreMethodSignature = erasureCache.getErasedSignature(coreMethod.type);
 			for (JCMethodDecl m : new ArrayList<>(methods)) {
 				if (m == coreMethod) {
 					continue;
 				}
-				if (coreMethodType.toString().equals(types.erasureRecursive(m.type).toString())) {
+				if (coreMethodSignature.equals(erasureCache.getErasedSignature(m.type))) {
 					methods.remove(m);
 				}
 			}
@@ -235,18 +263,21 @@ public class OverloadScanner extends AbstractTreeScanner {
 			}
 		}
 
-		private static boolean hasMethodType(Types types, Overload overload, JCMethodDecl method) {
-			return overload.methods.stream().map(m -> types.erasureRecursive(m.type)).anyMatch(t -> {
-				boolean match = t.toString().equals(types.erasureRecursive(method.type).toString());
-				if (match && t.tsym.getEnclosingElement() != method.sym.getEnclosingElement()) {
-					overload.isValid = false;
+		private static boolean hasMethodType(ErasureCache erasureCache, Overload overload, JCMethodDecl method) {
+			String signature = erasureCache.getErasedSignature(method.type);
+			for (JCMethodDecl m : overload.methods) {
+				if (signature.equals(erasureCache.getErasedSignature(m.type))) {
+					if (erasureCache.erasureRecursive(m.type).tsym.getEnclosingElement() != method.sym.getEnclosingElement()) {
+						overload.isValid = false;
+					}
+					return true;
 				}
-				return match;
-			});
+			}
+			return false;
 		}
 
-		private static void safeAdd(Types types, Overload overload, JCMethodDecl method) {
-			if (!overload.methods.contains(method) && !hasMethodType(types, overload, method)) {
+		private static void safeAdd(ErasureCache erasureCache, Overload overload, JCMethodDecl method) {
+			if (!overload.methods.contains(method) && !hasMethodType(erasureCache, overload, method)) {
 				overload.methods.add(method);
 			}
 		}
@@ -255,22 +286,30 @@ public class OverloadScanner extends AbstractTreeScanner {
 		 * Merges the given overload with a subclass one.
 		 */
 		public void merge(Types types, Overload subOverload) {
+			merge(new ErasureCache(types), subOverload);
+		}
+
+		/**
+		 * Merges the given overload with a subclass one, using the given cache
+		 * for the erasures and assignability checks.
+		 */
+		public void merge(ErasureCache erasureCache, Overload subOverload) {
 			// merge default methods
 			for (JCMethodDecl m : methods) {
 				if (m.getModifiers().getFlags().contains(Modifier.DEFAULT)) {
 					boolean overriden = false;
-					for (JCMethodDecl subm : new ArrayList<>(subOverload.methods)) {
+					for (JCMethodDecl subm : subOverload.methods) {
 						if (subm.getParameters().size() == m.getParameters().size()) {
 							overriden = true;
 							for (int i = 0; i < subm.getParameters().size(); i++) {
-								if (!types.isAssignable(m.getParameters().get(i).type, subm.getParameters().get(i).type)) {
+								if (!erasureCache.isAssignable(m.getParameters().get(i).type, subm.getParameters().get(i).type)) {
 									overriden = false;
 								}
 							}
 						}
 					}
 					if (!overriden) {
-						safeAdd(types, subOverload, m);
+						safeAdd(erasureCache, subOverload, m);
 					}
 				}
 			}
@@ -278,11 +317,11 @@ public class OverloadScanner extends AbstractTreeScanner {
 			boolean merge = false;
 			for (JCMethodDecl subm : new ArrayList<>(subOverload.methods)) {
 				boolean overrides = false;
-				for (JCMethodDecl m : new ArrayList<>(methods)) {
+				for (JCMethodDecl m : methods) {
 					if (subm.getParameters().size() == m.getParameters().size()) {
 						overrides = true;
 						for (int i = 0; i < subm.getParameters().size(); i++) {
-							if (!types.isAssignable(m.getParameters().get(i).type, subm.getParameters().get(i).type)) {
+							if (!erasureCache.isAssignable(m.getParameters().get(i).type, subm.getParameters().get(i).type)) {
 								overrides = false;
 							}
 						}
@@ -290,7 +329,7 @@ public class OverloadScanner extends AbstractTreeScanner {
 				}
 				if (!overrides) {
 					merge = true;
-					safeAdd(types, this, subm);
+					safeAdd(erasureCache, this, subm);
 				}
 			}
 
@@ -298,7 +337,7 @@ public class OverloadScanner extends AbstractTreeScanner {
 
 			if (merge) {
 				for (JCMethodDecl m : methods) {
-					safeAdd(types, subOverload, m);
+					safeAdd(erasureCache, subOverload, m);
 				}
 			}
 		}
@@ -310,25 +349,74 @@ public class OverloadScanner extends AbstractTreeScanner {
 	public OverloadScanner(TranspilationHandler logHandler, JSweetContext context) {
 		super(logHandler, context, null);
 		this.types = Types.instance(context);
+		this.erasureCache = context.getErasureCache();
 	}
 
-	private void inspectSuperTypes(ClassSymbol clazz, Overload overload, JCMethodDecl method) {
-		if (clazz == null) {
-			return;
+	private static List<ClassSymbol> getDirectSuperTypes(ClassSymbol clazz) {
+		List<ClassSymbol> superTypes = new ArrayList<>();
+		if (clazz.getSuperclass() != null && clazz.getSuperclass().tsym instanceof ClassSymbol) {
+			superTypes.add((ClassSymbol) clazz.getSuperclass().tsym);
 		}
-		Overload superOverload = context.getOverload(clazz, method.sym);
-		if (superOverload != null && superOverload != overload) {
-			superOverload.merge(types, overload);
-		}
-		inspectSuperTypes((ClassSymbol) clazz.getSuperclass().tsym, overload, method);
 		for (Type t : clazz.getInterfaces()) {
-			inspectSuperTypes((ClassSymbol) t.tsym, overload, method);
+			if (t.tsym instanceof ClassSymbol) {
+				superTypes.add((ClassSymbol) t.tsym);
+			}
+		}
+		return superTypes;
+	}
+
+	/**
+	 * Gets the supertypes of the given class, calculated once from the ones of
+	 * its direct supertypes.
+	 */
+	private List<ClassSymbol> getAncestors(ClassSymbol clazz) {
+		List<ClassSymbol> result = ancestors.get(clazz);
+		if (result == null) {
+			Set<ClassSymbol> superTypes = new LinkedHashSet<>();
+			for (ClassSymbol superType : getDirectSuperTypes(clazz)) {
+				superTypes.add(superType);
+				superTypes.addAll(getAncestors(superType));
+			}
+			result = new ArrayList<>(superTypes);
+			ancestors.put(clazz, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Merges the overloads of the scanned classes with the ones of their
+	 * supertypes. The classes are visited in the topological order of their
+	 * hierarchy, so that the overloads of the supertypes are complete when
+	 * merged into their subclasses, and each overload is merged once with each
+	 * supertype overload.
+	 */
+	private void mergeInheritedOverloads() {
+		DirectedGraph<ClassSymbol> hierarchy = new DirectedGraph<>();
+		hierarchy.addAll(classOverloads.keySet());
+		for (ClassSymbol clazz : classOverloads.keySet()) {
+			for (ClassSymbol superType : getDirectSuperTypes(clazz)) {
+				if (classOverloads.containsKey(superType)) {
+					hierarchy.addEdge(superType, clazz);
+				}
+			}
+		}
+		for (ClassSymbol clazz : hierarchy.topologicalSort(null)) {
+			List<ClassSymbol> superTypes = getAncestors(clazz);
+			for (Entry<Overload, JCMethodDecl> e : classOverloads.get(clazz).entrySet()) {
+				for (ClassSymbol superType : superTypes) {
+					Overload superOverload = context.getOverload(superType, e.getValue().sym);
+					if (superOverload != null && superOverload != e.getKey()) {
+						superOverload.merge(erasureCache, e.getKey());
+					}
+				}
+			}
 		}
 	}
 
 	@Override
 	public void visitClassDef(JCClassDecl classdecl) {
 		ClassSymbol clazz = classdecl.sym;
+		Map<Overload, JCMethodDecl> overloads = classOverloads.computeIfAbsent(clazz, c -> new LinkedHashMap<>());
 		for (JCTree member : classdecl.defs) {
 			if (member instanceof JCMethodDecl) {
 				if (Util.hasAnnotationType(((JCMethodDecl) member).sym, JSweetConfig.ANNOTATION_ERASED)) {
@@ -336,12 +424,9 @@ public class OverloadScanner extends AbstractTreeScanner {
 				}
 				JCMethodDecl method = (JCMethodDecl) member;
 				Overload overload = context.getOrCreateOverload(clazz, method.sym);
-				if (pass == 1) {
-					overload.methods.add(method);
-				} else {
-					if (!((JCMethodDecl) member).sym.isConstructor()) {
-						inspectSuperTypes(classdecl.sym, overload, method);
-					}
+				overload.methods.add(method);
+				if (!method.sym.isConstructor()) {
+					overloads.putIfAbsent(overload, method);
 				}
 			}
 			// scan inner classes
@@ -365,12 +450,9 @@ public class OverloadScanner extends AbstractTreeScanner {
 		for (JCCompilationUnit cu : cuList) {
 			scan(cu);
 		}
-		pass++;
-		for (JCCompilationUnit cu : cuList) {
-			scan(cu);
-		}
+		mergeInheritedOverloads();
 		for (Overload overload : context.getAllOverloads()) {
-			overload.calculate(types, context.symtab);
+			overload.calculate(types, context.symtab, erasureCache);
 			if (overload.methods.size() > 1 && !overload.isValid) {
 				if (overload.coreMethod.sym.isConstructor()) {
 					context.classesWithWrongConstructorOverload.add(overload.coreMethod.sym.enclClass());
@@ -55,4 +55,16 @@ public interface TranspilationHandler {
 	 */
 	public void onCompleted(JSweetTranspiler transpiler, boolean fullPass, SourceFile[] files);
 
+	/**
+	 * This method is invoked at the end of each transpilation with the timings
+	 * and counters measured by the transpiler. Does nothing by default.
+	 * 
+	 * @param transpiler
+	 *            the transpiler that generates this event
+	 * @param metrics
+	 *            the metrics of the transpilation
+	 */
+	public default void onMetrics(JSweetTranspiler transpiler, TranspilationMetrics metrics) {
+	}
+
 }
\ No newline at end of file
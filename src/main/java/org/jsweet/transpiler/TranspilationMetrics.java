@@ -0,0 +1,372 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.transpiler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.google.gson.GsonBuilder;
+
+/**
+ * The timings and counters of a transpilation, as measured by the transpiler
+ * (see {@link JSweetTranspiler#getLastMetrics()} and
+ * {@link TranspilationHandler#onMetrics(JSweetTranspiler, TranspilationMetrics)}).
+ *
+ * <p>
+ * The transpilation is split in phases (see the <code>PHASE_*</code>
+ * constants), for which the wall and CPU times of the transpiling thread are
+ * measured. Phases may be nested (for instance, files are written during the
+ * translation): the time of a phase does not include the time of its nested
+ * phases. The phases entered by other threads (for instance when tsc runs
+ * concurrently with the translation) are not measured. The translation time of each compilation unit is also measured,
+ * including when the units are translated concurrently.
+ *
+ * @author Renaud Pawlak
+ */
+public class TranspilationMetrics {
+
+	private static final Logger logger = Logger.getLogger(TranspilationMetrics.class);
+
+	private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+	/**
+	 * The node and tsc installation check phase.
+	 */
+	public static final String PHASE_INIT_NODE = "initNode";
+	/**
+	 * The candies extraction phase.
+	 */
+	public static final String PHASE_PROCESS_CANDIES = "processCandies";
+	/**
+	 * The Java parsing phase.
+	 */
+	public static final String PHASE_PARSE = "parse";
+	/**
+	 * The Java symbols entering phase.
+	 */
+	public static final String PHASE_ENTER_TREES = "enterTrees";
+	/**
+	 * The Java attribution (type checking) phase.
+	 */
+	public static final String PHASE_ATTRIBUTE = "attribute";
+	/**
+	 * The global scanning phase (see {@link GlobalBeforeTranslationScanner}).
+	 */
+	public static final String PHASE_GLOBAL_SCAN = "globalScan";
+	/**
+	 * The overload scanning phase (see {@link OverloadScanner}).
+	 */
+	public static final String PHASE_OVERLOAD_SCAN = "overloadScan";
+	/**
+	 * The Java to TypeScript translation phase.
+	 */
+	public static final String PHASE_TRANSLATION = "translation";
+	/**
+	 * The generated files writing phase.
+	 */
+	public static final String PHASE_WRITE = "write";
+	/**
+	 * The TypeScript to JavaScript compilation phase (when tsc runs
+	 * concurrently with the translation, only the time spent waiting for it is
+	 * measured).
+	 */
+	public static final String PHASE_TSC = "tsc";
+
+	/**
+	 * The number of compilation units translated.
+	 */
+	public static final String COUNTER_TRANSLATED_UNITS = "translatedUnits";
+	/**
+	 * The number of compilation units restored from the incremental index
+	 * (i.e. not translated again).
+	 */
+	public static final String COUNTER_RESTORED_UNITS = "restoredUnits";
+	/**
+	 * The number of generated files written.
+	 */
+	public static final String COUNTER_WRITTEN_FILES = "writtenFiles";
+	/**
+	 * The number of generated files not written because unchanged.
+	 */
+	public static final String COUNTER_SKIPPED_FILES = "skippedFiles";
+	/**
+	 * The number of bytes written to the generated files.
+	 */
+	public static final String COUNTER_WRITTEN_BYTES = "writtenBytes";
+	/**
+	 * The number of classpath symbols kept from the previous transpilation.
+	 */
+	public static final String COUNTER_REUSED_CLASS_SYMBOLS = "reusedClassSymbols";
+	/**
+	 * The number of classpath symbols (re)loaded by the transpilation.
+	 */
+	public static final String COUNTER_COMPLETED_CLASS_SYMBOLS = "completedClassSymbols";
+	/**
+	 * 1 if tsc was skipped because the generated files were unchanged.
+	 */
+	public static final String COUNTER_TSC_SKIPPED = "tscSkipped";
+	/**
+	 * The number of method bodies released after translation (in low memory
+	 * mode).
+	 */
+	public static final String COUNTER_RELEASED_METHOD_BODIES = "releasedMethodBodies";
+
+	/**
+	 * The times measured for a phase.
+	 */
+	public static class PhaseMetrics {
+		private long wallTime;
+		private long cpuTime;
+		private int count;
+
+		/**
+		 * Gets the wall time of this phase, in nanoseconds.
+		 */
+		public long getWallTime() {
+			return wallTime;
+		}
+
+		/**
+		 * Gets the CPU time of the transpiling thread during this phase, in
+		 * nanoseconds (0 if not supported by the JVM).
+		 */
+		public long getCpuTime() {
+			return cpuTime;
+		}
+
+		/**
+		 * Gets the number of times this phase was entered.
+		 */
+		public int getCount() {
+			return count;
+		}
+	}
+
+	private static class RunningPhase {
+		PhaseMetrics metrics;
+		String name;
+		long wallStart;
+		long cpuStart;
+
+		RunningPhase(String name, PhaseMetrics metrics) {
+			this.name = name;
+			this.metrics = metrics;
+			resume();
+		}
+
+		void resume() {
+			wallStart = System.nanoTime();
+			cpuStart = getCpuTime();
+		}
+
+		void pause() {
+			metrics.wallTime += System.nanoTime() - wallStart;
+			metrics.cpuTime += getCpuTime() - cpuStart;
+		}
+	}
+
+	private final Thread transpilingThread = Thread.currentThread();
+	private final long startTimestamp = System.currentTimeMillis();
+	private final long startTime = System.nanoTime();
+	private long wallTime = -1;
+	private Map<String, PhaseMetrics> phases = new LinkedHashMap<>();
+	private LinkedList<RunningPhase> runningPhases = new LinkedList<>();
+	private Map<String, Long> unitTranslationTimes = new LinkedHashMap<>();
+	private Map<String, Long> counters = new LinkedHashMap<>();
+
+	private static long getCpuTime() {
+		return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : 0;
+	}
+
+	/**
+	 * Starts measuring the given phase (must be followed by a call to
+	 * {@link #endPhase(String)}). Only the transpiling thread, which created
+	 * these metrics, measures phases: this call is ignored on other threads.
+	 */
+	public void startPhase(String phase) {
+		if (Thread.currentThread() != transpilingThread) {
+			return;
+		}
+		if (!runningPhases.isEmpty()) {
+			runningPhases.peek().pause();
+		}
+		runningPhases.push(new RunningPhase(phase, phases.computeIfAbsent(phase, p -> new PhaseMetrics())));
+	}
+
+	/**
+	 * Ends measuring the given phase.
+	 */
+	public void endPhase(String phase) {
+		if (Thread.currentThread() != transpilingThread) {
+			return;
+		}
+		if (runningPhases.isEmpty() || !runningPhases.peek().name.equals(phase)) {
+			logger.warn("unexpected end of phase " + phase);
+			return;
+		}
+		RunningPhase runningPhase = runningPhases.pop();
+		runningPhase.pause();
+		runningPhase.metrics.count++;
+		if (!runningPhases.isEmpty()) {
+			runningPhases.peek().resume();
+		}
+	}
+
+	/**
+	 * Records the translation time of a compilation unit.
+	 *
+	 * @param unit
+	 *            the unit's source file name
+	 * @param time
+	 *            the translation time, in nanoseconds
+	 */
+	public synchronized void addUnitTranslationTime(String unit, long time) {
+		unitTranslationTimes.merge(unit, time, Long::sum);
+		increment(COUNTER_TRANSLATED_UNITS, 1);
+	}
+
+	/**
+	 * Increments the given counter.
+	 */
+	public synchronized void increment(String counter, long delta) {
+		counters.merge(counter, delta, Long::sum);
+	}
+
+	/**
+	 * Ends this transpilation metrics (stops the wall time count).
+	 */
+	void end() {
+		wallTime = System.nanoTime() - startTime;
+	}
+
+	/**
+	 * Gets the time when the transpilation started (in milliseconds since the
+	 * epoch).
+	 */
+	public long getStartTimestamp() {
+		return startTimestamp;
+	}
+
+	/**
+	 * Gets the total wall time of the transpilation, in nanoseconds (or the
+	 * time elapsed since its start if not ended yet).
+	 */
+	public long getWallTime() {
+		return wallTime >= 0 ? wallTime : System.nanoTime() - startTime;
+	}
+
+	/**
+	 * Gets the metrics of the given phase (null if the phase did not occur).
+	 */
+	public PhaseMetrics getPhase(String phase) {
+		return phases.get(phase);
+	}
+
+	/**
+	 * Gets the metrics of the phases, in the order they first occurred.
+	 */
+	public Map<String, PhaseMetrics> getPhases() {
+		return Collections.unmodifiableMap(phases);
+	}
+
+	/**
+	 * Gets the translation times (in nanoseconds) of the compilation units, by
+	 * source file name.
+	 */
+	public synchronized Map<String, Long> getUnitTranslationTimes() {
+		return new LinkedHashMap<>(unitTranslationTimes);
+	}
+
+	/**
+	 * Gets the value of the given counter (0 if never incremented).
+	 */
+	public synchronized long getCounter(String counter) {
+		return counters.getOrDefault(counter, 0L);
+	}
+
+	/**
+	 * Gets all the counters.
+	 */
+	public synchronized Map<String, Long> getCounters() {
+		return new LinkedHashMap<>(counters);
+	}
+
+	/**
+	 * Gets the hit rate of a cache, between 0 and 1 (or -1 if the cache was not
+	 * used).
+	 *
+	 * @param hitCounter
+	 *            the counter of the cache hits
+	 * @param missCounter
+	 *            the counter of the cache misses
+	 */
+	public double getHitRate(String hitCounter, String missCounter) {
+		long hits = getCounter(hitCounter);
+		long total = hits + getCounter(missCounter);
+		return total == 0 ? -1 : (double) hits / total;
+	}
+
+	private static double toMillis(long nanos) {
+		return Math.round(nanos / 1000.0) / 1000.0;
+	}
+
+	/**
+	 * Gets these metrics as a JSON object (all the times are given in
+	 * milliseconds).
+	 */
+	public String toJson() {
+		Map<String, Object> json = new LinkedHashMap<>();
+		json.put("startTimestamp", startTimestamp);
+		json.put("wallTime", toMillis(getWallTime()));
+		Map<String, Object> phasesJson = new LinkedHashMap<>();
+		for (Map.Entry<String, PhaseMetrics> phase : phases.entrySet()) {
+			Map<String, Object> phaseJson = new LinkedHashMap<>();
+			phaseJson.put("wallTime", toMillis(phase.getValue().wallTime));
+			phaseJson.put("cpuTime", toMillis(phase.getValue().cpuTime));
+			phaseJson.put("count", phase.getValue().count);
+			phasesJson.put(phase.getKey(), phaseJson);
+		}
+		json.put("phases", phasesJson);
+		json.put("counters", getCounters());
+		Map<String, Object> hitRates = new LinkedHashMap<>();
+		hitRates.put("units", getHitRate(COUNTER_RESTORED_UNITS, COUNTER_TRANSLATED_UNITS));
+		hitRates.put("outputFiles", getHitRate(COUNTER_SKIPPED_FILES, COUNTER_WRITTEN_FILES));
+		hitRates.put("classSymbols", getHitRate(COUNTER_REUSED_CLASS_SYMBOLS, COUNTER_COMPLETED_CLASS_SYMBOLS));
+		json.put("hitRates", hitRates);
+		Map<String, Object> unitsJson = new LinkedHashMap<>();
+		getUnitTranslationTimes().forEach((unit, time) -> unitsJson.put(unit, toMillis(time)));
+		json.put("unitTranslationTimes", unitsJson);
+		return new GsonBuilder().setPrettyPrinting().create().toJson(json);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("transpilation metrics: " + toMillis(getWallTime()) + " ms");
+		for (Map.Entry<String, PhaseMetrics> phase : phases.entrySet()) {
+			sb.append(", " + phase.getKey() + "=" + toMillis(phase.getValue().wallTime) + " ms");
+		}
+		sb.append(", " + getCounters());
+		return sb.toString();
+	}
+
+}
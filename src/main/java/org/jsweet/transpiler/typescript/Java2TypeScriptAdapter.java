@@ -263,7 +263,7 @@ public class Java2TypeScriptAdapter extends AbstractPrinterAdapter {
 				Symbol nameSymbol = fa.sym;
 				if (nameSymbol == null) {
 					TypeSymbol t = fa.selected.type.tsym;
-					nameSymbol = Util.findFirstDeclarationInType(t, methodName);
+					nameSymbol = getPrinter().getContext().getMemberIndex().findFirstDeclarationInType(t, methodName);
 				}
 
 				return StringUtils.isBlank(name) ? null : name + "." + (nameSymbol == null ? methodName : getIdentifier(nameSymbol));
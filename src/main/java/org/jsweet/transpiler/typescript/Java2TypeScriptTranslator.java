@@ -261,11 +261,24 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 
 	private PackageSymbol topLevelPackage;
 
+	private long id = 121;
+
+	/**
+	 * Returns an id that is unique within the translated compilation unit
+	 * (incremental), so that the output of a unit does not depend on the other
+	 * units, whatever the order in which they are translated.
+	 */
+	private long getId() {
+		return id++;
+	}
+
 	private void useModule(boolean require, PackageSymbol targetPackage, JCTree sourceTree, String targetName, String moduleName, Symbol sourceElement) {
 		if (context.useModules) {
-			context.packageDependencies.add(targetPackage);
-			context.packageDependencies.add(compilationUnit.packge);
-			context.packageDependencies.addEdge(compilationUnit.packge, targetPackage);
+			synchronized (context.packageDependencies) {
+				context.packageDependencies.add(targetPackage);
+				context.packageDependencies.add(compilationUnit.packge);
+				context.packageDependencies.addEdge(compilationUnit.packge, targetPackage);
+			}
 		}
 		context.registerUsedModule(moduleName);
 		Set<String> importedNames = context.getImportedNames(compilationUnit.getSourceFile().getName());
@@ -321,14 +334,16 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 				return;
 			}
 		}
-		context.importedTopPackages.clear();
-		context.rootPackages.add(rootPackage);
-		if (context.useModules && context.rootPackages.size() > 1) {
-			if (!context.reportedMultipleRootPackages) {
-				report(topLevel.getPackageName(), JSweetProblem.MULTIPLE_ROOT_PACKAGES_NOT_ALLOWED_WITH_MODULES, context.rootPackages.toString());
-				context.reportedMultipleRootPackages = true;
+		context.getImportedTopPackages().clear();
+		synchronized (context.rootPackages) {
+			context.rootPackages.add(rootPackage);
+			if (context.useModules && context.rootPackages.size() > 1) {
+				if (!context.reportedMultipleRootPackages) {
+					report(topLevel.getPackageName(), JSweetProblem.MULTIPLE_ROOT_PACKAGES_NOT_ALLOWED_WITH_MODULES, context.rootPackages.toString());
+					context.reportedMultipleRootPackages = true;
+				}
+				return;
 			}
-			return;
 		}
 
 		topLevelPackage = Util.getTopLevelPackage(topLevel.packge);
@@ -801,7 +816,7 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 		if (defaultMethods != null && !defaultMethods.isEmpty()) {
 			getScope().defaultMethodScope = true;
 			for (Entry<JCClassDecl, JCMethodDecl> entry : defaultMethods) {
-				MethodSymbol s = Util.findMethodDeclarationInType(context.types, classdecl.sym, entry.getValue().getName().toString(),
+				MethodSymbol s = context.getMemberIndex().findMethodDeclarationInType(context.types, classdecl.sym, entry.getValue().getName().toString(),
 						(MethodType) entry.getValue().type);
 				if (s == null || s == entry.getValue().sym) {
 					getAdapter().typeVariablesToErase.addAll(((ClassSymbol) s.getEnclosingElement()).getTypeParameters());
@@ -827,7 +842,7 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 			Map<Name, String> signatures = new HashMap<>();
 			for (MethodSymbol meth : methods) {
 				if (meth.type instanceof MethodType) {
-					MethodSymbol s = Util.findMethodDeclarationInType(getContext().types, classdecl.sym, meth.getSimpleName().toString(),
+					MethodSymbol s = getContext().getMemberIndex().findMethodDeclarationInType(getContext().types, classdecl.sym, meth.getSimpleName().toString(),
 							(MethodType) meth.type, true);
 					boolean printDefaultImplementation = false;
 					if (s != null) {
@@ -847,7 +862,7 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 						}
 					}
 					if (s == null || printDefaultImplementation) {
-						String signature = getContext().types.erasure(meth.type).toString();
+						String signature = getContext().getErasureCache().getErasedName(meth.type);
 						if (!(signatures.containsKey(meth.name) && signatures.get(meth.name).equals(signature))) {
 							printDefaultImplementation(meth);
 							signatures.put(meth.name, signature);
@@ -1111,7 +1126,7 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 			if (!isBlank(mainClassName)) {
 				mainMethodQualifier = mainClassName + ".";
 			}
-			context.entryFiles.add(new File(compilationUnit.sourcefile.getName()));
+			context.addEntryFile(new File(compilationUnit.sourcefile.getName()));
 			context.addFooterStatement(
 					mainMethodQualifier + JSweetConfig.MAIN_FUNCTION_NAME + "(" + (mainMethod.getParameters().isEmpty() ? "" : "null") + ");");
 		}
@@ -1219,24 +1234,22 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 
 		boolean ambient = Util.hasAnnotationType(methodDecl.sym, JSweetConfig.ANNOTATION_AMBIENT);
 		int jsniLine = -1;
-		String[] content = null;
 
 		if (methodDecl.mods.getFlags().contains(Modifier.NATIVE)) {
 			if (!getScope().declareClassScope && !ambient && !getScope().interfaceScope) {
-				content = getGetSource(getCompilationUnit());
-				if (content != null) {
-					int line = 0;
-					if (methodDecl.getParameters() != null && !methodDecl.getParameters().isEmpty()) {
-						line = diagnosticSource.getLineNumber(methodDecl.getParameters().last().getStartPosition()) - 1;
-					} else {
-						line = diagnosticSource.getLineNumber(methodDecl.getStartPosition()) - 1;
-					}
-					if (content[line].contains("/*-{")) {
-						jsniLine = line;
-					} else {
-						if (content[line + 1].contains("/*-{")) {
-							jsniLine = line + 1;
-						}
+				int line = 0;
+				if (methodDecl.getParameters() != null && !methodDecl.getParameters().isEmpty()) {
+					line = diagnosticSource.getLineNumber(methodDecl.getParameters().last().getStartPosition());
+				} else {
+					line = diagnosticSource.getLineNumber(methodDecl.getStartPosition());
+				}
+				String content = getSourceLine(getCompilationUnit(), line);
+				if (content != null && content.contains("/*-{")) {
+					jsniLine = line;
+				} else {
+					content = getSourceLine(getCompilationUnit(), line + 1);
+					if (content != null && content.contains("/*-{")) {
+						jsniLine = line + 1;
 					}
 				}
 				if (jsniLine == -1) {
@@ -1422,19 +1435,20 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 			} else if (jsniLine != -1) {
 				int line = jsniLine;
 				print(" {").println().startIndent();
-				String jsniCode = content[line].substring(content[line].indexOf("/*-{") + 4).trim();
+				String content = getSourceLine(getCompilationUnit(), line);
+				String jsniCode = content.substring(content.indexOf("/*-{") + 4).trim();
 				StringBuilder jsni = new StringBuilder();
 				if (!StringUtils.isEmpty(jsniCode)) {
 					jsni.append(jsniCode);
 					jsni.append("\n");
 				}
-				line++;
-				while (!content[line].contains("}-*/")) {
-					jsniCode = content[line++].trim();
-					jsni.append(jsniCode);
+				content = getSourceLine(getCompilationUnit(), ++line);
+				while (!content.contains("}-*/")) {
+					jsni.append(content.trim());
 					jsni.append("\n");
+					content = getSourceLine(getCompilationUnit(), ++line);
 				}
-				jsniCode = content[line].substring(0, content[line].indexOf("}-*/")).trim();
+				jsniCode = content.substring(0, content.indexOf("}-*/")).trim();
 				if (!StringUtils.isEmpty(jsniCode)) {
 					jsni.append(jsniCode);
 					jsni.append("\n");
@@ -1607,7 +1621,7 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 			if (!method.getBody().stats.isEmpty() && method.getBody().stats.get(0).toString().startsWith("this(")) {
 				skipFirst = true;
 				JCMethodInvocation inv = (JCMethodInvocation) ((JCExpressionStatement) method.getBody().stats.get(0)).expr;
-				MethodSymbol ms = Util.findMethodDeclarationInType(context.types, (TypeSymbol) overload.coreMethod.sym.getEnclosingElement(), inv);
+				MethodSymbol ms = context.getMemberIndex().findMethodDeclarationInType(context.types, (TypeSymbol) overload.coreMethod.sym.getEnclosingElement(), inv);
 				for (JCMethodDecl md : overload.methods) {
 					if (md.sym.equals(ms)) {
 						printIndent();
@@ -1700,7 +1714,7 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 		StringBuilder sb = new StringBuilder(method.getName().toString());
 		sb.append("$");
 		for (JCVariableDecl p : method.getParameters()) {
-			sb.append(context.types.erasure(p.type).toString().replace('.', '_').replace("[]", "_A"));
+			sb.append(context.getErasureCache().getErasedName(p.type).replace('.', '_').replace("[]", "_A"));
 			sb.append("$");
 		}
 		if (!method.getParameters().isEmpty()) {
@@ -1801,7 +1815,7 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 					print(", ");
 				}
 				printArgList(newClass.args).print(")");
-				String expr = getOutput().substring(pos);
+				String expr = getOutput(pos);
 				removeLastChars(getCurrentPosition() - pos);
 				getScope().javaEnumKeys.add(expr);
 				return;
@@ -1813,7 +1827,7 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 			}
 
 			if (parent instanceof JCClassDecl) {
-				MethodSymbol m = Util.findMethodDeclarationInType(context.types, ((JCClassDecl) parent).sym, name, null);
+				MethodSymbol m = context.getMemberIndex().findMethodDeclarationInType(context.types, ((JCClassDecl) parent).sym, name, null);
 				if (m != null) {
 					report(varDecl, varDecl.name, JSweetProblem.FIELD_CONFLICTS_METHOD, name, m.owner);
 				}
@@ -1822,7 +1836,7 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 				}
 			} else {
 				if (context.bundleMode) {
-					if (context.importedTopPackages.contains(name)) {
+					if (context.getImportedTopPackages().contains(name)) {
 						name = "__var_" + name;
 					}
 				}
@@ -2031,19 +2045,18 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 					}
 				} else {
 					if (topLevelPackage == null) {
-						if (context.globalImports.contains(name)) {
+						if (!context.registerGlobalImport(name)) {
 							// Tsc global package does allow multiple import
 							// with
 							// the same name in the global namespace (bug?)
 							return;
 						}
-						context.globalImports.add(name);
 					}
 					if (context.bundleMode) {
 						// in bundle mode, we do not use imports to minimize
 						// dependencies
 						// (imports create unavoidable dependencies!)
-						context.importedTopPackages.add(namePath[0]);
+						context.getImportedTopPackages().add(namePath[0]);
 					} else {
 						print("import ").print(name).print(" = ").print(adaptedQualId).print(";");
 					}
@@ -2183,7 +2196,7 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 				JCImport staticImport = getStaticGlobalImport(methName);
 				if (staticImport == null) {
 					JCClassDecl p = getParent(JCClassDecl.class);
-					methSym = p == null ? null : Util.findMethodDeclarationInType(context.types, p.sym, methName, type);
+					methSym = p == null ? null : context.getMemberIndex().findMethodDeclarationInType(context.types, p.sym, methName, type);
 					if (methSym != null) {
 						typeChecker.checkApply(inv, methSym);
 						if (!methSym.isStatic()) {
@@ -2228,7 +2241,7 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 							if (parent != null) {
 								while (getScope(level++).innerClass) {
 									parent = getParent(JCClassDecl.class, parent);
-									if ((method = Util.findMethodDeclarationInType(context.types, parent.sym, methName, type)) != null) {
+									if ((method = context.getMemberIndex().findMethodDeclarationInType(context.types, parent.sym, methName, type)) != null) {
 										break;
 									}
 								}
@@ -2251,7 +2264,7 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 					}
 				} else {
 					JCFieldAccess staticFieldAccess = (JCFieldAccess) staticImport.qualid;
-					methSym = Util.findMethodDeclarationInType(context.types, staticFieldAccess.selected.type.tsym, methName, type);
+					methSym = context.getMemberIndex().findMethodDeclarationInType(context.types, staticFieldAccess.selected.type.tsym, methName, type);
 					if (methSym != null) {
 						Map<String, VarSymbol> vars = new HashMap<>();
 						Util.fillAllVariablesInScope(vars, getStack(), inv, getParent(JCMethodDecl.class));
@@ -2291,7 +2304,7 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 					if (Util.hasAnnotationType(selected.type.tsym, FunctionalInterface.class.getName())) {
 						anonymous = true;
 					}
-					methSym = Util.findMethodDeclarationInType(context.types, selected.type.tsym, methName, type);
+					methSym = context.getMemberIndex().findMethodDeclarationInType(context.types, selected.type.tsym, methName, type);
 					if (methSym != null) {
 						typeChecker.checkApply(inv, methSym);
 					}
@@ -2302,8 +2315,8 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 			if (!Util.hasVarargs(methSym) //
 					|| !inv.args.isEmpty() && (inv.args.last().type.getKind() != TypeKind.ARRAY
 							// we dont use apply if var args type differ
-							|| !context.types.erasure(((ArrayType) inv.args.last().type).elemtype)
-									.equals(context.types.erasure(((ArrayType) methSym.getParameters().last().type).elemtype)))) {
+							|| !context.getErasureCache().erasure(((ArrayType) inv.args.last().type).elemtype)
+									.equals(context.getErasureCache().erasure(((ArrayType) methSym.getParameters().last().type).elemtype)))) {
 				applyVarargs = false;
 			}
 
@@ -2515,7 +2528,7 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 							print("this.");
 						} else {
 							if (context.bundleMode && varSym.owner instanceof MethodSymbol) {
-								if (context.importedTopPackages.contains(name)) {
+								if (context.getImportedTopPackages().contains(name)) {
 									name = "__var_" + name;
 								}
 							}
@@ -2806,8 +2819,8 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 						if (newClass.args.size() == 0 || !Util.hasVarargs(methSym) //
 								|| newClass.args.last().type.getKind() != TypeKind.ARRAY
 								// we dont use apply if var args type differ
-								|| !context.types.erasure(((ArrayType) newClass.args.last().type).elemtype)
-										.equals(context.types.erasure(((ArrayType) methSym.getParameters().last().type).elemtype))) {
+								|| !context.getErasureCache().erasure(((ArrayType) newClass.args.last().type).elemtype)
+										.equals(context.getErasureCache().erasure(((ArrayType) methSym.getParameters().last().type).elemtype))) {
 							applyVarargs = false;
 						}
 						if (applyVarargs) {
@@ -2937,13 +2950,13 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 
 	@Override
 	public void visitForeachLoop(JCEnhancedForLoop foreachLoop) {
-		String indexVarName = "index" + Util.getId();
+		String indexVarName = "index" + getId();
 		boolean noVariable = foreachLoop.expr instanceof JCIdent || foreachLoop.expr instanceof JCFieldAccess;
 		boolean[] hasLength = { false };
 		TypeSymbol targetType = foreachLoop.expr.type.tsym;
-		Util.scanMemberDeclarationsInType(targetType, getAdapter().getErasedTypes(), element -> {
+		context.getMemberIndex().scanMemberDeclarationsInType(targetType, getAdapter().getErasedTypes(), "length", element -> {
 			if (element instanceof VarSymbol) {
-				if ("length".equals(element.getSimpleName().toString()) && Util.isNumber(((VarSymbol) element).type)) {
+				if (Util.isNumber(((VarSymbol) element).type)) {
 					hasLength[0] = true;
 					return false;
 				}
@@ -2960,7 +2973,7 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 						.print("." + "length" + "; " + indexVarName + "++) {").println().startIndent().printIndent();
 				print(VAR_DECL_KEYWORD + " " + foreachLoop.var.name.toString() + " = ").print(foreachLoop.expr).print("[" + indexVarName + "];").println();
 			} else {
-				String arrayVarName = "array" + Util.getId();
+				String arrayVarName = "array" + getId();
 				print("{").println().startIndent().printIndent();
 				print(VAR_DECL_KEYWORD + " " + arrayVarName + " = ").print(foreachLoop.expr).print(";").println().printIndent();
 				print("for(" + VAR_DECL_KEYWORD + " " + indexVarName + "=0; " + indexVarName + " < " + arrayVarName + ".length; " + indexVarName + "++) {")
@@ -3184,35 +3197,32 @@ public class Java2TypeScriptTranslator extends AbstractTreePrinter {
 		}
 	}
 
-	boolean inRollback = false;
+	@Override
+	protected void enter(JCTree tree) {
+		super.enter(tree);
+		if (tree instanceof JCStatement && !context.lazyInitializedStatics.isEmpty()) {
+			// initializes the fields incremented or decremented by the
+			// statement (see GlobalBeforeTranslationScanner)
+			Set<VarSymbol> fields = context.getStaticInitializationPreamble((JCStatement) tree);
+			if (fields != null) {
+				for (VarSymbol field : fields) {
+					print(Util.getRootRelativeName(null, field.getEnclosingElement())).print(".")
+							.print(field.getSimpleName().toString() + STATIC_INITIALIZATION_SUFFIX + "();").println().printIndent();
+				}
+			}
+		}
+	}
 
 	@Override
 	public void visitUnary(JCUnary unary) {
 		if (getContext().options.isSupportSaticLazyInitialization()) {
-			if (!inRollback) {
-				JCStatement statement = null;
-				VarSymbol[] staticInitializedField = { null };
-				switch (unary.getTag()) {
-				case POSTDEC:
-				case POSTINC:
-				case PREDEC:
-				case PREINC:
-					staticInitializedAssignment = (staticInitializedField[0] = getStaticInitializedField(unary.arg)) != null;
-					if (staticInitializedAssignment) {
-						statement = getParent(JCStatement.class);
-					}
-				default:
-				}
-				if (statement != null) {
-					rollback(statement, tree -> {
-						print(Util.getRootRelativeName(null, staticInitializedField[0].getEnclosingElement())).print(".")
-								.print(staticInitializedField[0].getSimpleName().toString() + STATIC_INITIALIZATION_SUFFIX + "();").println().printIndent();
-						inRollback = true;
-						scan(tree);
-					});
-				}
-			} else {
-				inRollback = false;
+			switch (unary.getTag()) {
+			case POSTDEC:
+			case POSTINC:
+			case PREDEC:
+			case PREINC:
+				staticInitializedAssignment = getStaticInitializedField(unary.arg) != null;
+			default:
 			}
 		}
 		switch (unary.getTag()) {
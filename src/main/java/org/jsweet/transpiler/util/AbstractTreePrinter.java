@@ -19,8 +19,11 @@ package org.jsweet.transpiler.util;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.join;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Stack;
 import java.util.function.Consumer;
 
 import org.apache.log4j.Logger;
@@ -48,23 +51,37 @@ public abstract class AbstractTreePrinter extends AbstractTreeScanner {
 
 	private static final Logger logger = Logger.getLogger(AbstractTreePrinter.class);
 
-	private Stack<Position> positionStack = new Stack<>();
+	/**
+	 * The number of ints pushed on the position stack for each entered tree:
+	 * the output position, line and column, and the source map size.
+	 */
+	private static final int POSITION_FRAME_SIZE = 4;
+
+	private int[] positionStack = new int[64 * POSITION_FRAME_SIZE];
+
+	private int positionStackSize = 0;
 
 	/**
 	 * A footer to be printed at the end of the output.
 	 */
 	public StringBuilder footer = new StringBuilder();
 
-	/**
-	 * The position stack of the scanner.
-	 */
-	public Stack<Position> getPositionStack() {
-		return positionStack;
+	private static final String INDENT = "    ";
+
+	private static final String[] INDENTS = new String[32];
+
+	static {
+		INDENTS[0] = "";
+		for (int i = 1; i < INDENTS.length; i++) {
+			INDENTS[i] = INDENTS[i - 1] + INDENT;
+		}
 	}
 
-	private static final String INDENT = "    ";
+	private PrinterBuffer out = new PrinterBuffer();
+
+	private Writer outputWriter;
 
-	private StringBuilder out = new StringBuilder();
+	private int topLevelMemberEnd = -1;
 
 	private int indent = 0;
 
@@ -105,17 +122,52 @@ public abstract class AbstractTreePrinter extends AbstractTreeScanner {
 	}
 
 	/**
-	 * Gets this output of this printer.
+	 * Gets this output of this printer (the output already flushed to the
+	 * writer set with {@link #setOutputWriter(Writer)} is not included).
 	 */
 	public String getOutput() {
 		return out.toString();
 	}
 
+	/**
+	 * Gets the output of this printer from the given position (as returned
+	 * by {@link #getCurrentPosition()}), which must not have been flushed to
+	 * the writer set with {@link #setOutputWriter(Writer)}.
+	 */
+	public String getOutput(int from) {
+		return out.substring(from);
+	}
+
+	/**
+	 * Writes the output of this printer to the given writer, without copying
+	 * it to an intermediate string (the output already flushed to the writer
+	 * set with {@link #setOutputWriter(Writer)} is not written again).
+	 */
+	public void writeOutput(Writer writer) throws IOException {
+		out.writeTo(writer);
+	}
+
+	/**
+	 * Sets a writer to which the output of the top-level members is flushed
+	 * as soon as they are printed, so that the output of a large compilation
+	 * unit is not held in memory as a whole. Once flushed, the output is not
+	 * available anymore with {@link #getOutput()} and the remaining output
+	 * must be written with {@link #writeOutput(Writer)}. This writer is
+	 * ignored when preserving the source line numbers, since line adjustments
+	 * may remove previously printed new lines.
+	 */
+	public void setOutputWriter(Writer outputWriter) {
+		this.outputWriter = outputWriter;
+	}
+
 	/**
 	 * Print a given AST.
 	 */
 	public AbstractTreePrinter print(JCTree tree) {
 		scan(tree);
+		if (positionStackSize == 0) {
+			sourceMap.trimToSize();
+		}
 		return this;
 	}
 
@@ -124,18 +176,29 @@ public abstract class AbstractTreePrinter extends AbstractTreeScanner {
 	 */
 	protected void enter(JCTree tree) {
 		super.enter(tree);
+		if (outputWriter != null && !preserveSourceLineNumbers && topLevelMemberEnd > out.getFlushedLength() && isTopLevelMember()) {
+			// the previous top-level members are finished
+			try {
+				out.flush(outputWriter, topLevelMemberEnd);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
 		if (this.preserveSourceLineNumbers && !stack.isEmpty()) {
 			int line = compilationUnit.lineMap.getLineNumber(stack.peek().pos);
 			// adjusting line...
-			while (currentLine < line) {
-				out.append("\n");
+			if (currentLine < line) {
+				out.append('\n', line - currentLine);
 				currentColumn = 0;
-				currentLine++;
+				currentLine = line;
 			}
-			while (currentLine != 1 && currentLine > line && out.charAt(out.length() - 1) == '\n') {
-				out.deleteCharAt(out.length() - 1);
-				currentColumn = 0;
-				currentLine--;
+			if (currentLine > line) {
+				int count = Math.min(currentLine - line, out.countTrailing('\n'));
+				if (count > 0) {
+					truncate(out.length() - count);
+					currentColumn = 0;
+					currentLine -= count;
+				}
 			}
 			if (currentLine != line) {
 				logger.warn("cannot adjust line for: " + tree.getClass() + " at line " + line);
@@ -160,21 +223,29 @@ public abstract class AbstractTreePrinter extends AbstractTreeScanner {
 			// - column));
 			// }
 		}
-		positionStack.push(new Position(getCurrentPosition(), currentLine, currentColumn));
 		if (compilationUnit != null && tree.pos >= 0) {
-			sourceMap.addEntry(new Position(tree.pos, //
-					compilationUnit.lineMap.getLineNumber(tree.pos), //
-					compilationUnit.lineMap.getColumnNumber(tree.pos)), positionStack.peek());
+			// the mapped column counts characters (tabs are not expanded)
+			int line = compilationUnit.lineMap.getLineNumber(tree.pos);
+			sourceMap.addEntry(line, tree.pos - compilationUnit.lineMap.getStartPosition(line) + 1, currentLine, currentColumn);
+		}
+		if (positionStackSize == positionStack.length) {
+			positionStack = Arrays.copyOf(positionStack, positionStackSize * 2);
 		}
+		positionStack[positionStackSize++] = getCurrentPosition();
+		positionStack[positionStackSize++] = currentLine;
+		positionStack[positionStackSize++] = currentColumn;
+		positionStack[positionStackSize++] = sourceMap.size();
 	}
 
 	@Override
 	protected void onRollbacked(JCTree target) {
 		super.onRollbacked(target);
-		Position position = positionStack.peek();
-		out.delete(position.getPosition(), out.length());
-		currentColumn = position.getColumn();
-		currentLine = position.getLine();
+		int frame = positionStackSize - POSITION_FRAME_SIZE;
+		truncate(positionStack[frame]);
+		currentLine = positionStack[frame + 1];
+		currentColumn = positionStack[frame + 2];
+		// the entries of the rolled back subtrees are obsolete
+		sourceMap.truncate(positionStack[frame + 3]);
 	}
 
 	/**
@@ -182,12 +253,28 @@ public abstract class AbstractTreePrinter extends AbstractTreeScanner {
 	 */
 	@Override
 	protected void exit() {
+		if (outputWriter != null && isTopLevelMember()) {
+			topLevelMemberEnd = out.length();
+		}
 		super.exit();
-		positionStack.pop();
+		positionStackSize -= POSITION_FRAME_SIZE;
+	}
+
+	private void truncate(int length) {
+		out.truncate(length);
+		// the removed output cannot be flushed with the last top-level member
+		if (topLevelMemberEnd > length) {
+			topLevelMemberEnd = length;
+		}
+	}
+
+	private boolean isTopLevelMember() {
+		return stack.size() == 2 && stack.get(0) instanceof JCCompilationUnit;
 	}
 
 	/**
-	 * Gets the current character count of the output.
+	 * Gets the current character count of the output (including the output
+	 * flushed to the writer set with {@link #setOutputWriter(Writer)}).
 	 */
 	public int getCurrentPosition() {
 		return out.length();
@@ -200,12 +287,23 @@ public abstract class AbstractTreePrinter extends AbstractTreeScanner {
 		return out.charAt(out.length() - 1);
 	}
 
+	private static String getIndent(int indent) {
+		if (indent < INDENTS.length) {
+			return INDENTS[indent];
+		}
+		StringBuilder sb = new StringBuilder(INDENTS[INDENTS.length - 1]);
+		for (int i = INDENTS.length - 1; i < indent; i++) {
+			sb.append(INDENT);
+		}
+		return sb.toString();
+	}
+
 	/**
 	 * Prints an indentation for the current indentation value.
 	 */
 	public AbstractTreePrinter printIndent() {
-		for (int i = 0; i < indent; i++) {
-			print(INDENT);
+		if (indent > 0) {
+			print(getIndent(indent));
 		}
 		return this;
 	}
@@ -254,26 +352,27 @@ public abstract class AbstractTreePrinter extends AbstractTreeScanner {
 	 * Removes the last output character.
 	 */
 	public AbstractTreePrinter removeLastChar() {
-		if (out.length() == 0) {
-			return this;
-		}
-		if (out.charAt(out.length() - 1) == '\n') {
-			currentLine--;
-			currentColumn = 0;
-		} else {
-			currentColumn--;
-		}
-		out.deleteCharAt(out.length() - 1);
-		return this;
+		return removeLastChars(1);
 	}
 
 	/**
 	 * Removes the last output characters.
 	 */
 	public AbstractTreePrinter removeLastChars(int count) {
-		for (int i = 0; i < count; i++) {
-			removeLastChar();
+		if (count <= 0) {
+			return this;
+		}
+		int start = Math.max(0, out.length() - count);
+		int firstNewLine = out.indexOf('\n', start);
+		if (firstNewLine < 0) {
+			currentColumn -= out.length() - start;
+		} else {
+			currentLine -= out.count('\n', firstNewLine);
+			// the column is reset by the removed new lines (as for the
+			// removal of one character at a time)
+			currentColumn = start - firstNewLine;
 		}
+		truncate(start);
 		return this;
 	}
 
@@ -290,11 +389,11 @@ public abstract class AbstractTreePrinter extends AbstractTreeScanner {
 	 */
 	public AbstractTreePrinter println() {
 		if (this.preserveSourceLineNumbers) {
-			out.append(" ");
+			out.append(' ', 1);
 			currentColumn++;
 			return this;
 		}
-		out.append("\n");
+		out.append('\n', 1);
 		currentLine++;
 		currentColumn = 0;
 		return this;
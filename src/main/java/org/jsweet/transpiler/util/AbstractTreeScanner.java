@@ -17,14 +17,11 @@
 package org.jsweet.transpiler.util;
 
 import java.io.File;
-import java.util.AbstractMap;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Stack;
 import java.util.function.Consumer;
 
-import org.apache.commons.io.FileUtils;
 import org.jsweet.transpiler.JSweetContext;
 import org.jsweet.transpiler.JSweetProblem;
 import org.jsweet.transpiler.SourcePosition;
@@ -98,19 +95,20 @@ public abstract class AbstractTreeScanner extends TreeScanner {
 
 	protected DiagnosticSource diagnosticSource;
 
-	private Entry<String, String[]> sourceCache;
-
-	protected String[] getGetSource(JCCompilationUnit compilationUnit) {
-		if (sourceCache != null && sourceCache.getKey().equals(compilationUnit.getSourceFile().getName())) {
-			return sourceCache.getValue();
-		} else {
-			try {
-				sourceCache = new AbstractMap.SimpleEntry<>(compilationUnit.getSourceFile().getName(),
-						FileUtils.readFileToString(new File(compilationUnit.getSourceFile().getName())).split("\\n"));
-			} catch (Exception e) {
-				return null;
-			}
-			return sourceCache.getValue();
+	/**
+	 * Gets a line of the source file of the given compilation unit (see
+	 * {@link JSweetContext#getSourceLine(JCCompilationUnit, int)}).
+	 * 
+	 * @param line
+	 *            the line number, starting at 1
+	 * @return the line, or null if the line does not exist or if the source
+	 *         cannot be read
+	 */
+	protected String getSourceLine(JCCompilationUnit compilationUnit, int line) {
+		try {
+			return context.getSourceLine(compilationUnit, line);
+		} catch (Exception e) {
+			return null;
 		}
 	}
 
@@ -192,8 +190,13 @@ public abstract class AbstractTreeScanner extends TreeScanner {
 	protected void onRollbacked(JCTree target) {
 	}
 
+	private RollbackException rollbackSignal;
+
 	protected void rollback(JCTree target, Consumer<JCTree> onRollbacked) {
-		throw new RollbackException(target, onRollbacked);
+		if (rollbackSignal == null) {
+			rollbackSignal = new RollbackException(target, onRollbacked);
+		}
+		throw rollbackSignal.reset(target, onRollbacked);
 	}
 
 	protected void enter(JCTree tree) {
@@ -40,7 +40,7 @@ public class ConsoleTranspilationHandler implements TranspilationHandler {
 		}
 	}
 
-	private void log(Severity severity, String message) {
+	protected void log(Severity severity, String message) {
 		switch (severity) {
 		case ERROR:
 			OUTPUT_LOGGER.error(message);
@@ -1,13 +1,13 @@
-/* 
+/*
  * JSweet - http://www.jsweet.org
  * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
- * 
+ *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- * 
+ *
  *     http://www.apache.org/licenses/LICENSE-2.0
- * 
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -17,14 +17,17 @@
 package org.jsweet.transpiler.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -32,14 +35,18 @@ import java.util.stream.Collectors;
 /**
  * This class defines a directed graph collection type, that is to say a set of
  * elements (aka nodes) linked together with directed edges. It is particularly
- * useful for the <i>topological sort</i>, which is implemented as depicted in
- * Wikipedia and this <a href=
- * "http://stackoverflow.com/questions/2739392/sample-directed-graph-and-topological-sort-code"
- * >StackOverflow thread</a>
- * 
+ * useful for the <i>topological sort</i>, which is implemented with Kahn's
+ * algorithm, and for finding the cycles (i.e. the strongly connected
+ * components), which is implemented with Tarjan's algorithm.
+ *
+ * <p>
+ * Nodes are numbered in insertion order and edges are stored in primitive
+ * adjacency arrays, so that sorting a graph is linear in its number of nodes
+ * and edges. Checking if an edge exists is done in constant time.
+ *
  * <p>
  * Example of use:
- * 
+ *
  * <pre>
  * Graph&lt;Integer&gt; g = new Graph&lt;Integer&gt;();
  * g.add(7, 5, 3, 11, 8, 2, 9, 10);
@@ -54,20 +61,26 @@ import java.util.stream.Collectors;
  * });
  * System.out.println(g.topologicalSort());
  * </pre>
- * 
+ *
  * <p>
- * Prints out: <code>[11, 10, 8, 7, 2, 3, 5, 9]</code> (5 is always after 3,
- * because of the edge built by the comparator, however, the remainder is in
- * random order).
- * 
+ * Prints out: <code>[7, 3, 11, 8, 2, 9, 10, 5]</code> (5 is always after 3,
+ * because of the edge built by the comparator, the remainder is in insertion
+ * order).
+ *
  * @author Renaud Pawlak
- * 
+ *
  * @param <T>
  *            the types of the nodes in the graph
  */
 public class DirectedGraph<T> implements Collection<T> {
 
-	private Map<T, Node<T>> nodes = new LinkedHashMap<T, Node<T>>();
+	private static final int[] NO_EDGES = new int[0];
+
+	private Map<T, Node<T>> nodes = new HashMap<T, Node<T>>();
+
+	private ArrayList<Node<T>> nodeList = new ArrayList<Node<T>>();
+
+	private EdgeSet edges = new EdgeSet();
 
 	/**
 	 * Constructs an empty graph collection.
@@ -94,17 +107,29 @@ public class DirectedGraph<T> implements Collection<T> {
 		if (nodes.containsKey(element)) {
 			return false;
 		}
-		Node<T> node = new Node<T>(this, element);
+		Node<T> node = new Node<T>(this, element, nodeList.size());
 		nodes.put(element, node);
+		nodeList.add(node);
 		return true;
 	}
 
+	private Node<T> getOrAddNode(T element) {
+		Node<T> node = nodes.get(element);
+		if (node == null) {
+			add(element);
+			node = nodes.get(element);
+		}
+		return node;
+	}
+
 	/**
 	 * Clears all the nodes of this graph.
 	 */
 	@Override
 	public void clear() {
 		nodes.clear();
+		nodeList.clear();
+		edges.clear();
 	}
 
 	/**
@@ -129,20 +154,32 @@ public class DirectedGraph<T> implements Collection<T> {
 	}
 
 	/**
-	 * Equals two graphs.
+	 * Equals two graphs (same nodes and same edges).
 	 */
 	@Override
 	public boolean equals(Object obj) {
 		if (!(obj instanceof DirectedGraph)) {
 			return false;
-		} else {
-			return nodes.equals(((DirectedGraph<?>) obj).nodes);
 		}
+		DirectedGraph<?> graph = (DirectedGraph<?>) obj;
+		if (!nodes.keySet().equals(graph.nodes.keySet()) || edges.size != graph.edges.size) {
+			return false;
+		}
+		for (Node<T> node : nodeList) {
+			Node<?> otherNode = graph.nodes.get(node.element);
+			for (int i = 0; i < node.outCount; i++) {
+				Node<?> destination = graph.nodes.get(nodeList.get(node.outEdges[i]).element);
+				if (!graph.edges.contains(edgeKey(otherNode.id, destination.id))) {
+					return false;
+				}
+			}
+		}
+		return true;
 	}
 
 	@Override
 	public int hashCode() {
-		return nodes.hashCode();
+		return nodes.keySet().hashCode();
 	}
 
 	/**
@@ -154,19 +191,84 @@ public class DirectedGraph<T> implements Collection<T> {
 	}
 
 	/**
-	 * Return an iterator to iterate on graph nodes.
+	 * Return an iterator to iterate on graph nodes (in insertion order).
 	 */
 	@Override
 	public Iterator<T> iterator() {
-		return nodes.keySet().iterator();
+		return new Iterator<T>() {
+			int next = 0;
+			int last = -1;
+
+			@Override
+			public boolean hasNext() {
+				return next < nodeList.size();
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				last = next++;
+				return nodeList.get(last).element;
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0) {
+					throw new IllegalStateException();
+				}
+				DirectedGraph.this.remove(nodeList.get(last).element);
+				next = last;
+				last = -1;
+			}
+		};
 	}
 
 	/**
-	 * Removes an object from the graph nodes (if exists).
+	 * Removes an object from the graph nodes (if exists), along with its
+	 * edges. Removing a node renumbers the nodes, so that it is linear in the
+	 * size of the graph.
 	 */
 	@Override
 	public boolean remove(Object o) {
-		return nodes.remove(o) != null;
+		Node<T> removed = nodes.remove(o);
+		if (removed == null) {
+			return false;
+		}
+		List<Node<T>> oldNodeList = nodeList;
+		nodeList = new ArrayList<Node<T>>(oldNodeList.size() - 1);
+		int[] newIds = new int[oldNodeList.size()];
+		for (Node<T> node : oldNodeList) {
+			if (node == removed) {
+				newIds[node.id] = -1;
+			} else {
+				newIds[node.id] = nodeList.size();
+				nodeList.add(node);
+			}
+		}
+		edges.clear();
+		for (Node<T> node : nodeList) {
+			node.id = newIds[node.id];
+		}
+		for (Node<T> node : nodeList) {
+			node.outCount = renumber(node.outEdges, node.outCount, newIds);
+			node.inCount = renumber(node.inEdges, node.inCount, newIds);
+			for (int i = 0; i < node.outCount; i++) {
+				edges.add(edgeKey(node.id, node.outEdges[i]));
+			}
+		}
+		return true;
+	}
+
+	private static int renumber(int[] ids, int count, int[] newIds) {
+		int newCount = 0;
+		for (int i = 0; i < count; i++) {
+			if (newIds[ids[i]] >= 0) {
+				ids[newCount++] = newIds[ids[i]];
+			}
+		}
+		return newCount;
 	}
 
 	/**
@@ -174,10 +276,11 @@ public class DirectedGraph<T> implements Collection<T> {
 	 */
 	@Override
 	public boolean removeAll(Collection<?> c) {
+		boolean b = false;
 		for (Object o : c) {
-			remove(o);
+			b |= remove(o);
 		}
-		return true;
+		return b;
 	}
 
 	/**
@@ -186,7 +289,7 @@ public class DirectedGraph<T> implements Collection<T> {
 	@Override
 	public boolean retainAll(Collection<?> c) {
 		boolean b = false;
-		for (T element : nodes.keySet()) {
+		for (T element : new ArrayList<T>(nodes.keySet())) {
 			if (!c.contains(element)) {
 				remove(element);
 				b = true;
@@ -208,7 +311,7 @@ public class DirectedGraph<T> implements Collection<T> {
 	 */
 	@Override
 	public Object[] toArray() {
-		return nodes.keySet().toArray();
+		return toElements(nodeList).toArray();
 	}
 
 	/**
@@ -216,7 +319,7 @@ public class DirectedGraph<T> implements Collection<T> {
 	 */
 	@Override
 	public <U> U[] toArray(U[] a) {
-		return toArray(a);
+		return toElements(nodeList).toArray(a);
 	}
 
 	/**
@@ -230,8 +333,10 @@ public class DirectedGraph<T> implements Collection<T> {
 	}
 
 	/**
-	 * Add an edge between the given elements (nodes).
-	 * 
+	 * Add an edge between the given elements (nodes). The elements are added
+	 * to the graph's nodes if not already in the graph. Self edges and
+	 * duplicate edges are ignored.
+	 *
 	 * @param sourceElement
 	 *            the source element/node
 	 * @param destinationElement
@@ -241,23 +346,43 @@ public class DirectedGraph<T> implements Collection<T> {
 		if (sourceElement.equals(destinationElement)) {
 			return;
 		}
-		if (hasEdge(sourceElement, destinationElement)) {
-			return;
+		Node<T> source = getOrAddNode(sourceElement);
+		Node<T> destination = getOrAddNode(destinationElement);
+		if (edges.add(edgeKey(source.id, destination.id))) {
+			source.outEdges = append(source.outEdges, source.outCount++, destination.id);
+			destination.inEdges = append(destination.inEdges, destination.inCount++, source.id);
+		}
+	}
+
+	private static int[] append(int[] ids, int count, int id) {
+		if (count == ids.length) {
+			ids = Arrays.copyOf(ids, Math.max(4, count * 2));
 		}
-		nodes.get(sourceElement).addEdge(destinationElement);
+		ids[count] = id;
+		return ids;
+	}
+
+	private static long edgeKey(int sourceId, int destinationId) {
+		return ((long) sourceId << 32) | destinationId;
 	}
 
 	/**
 	 * Automatically builds the edges between all the nodes of the graph by
 	 * using the given comparator. If the comparator returns 0, then no edge is
-	 * constructor between the compared nodes.
-	 * 
+	 * constructor between the compared nodes. Note that the comparator is
+	 * called for all the pairs of nodes (in both directions), so that it
+	 * should not be used on large graphs.
+	 *
 	 * @param nodeComparator
 	 *            a comparator which is used to build the edges
 	 */
 	public <U extends T> void buildEdges(Comparator<U> nodeComparator) {
-		for (T e1 : nodes.keySet()) {
-			for (T e2 : nodes.keySet()) {
+		List<T> elements = toElements(nodeList);
+		for (T e1 : elements) {
+			for (T e2 : elements) {
+				if (e1 == e2) {
+					continue;
+				}
 				@SuppressWarnings("unchecked")
 				int i = nodeComparator.compare((U) e1, (U) e2);
 				if (i < 0) {
@@ -273,7 +398,7 @@ public class DirectedGraph<T> implements Collection<T> {
 	/**
 	 * Adds some edges form the source elements to the given destination
 	 * elements.
-	 * 
+	 *
 	 * @param sourceElement
 	 *            the source of the edges
 	 * @param destinationElements
@@ -281,13 +406,15 @@ public class DirectedGraph<T> implements Collection<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public void addEdges(T sourceElement, T... destinationElements) {
-		nodes.get(sourceElement).addEdges(destinationElements);
+		for (T destinationElement : destinationElements) {
+			addEdge(sourceElement, destinationElement);
+		}
 	}
 
 	/**
 	 * Tells if this graph contains an edge between the given source and the
 	 * destination elements/nodes.
-	 * 
+	 *
 	 * @param sourceElement
 	 *            the source node
 	 * @param destinationElement
@@ -295,49 +422,46 @@ public class DirectedGraph<T> implements Collection<T> {
 	 * @return true if an edge is found, false otherwise
 	 */
 	public boolean hasEdge(T sourceElement, T destinationElement) {
-		if (nodes.get(sourceElement) == null) {
+		Node<T> source = nodes.get(sourceElement);
+		Node<T> destination = nodes.get(destinationElement);
+		if (source == null || destination == null) {
 			return false;
 		}
-
-		for (Edge<T> edge : nodes.get(sourceElement).outEdges) {
-			if (edge.to.element == destinationElement) {
-				return true;
-			}
-		}
-		return false;
+		return edges.contains(edgeKey(source.id, destination.id));
 	}
 
+	/**
+	 * Gets the elements targeted by the edges of the given element, in edge
+	 * insertion order (null if the element is not in the graph).
+	 */
 	public List<T> getDestinationElements(T sourceElement) {
-		List<T> l = new ArrayList<T>();
-		if (nodes.get(sourceElement) == null) {
+		Node<T> source = nodes.get(sourceElement);
+		if (source == null) {
 			return null;
 		}
-		for (Edge<T> edge : nodes.get(sourceElement).outEdges) {
-			l.add(edge.to.element);
-		}
-		return l;
+		return toElements(source.outEdges, source.outCount);
 	}
 
+	/**
+	 * Gets the elements having an edge to the given element, in edge insertion
+	 * order (null if the element is not in the graph).
+	 */
 	public List<T> getSourceElements(T destinationElement) {
-		if (nodes.get(destinationElement) == null) {
+		Node<T> destination = nodes.get(destinationElement);
+		if (destination == null) {
 			return null;
 		}
-
-		List<T> l = new ArrayList<T>();
-		for (Edge<T> edge : nodes.get(destinationElement).inEdges) {
-			l.add(edge.from.element);
-		}
-		return l;
+		return toElements(destination.inEdges, destination.inCount);
 	}
 
 	@Override
 	public String toString() {
 		StringBuffer s = new StringBuffer();
 		s.append("[");
-		for (T element : nodes.keySet()) {
-			s.append(element.toString());
+		for (Node<T> node : nodeList) {
+			s.append(node.element.toString());
 			s.append("->");
-			s.append(getDestinationElements(element));
+			s.append(toElements(node.outEdges, node.outCount));
 			s.append(",");
 		}
 		if (!nodes.isEmpty()) {
@@ -347,192 +471,254 @@ public class DirectedGraph<T> implements Collection<T> {
 		return s.toString();
 	}
 
+	/**
+	 * A node of the graph.
+	 */
 	public static class Node<T> {
 		private DirectedGraph<T> graph;
+		/**
+		 * The element held by this node.
+		 */
 		public final T element;
-		public final LinkedHashSet<Edge<T>> inEdges;
-		public final LinkedHashSet<Edge<T>> usedInEdges;
-		public final LinkedHashSet<Edge<T>> outEdges;
-		public final LinkedHashSet<Edge<T>> usedOutEdges;
+		private int id;
+		private int[] outEdges = NO_EDGES;
+		private int outCount = 0;
+		private int[] inEdges = NO_EDGES;
+		private int inCount = 0;
 
-		public Node(DirectedGraph<T> graph, T element) {
+		private Node(DirectedGraph<T> graph, T element, int id) {
 			this.graph = graph;
 			this.element = element;
-			inEdges = new LinkedHashSet<Edge<T>>();
-			usedInEdges = new LinkedHashSet<Edge<T>>();
-			outEdges = new LinkedHashSet<Edge<T>>();
-			usedOutEdges = new LinkedHashSet<Edge<T>>();
+			this.id = id;
 		}
 
-		public void addEdge(T destinationElement) {
-			Node<T> node = graph.nodes.get(destinationElement);
-			if (node == null) {
-				graph.add(destinationElement);
-				node = graph.nodes.get(destinationElement);
-			}
-			Edge<T> e = new Edge<T>(this, node);
-			outEdges.add(e);
-			node.inEdges.add(e);
+		/**
+		 * Gets the graph this node belongs to.
+		 */
+		public DirectedGraph<T> getGraph() {
+			return graph;
 		}
 
-		@SuppressWarnings("unchecked")
-		public void addEdges(T... destinationElements) {
-			for (T destinationElement : destinationElements) {
-				addEdge(destinationElement);
-			}
+		@Override
+		public String toString() {
+			return "Node[" + element + "]";
 		}
+	}
 
-		public void useInEdge(Edge<T> edge) {
-			if (inEdges.remove(edge)) {
-				usedInEdges.add(edge);
-			}
-		}
+	/**
+	 * An open-addressing hash set of edges, an edge being encoded as a long
+	 * holding the source and destination node ids.
+	 */
+	private static class EdgeSet {
+		private static final long EMPTY = -1;
 
-		public void useOutEdge(Edge<T> edge) {
-			if (outEdges.remove(edge)) {
-				usedOutEdges.add(edge);
-			}
-		}
+		private long[] keys;
+		private int size;
 
-		public void resetEdges() {
-			inEdges.addAll(usedInEdges);
-			usedInEdges.clear();
-			outEdges.addAll(usedOutEdges);
-			usedOutEdges.clear();
+		EdgeSet() {
+			clear();
 		}
 
-		@Override
-		public String toString() {
-			return "Node[" + element + "]";
+		void clear() {
+			keys = new long[16];
+			Arrays.fill(keys, EMPTY);
+			size = 0;
 		}
-	}
-
-	public static class Edge<T> {
-		public final Node<T> from;
-		public final Node<T> to;
 
-		public Edge(Node<T> from, Node<T> to) {
-			this.from = from;
-			this.to = to;
+		private int indexOf(long[] keys, long key) {
+			int mask = keys.length - 1;
+			int i = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+			while (keys[i] != EMPTY && keys[i] != key) {
+				i = (i + 1) & mask;
+			}
+			return i;
 		}
 
-		@Override
-		public String toString() {
-			return "Edge[" + from + "->" + to + "]";
+		boolean contains(long key) {
+			return keys[indexOf(keys, key)] == key;
 		}
 
-		@Override
-		public boolean equals(Object obj) {
-			@SuppressWarnings("unchecked")
-			Edge<T> e = (Edge<T>) obj;
-			return e.from == from && e.to == to;
+		boolean add(long key) {
+			int i = indexOf(keys, key);
+			if (keys[i] == key) {
+				return false;
+			}
+			keys[i] = key;
+			if (++size * 2 > keys.length) {
+				long[] newKeys = new long[keys.length * 2];
+				Arrays.fill(newKeys, EMPTY);
+				for (long k : keys) {
+					if (k != EMPTY) {
+						newKeys[indexOf(newKeys, k)] = k;
+					}
+				}
+				keys = newKeys;
+			}
+			return true;
 		}
 	}
 
 	private List<T> toElements(List<Node<T>> nodes) {
-		List<T> elements = new ArrayList<T>();
+		List<T> elements = new ArrayList<T>(nodes.size());
 		for (Node<T> node : nodes) {
 			elements.add(node.element);
 		}
 		return elements;
 	}
 
+	private List<T> toElements(int[] ids, int count) {
+		List<T> elements = new ArrayList<T>(count);
+		for (int i = 0; i < count; i++) {
+			elements.add(nodeList.get(ids[i]).element);
+		}
+		return elements;
+	}
+
 	/**
-	 * Sorts this graph using a topological sort algorithm given in this
-	 * <a href=
-	 * "http://stackoverflow.com/questions/2739392/sample-directed-graph-and-topological-sort-code"
-	 * >StackOverflow thread</a>.
-	 * 
+	 * Sorts this graph using Kahn's topological sort algorithm. The nodes
+	 * without incoming edges are taken in insertion order, and the nodes
+	 * freed by the removal of the edges of a sorted node are taken after
+	 * them, in edge insertion order.
+	 *
+	 * @param cycleHandler
+	 *            a handler called for each node that cannot be sorted because
+	 *            it belongs to a cycle or depends on a cycle (can be null), see
+	 *            also {@link #findCycles()}
 	 * @return the list of nodes, sorted according to the topological sort
-	 * @throws CycleFoundException
-	 *             thrown if a cycle is found in the graph (in that case no
-	 *             topological sort is possible)
+	 *         (without the nodes that cannot be sorted)
 	 */
 	public List<T> topologicalSort(Consumer<Node<T>> cycleHandler) {
-		List<Node<T>> allNodes = new ArrayList<Node<T>>(nodes.values());
-		// L <- Empty list that will contain the sorted elements
-		ArrayList<Node<T>> L = new ArrayList<Node<T>>();
-
-		// S <- Set of all nodes with no incoming edges
-		LinkedHashSet<Node<T>> S = new LinkedHashSet<Node<T>>();
-		for (Node<T> n : allNodes) {
-			if (n.inEdges.size() == 0) {
-				S.add(n);
+		int size = nodeList.size();
+		int[] inDegrees = new int[size];
+		int[] queue = new int[size];
+		int head = 0;
+		int tail = 0;
+		for (int i = 0; i < size; i++) {
+			inDegrees[i] = nodeList.get(i).inCount;
+			if (inDegrees[i] == 0) {
+				queue[tail++] = i;
 			}
 		}
-
-		// while S is non-empty do
-		while (!S.isEmpty()) {
-			// remove a node n from S
-			Node<T> n = S.iterator().next();
-			S.remove(n);
-
-			// insert n into L
-			L.add(n);
-
-			// for each node m with an edge e from n to m do
-			for (Iterator<Edge<T>> it = new ArrayList<>(n.outEdges).iterator(); it.hasNext();) {
-				// remove edge e from the graph
-				Edge<T> e = it.next();
-				Node<T> m = e.to;
-				n.useOutEdge(e); // Remove edge from n
-				m.useInEdge(e); // Remove edge from m
-
-				// if m has no other incoming edges then insert m into S
-				if (m.inEdges.isEmpty()) {
-					S.add(m);
+		while (head < tail) {
+			Node<T> n = nodeList.get(queue[head++]);
+			for (int i = 0; i < n.outCount; i++) {
+				int m = n.outEdges[i];
+				if (--inDegrees[m] == 0) {
+					queue[tail++] = m;
 				}
 			}
 		}
-		// Check to see if all edges are removed
-		for (Node<T> n : allNodes) {
-			if (!n.inEdges.isEmpty()) {
-				if (cycleHandler != null) {
-					cycleHandler.accept(n);
+		if (tail < size && cycleHandler != null) {
+			for (int i = 0; i < size; i++) {
+				if (inDegrees[i] > 0) {
+					cycleHandler.accept(nodeList.get(i));
 				}
 			}
 		}
-		for (Node<T> n : allNodes) {
-			n.resetEdges();
+		List<T> sorted = new ArrayList<T>(tail);
+		for (int i = 0; i < tail; i++) {
+			sorted.add(nodeList.get(queue[i]).element);
 		}
-		return toElements(L);
+		return sorted;
+	}
+
+	/**
+	 * Finds all the cycles of this graph in one pass, using Tarjan's strongly
+	 * connected components algorithm.
+	 *
+	 * @return the strongly connected components holding more than one node,
+	 *         ordered by their first inserted node (the elements of each
+	 *         component are in insertion order)
+	 */
+	public List<List<T>> findCycles() {
+		int size = nodeList.size();
+		int[] indexes = new int[size];
+		Arrays.fill(indexes, -1);
+		int[] lowLinks = new int[size];
+		boolean[] onStack = new boolean[size];
+		int[] stack = new int[size];
+		int stackSize = 0;
+		int[] callStack = new int[size];
+		int[] nextEdges = new int[size];
+		int index = 0;
+		List<int[]> components = new ArrayList<int[]>();
+		for (int root = 0; root < size; root++) {
+			if (indexes[root] >= 0) {
+				continue;
+			}
+			int callStackSize = 0;
+			callStack[callStackSize++] = root;
+			indexes[root] = lowLinks[root] = index++;
+			stack[stackSize++] = root;
+			onStack[root] = true;
+			while (callStackSize > 0) {
+				int v = callStack[callStackSize - 1];
+				Node<T> node = nodeList.get(v);
+				if (nextEdges[v] < node.outCount) {
+					int w = node.outEdges[nextEdges[v]++];
+					if (indexes[w] < 0) {
+						indexes[w] = lowLinks[w] = index++;
+						stack[stackSize++] = w;
+						onStack[w] = true;
+						callStack[callStackSize++] = w;
+					} else if (onStack[w]) {
+						lowLinks[v] = Math.min(lowLinks[v], indexes[w]);
+					}
+				} else {
+					callStackSize--;
+					if (callStackSize > 0) {
+						int u = callStack[callStackSize - 1];
+						lowLinks[u] = Math.min(lowLinks[u], lowLinks[v]);
+					}
+					if (lowLinks[v] == indexes[v]) {
+						int start = stackSize;
+						do {
+							onStack[stack[--start]] = false;
+						} while (stack[start] != v);
+						if (stackSize - start > 1) {
+							int[] component = Arrays.copyOfRange(stack, start, stackSize);
+							Arrays.sort(component);
+							components.add(component);
+						}
+						stackSize = start;
+					}
+				}
+			}
+		}
+		components.sort((c1, c2) -> c1[0] - c2[0]);
+		List<List<T>> cycles = new ArrayList<List<T>>(components.size());
+		for (int[] component : components) {
+			cycles.add(toElements(component, component.length));
+		}
+		return cycles;
 	}
 
 	/**
 	 * Dumps the found cycles to System.out.
-	 * 
+	 *
 	 * @param nodes
 	 *            the nodes in which to look for cycles
 	 * @param toString
 	 *            the element's toString function
 	 */
 	public static <T> void dumpCycles(List<Node<T>> nodes, Function<T, String> toString) {
+		Map<DirectedGraph<T>, Set<T>> graphs = new LinkedHashMap<>();
 		for (Node<T> node : nodes) {
-			Stack<Node<T>> path = new Stack<Node<T>>();
-			path.add(node);
-			dumpCycles(nodes, path, toString);
+			graphs.computeIfAbsent(node.graph, g -> new HashSet<>()).add(node.element);
 		}
-	}
-
-	private static <T> void dumpCycles(List<Node<T>> nodes, Stack<Node<T>> path, Function<T, String> toString) {
-		path.peek().outEdges.stream().map(e -> e.to).forEach(node -> {
-			if (nodes.contains(node)) {
-				if (path.contains(node)) {
-					System.out.println("cycle: " + path.stream().map(n -> toString.apply(n.element)).collect(Collectors.toList()));
-				} else {
-					path.push(node);
-					dumpCycles(nodes, path, toString);
-					path.pop();
+		graphs.forEach((graph, elements) -> {
+			for (List<T> cycle : graph.findCycles()) {
+				if (cycle.stream().anyMatch(elements::contains)) {
+					System.out.println("cycle: " + cycle.stream().map(toString).collect(Collectors.toList()));
 				}
 			}
 		});
-		;
 	}
 
 	public static void main(String[] args) {
 		DirectedGraph<Integer> g = new DirectedGraph<Integer>();
 		g.add(7, 5, 3, 11, 8, 2, 9, 10);
-		System.out.println(g.nodes.values());
+		System.out.println(g.nodeList);
 		System.out.println(g.nodes.keySet());
 		g.buildEdges(new Comparator<Integer>() {
 			@Override
@@ -0,0 +1,171 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.transpiler.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.code.Types;
+
+/**
+ * Memoizes the type erasures, their string representations and the
+ * assignability checks performed by the overload analysis (see
+ * {@link org.jsweet.transpiler.OverloadScanner}) and by the printing of the
+ * overloads.
+ * 
+ * <p>
+ * This cache shall be used with the attributed types of a single compilation
+ * round. It is thread-safe: on cache misses, the javac types are invoked while
+ * synchronized on them (see {@link org.jsweet.transpiler.JSweetContext#types}).
+ * 
+ * @author Renaud Pawlak
+ */
+public class ErasureCache {
+
+	private static class TypePair {
+		final Type from;
+		final Type to;
+
+		TypePair(Type from, Type to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof TypePair && ((TypePair) obj).from == from && ((TypePair) obj).to == to;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(from) + System.identityHashCode(to);
+		}
+	}
+
+	private final Types types;
+
+	private final Map<Type, Type> erasures = new ConcurrentHashMap<>();
+
+	private final Map<Type, Type> recursiveErasures = new ConcurrentHashMap<>();
+
+	private final Map<Type, String> erasedNames = new ConcurrentHashMap<>();
+
+	private final Map<Type, String> erasedSignatures = new ConcurrentHashMap<>();
+
+	private final Map<TypePair, Boolean> assignables = new ConcurrentHashMap<>();
+
+	private final Map<TypePair, Boolean> erasedAssignables = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a cache for the given types.
+	 */
+	public ErasureCache(Types types) {
+		this.types = types;
+	}
+
+	/**
+	 * Gets the erasure of the given type (see {@link Types#erasure(Type)}).
+	 */
+	public Type erasure(Type type) {
+		Type erasure = erasures.get(type);
+		if (erasure == null) {
+			synchronized (types) {
+				erasure = types.erasure(type);
+			}
+			erasures.put(type, erasure);
+		}
+		return erasure;
+	}
+
+	/**
+	 * Gets the recursive erasure of the given type (see
+	 * {@link Types#erasureRecursive(Type)}).
+	 */
+	public Type erasureRecursive(Type type) {
+		Type erasure = recursiveErasures.get(type);
+		if (erasure == null) {
+			synchronized (types) {
+				erasure = types.erasureRecursive(type);
+			}
+			recursiveErasures.put(type, erasure);
+		}
+		return erasure;
+	}
+
+	/**
+	 * Gets the string representation of the erasure of the given type.
+	 */
+	public String getErasedName(Type type) {
+		String name = erasedNames.get(type);
+		if (name == null) {
+			name = erasure(type).toString().intern();
+			erasedNames.put(type, name);
+		}
+		return name;
+	}
+
+	/**
+	 * Gets the string representation of the recursive erasure of the given
+	 * type (typically a method type, in which case two methods with the same
+	 * erased signature have the same representation). The returned strings
+	 * are interned.
+	 */
+	public String getErasedSignature(Type type) {
+		String signature = erasedSignatures.get(type);
+		if (signature == null) {
+			signature = erasureRecursive(type).toString().intern();
+			erasedSignatures.put(type, signature);
+		}
+		return signature;
+	}
+
+	/**
+	 * Tells if a type is assignable to another one (see
+	 * {@link Types#isAssignable(Type, Type)}).
+	 */
+	public boolean isAssignable(Type from, Type to) {
+		TypePair key = new TypePair(from, to);
+		Boolean assignable = assignables.get(key);
+		if (assignable == null) {
+			synchronized (types) {
+				assignable = types.isAssignable(from, to);
+			}
+			assignables.put(key, assignable);
+		}
+		return assignable;
+	}
+
+	/**
+	 * Tells if the erasure of a type is assignable to the erasure of another
+	 * one.
+	 */
+	public boolean isErasedAssignable(Type from, Type to) {
+		TypePair key = new TypePair(from, to);
+		Boolean assignable = erasedAssignables.get(key);
+		if (assignable == null) {
+			Type fromErasure = erasure(from);
+			Type toErasure = erasure(to);
+			synchronized (types) {
+				assignable = types.isAssignable(fromErasure, toErasure);
+			}
+			erasedAssignables.put(key, assignable);
+		}
+		return assignable;
+	}
+
+}
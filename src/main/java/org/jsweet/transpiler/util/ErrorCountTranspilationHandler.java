@@ -21,6 +21,7 @@ import org.jsweet.transpiler.JSweetTranspiler;
 import org.jsweet.transpiler.SourceFile;
 import org.jsweet.transpiler.SourcePosition;
 import org.jsweet.transpiler.TranspilationHandler;
+import org.jsweet.transpiler.TranspilationMetrics;
 
 /**
  * An error count decorator for a transpilation handler.
@@ -44,7 +45,7 @@ public class ErrorCountTranspilationHandler implements TranspilationHandler {
 	/**
 	 * Count the problems and delegates to the decorated transpilation handler.
 	 */
-	public void report(JSweetProblem problem, SourcePosition sourcePosition, String message) {
+	public synchronized void report(JSweetProblem problem, SourcePosition sourcePosition, String message) {
 		switch (problem.getSeverity()) {
 		case ERROR:
 			problemCount++;
@@ -72,6 +73,11 @@ public class ErrorCountTranspilationHandler implements TranspilationHandler {
 		delegate.onCompleted(transpiler, fullPass, files);
 	}
 
+	@Override
+	public void onMetrics(JSweetTranspiler transpiler, TranspilationMetrics metrics) {
+		delegate.onMetrics(transpiler, metrics);
+	}
+
 	/**
 	 * Returns the warning count.
 	 */
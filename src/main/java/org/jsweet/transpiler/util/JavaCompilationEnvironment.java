@@ -21,21 +21,39 @@ import static org.jsweet.transpiler.util.Util.toJavaFileObjects;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 
+import org.apache.log4j.Logger;
 import org.jsweet.transpiler.JSweetContext;
 import org.jsweet.transpiler.JSweetOptions;
 
+import com.sun.tools.javac.code.Kinds;
 import com.sun.tools.javac.code.Lint.LintCategory;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.PackageSymbol;
 import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.code.TypeTag;
 import com.sun.tools.javac.code.Types;
+import com.sun.tools.javac.comp.Check;
+import com.sun.tools.javac.comp.CompileStates;
+import com.sun.tools.javac.comp.Enter;
 import com.sun.tools.javac.file.JavacFileManager;
 import com.sun.tools.javac.main.JavaCompiler;
 import com.sun.tools.javac.main.Option;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.TreeScanner;
+import com.sun.tools.javac.util.AbstractLog;
 import com.sun.tools.javac.util.Log;
 import com.sun.tools.javac.util.Names;
 import com.sun.tools.javac.util.Options;
@@ -44,12 +62,17 @@ import com.sun.tools.javac.util.Options;
  * This utility class encapsulates a <code>javac</code> compilation environment.
  * 
  * <p>
- * Note that this class is not used yet... we should refactor so that the
- * transpiler uses it instead of inlined javac management.
+ * An environment can be reused for several compilation rounds (see
+ * {@link #newRound()}), so that the classpath archives are opened and the
+ * classpath symbols are completed only once. Only the symbols declared by the
+ * compilation units of the previous round are invalidated.
  * 
  * @author Renaud Pawlak
  */
 public class JavaCompilationEnvironment {
+
+	private static final Logger logger = Logger.getLogger(JavaCompilationEnvironment.class);
+
 	/**
 	 * Creates a new compilation environment with the given options and
 	 * classpath.
@@ -88,6 +111,15 @@ public class JavaCompilationEnvironment {
 		return new JavaCompilationEnvironment(fileManager, compiler, options, context, log, javacTypes, names, symtab);
 	}
 
+	/**
+	 * Creates a compilation environment from a context where the file manager
+	 * and the compiler have already been configured.
+	 */
+	public static JavaCompilationEnvironment fromContext(JSweetContext context) {
+		return new JavaCompilationEnvironment(context.get(JavaFileManager.class), JavaCompiler.instance(context), Options.instance(context), context,
+				Log.instance(context), Types.instance(context), Names.instance(context), Symtab.instance(context));
+	}
+
 	/**
 	 * The Java file manager.
 	 */
@@ -121,6 +153,16 @@ public class JavaCompilationEnvironment {
 	 */
 	public final Options options;
 
+	private String classPathSignature;
+
+	private List<JCCompilationUnit> compilationUnits = new ArrayList<>();
+
+	private int roundCount = 0;
+
+	private int reusedClassSymbolCount = 0;
+
+	private int invalidatedClassSymbolCount = 0;
+
 	private JavaCompilationEnvironment( //
 			JavaFileManager fileManager, //
 			JavaCompiler compiler, //
@@ -138,6 +180,7 @@ public class JavaCompilationEnvironment {
 		this.types = javacTypes;
 		this.names = names;
 		this.symtab = symtab;
+		this.classPathSignature = getClassPathSignature(options.get(Option.CLASSPATH));
 	}
 
 	/**
@@ -145,10 +188,208 @@ public class JavaCompilationEnvironment {
 	 * environment.
 	 */
 	public List<JCCompilationUnit> parseAndAttributeJavaFiles(List<File> javaFiles) throws IOException {
-		List<JavaFileObject> sources = toJavaFileObjects(fileManager, javaFiles);
-		List<JCCompilationUnit> compilationUnits = compiler.enterTrees(compiler.parseFiles(sources));
+		List<JCCompilationUnit> compilationUnits = parseAndEnterJavaFiles(javaFiles);
 		compiler.attribute(compiler.todo);
 		return compilationUnits;
 	}
 
+	/**
+	 * Parses the given files and enters the resulting compilation units. The
+	 * symbols declared by these compilation units will be invalidated by the
+	 * next round.
+	 */
+	public com.sun.tools.javac.util.List<JCCompilationUnit> parseAndEnterJavaFiles(Collection<File> javaFiles) throws IOException {
+		return enterTrees(parseJavaFiles(javaFiles));
+	}
+
+	/**
+	 * Parses the given files (see {@link #enterTrees(com.sun.tools.javac.util.List)}).
+	 */
+	public com.sun.tools.javac.util.List<JCCompilationUnit> parseJavaFiles(Collection<File> javaFiles) throws IOException {
+		com.sun.tools.javac.util.List<JavaFileObject> sources = toJavaFileObjects(fileManager, javaFiles);
+		return compiler.parseFiles(sources);
+	}
+
+	/**
+	 * Enters the given parsed compilation units. The symbols declared by these
+	 * compilation units will be invalidated by the next round.
+	 */
+	public com.sun.tools.javac.util.List<JCCompilationUnit> enterTrees(com.sun.tools.javac.util.List<JCCompilationUnit> compilationUnits) {
+		this.compilationUnits = compilationUnits;
+		return compiler.enterTrees(compilationUnits);
+	}
+
+	private static String getClassPathSignature(String classPath) {
+		if (classPath == null) {
+			return null;
+		}
+		StringBuilder signature = new StringBuilder();
+		for (String entry : classPath.split(File.pathSeparator)) {
+			File file = new File(entry);
+			// directories are listed again by the file manager on each round
+			if (file.isFile()) {
+				signature.append(entry).append(':').append(file.lastModified()).append(':').append(file.length()).append(';');
+			}
+		}
+		return signature.toString();
+	}
+
+	/**
+	 * Tells if this environment can be reused to compile with the given
+	 * classpath and encoding, i.e. if they are the ones of this environment and
+	 * if none of the classpath archives was modified since this environment was
+	 * created.
+	 */
+	public boolean isReusableFor(String classPath, String encoding) {
+		return Objects.equals(classPath, options.get(Option.CLASSPATH)) && Objects.equals(encoding, options.get(Option.ENCODING))
+				&& Objects.equals(classPathSignature, getClassPathSignature(classPath));
+	}
+
+	/**
+	 * Prepares this environment for a new compilation round. The symbols
+	 * declared by the compilation units of the previous round are removed from
+	 * the symbol table, as well as the symbols that could not be completed, and
+	 * the compiler's per-round state and caches are cleared. The completed
+	 * classpath symbols are kept. The JSweet context is reset.
+	 * 
+	 * @return true if the environment is ready for a new round, false if it
+	 *         could not be cleared and shall not be reused
+	 */
+	public boolean newRound() {
+		try {
+			invalidatedClassSymbolCount = 0;
+			List<ClassSymbol> sourceClasses = new ArrayList<>();
+			for (JCCompilationUnit compilationUnit : compilationUnits) {
+				PackageSymbol packageSymbol = compilationUnit.packge;
+				if (packageSymbol != null) {
+					if (packageSymbol.package_info != null) {
+						sourceClasses.add(packageSymbol.package_info);
+						packageSymbol.package_info = null;
+					}
+					if (!compilationUnit.packageAnnotations.isEmpty()) {
+						packageSymbol.resetAnnotations();
+					}
+				}
+				new TreeScanner() {
+					@Override
+					public void visitClassDef(JCClassDecl classDecl) {
+						if (classDecl.sym != null) {
+							sourceClasses.add(classDecl.sym);
+						}
+						super.visitClassDef(classDecl);
+					}
+				}.scan(compilationUnit);
+			}
+			for (ClassSymbol classSymbol : sourceClasses) {
+				invalidate(classSymbol);
+			}
+			for (Iterator<ClassSymbol> it = symtab.classes.values().iterator(); it.hasNext();) {
+				ClassSymbol classSymbol = it.next();
+				if (classSymbol.kind == Kinds.ERR || classSymbol.type.hasTag(TypeTag.ERROR)) {
+					it.remove();
+					if (classSymbol.owner instanceof PackageSymbol) {
+						((PackageSymbol) classSymbol.owner).members().remove(classSymbol);
+					}
+					invalidatedClassSymbolCount++;
+				}
+			}
+			compilationUnits = new ArrayList<>();
+
+			Check.instance(context).compiled.clear();
+			clearCache(getField(getField(Enter.instance(context), Enter.class, "typeEnvs"), null, "map"));
+			CompileStates.instance(context).clear();
+			compiler.todo.clear();
+			clearCache(getField(compiler, JavaCompiler.class, "inputFiles"));
+			clearCache(getField(compiler, JavaCompiler.class, "desugaredEnvs"));
+			log.nerrors = 0;
+			log.nwarnings = 0;
+			clearCache(getField(log, Log.class, "recorded"));
+			clearCache(getField(log, AbstractLog.class, "sourceMap"));
+			for (Field field : Types.class.getDeclaredFields()) {
+				if (field.getType().getName().endsWith("Cache")) {
+					clearCache(getField(getField(types, Types.class, field.getName()), null, "_map"));
+				} else {
+					clearCache(getField(types, Types.class, field.getName()));
+				}
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			logger.warn("cannot reuse the compilation environment", e);
+			return false;
+		}
+		context.reset();
+		roundCount++;
+		reusedClassSymbolCount = countCompletedClassSymbols();
+		logger.debug("compilation environment reused (round " + roundCount + "): " + reusedClassSymbolCount + " classpath symbols kept, "
+				+ invalidatedClassSymbolCount + " symbols invalidated");
+		return true;
+	}
+
+	private void invalidate(ClassSymbol classSymbol) {
+		if (symtab.classes.get(classSymbol.flatname) == classSymbol) {
+			symtab.classes.remove(classSymbol.flatname);
+		}
+		if (classSymbol.owner instanceof PackageSymbol) {
+			((PackageSymbol) classSymbol.owner).members().remove(classSymbol);
+		}
+		invalidatedClassSymbolCount++;
+	}
+
+	private static Object getField(Object target, Class<?> declaringClass, String name) throws ReflectiveOperationException {
+		if (target == null) {
+			return null;
+		}
+		Field field = (declaringClass == null ? target.getClass() : declaringClass).getDeclaredField(name);
+		field.setAccessible(true);
+		return field.get(target);
+	}
+
+	private static void clearCache(Object object) {
+		if (object instanceof Map) {
+			((Map<?, ?>) object).clear();
+		} else if (object instanceof Set) {
+			((Set<?>) object).clear();
+		}
+	}
+
+	private int countCompletedClassSymbols() {
+		int count = 0;
+		for (ClassSymbol classSymbol : symtab.classes.values()) {
+			if (classSymbol.completer == null && classSymbol.classfile != null && classSymbol.classfile.getKind() == JavaFileObject.Kind.CLASS) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the number of compilation rounds this environment was reused for.
+	 */
+	public int getReuseCount() {
+		return roundCount;
+	}
+
+	/**
+	 * Gets the number of completed classpath symbols that were kept from the
+	 * previous rounds at the beginning of the current round.
+	 */
+	public int getReusedClassSymbolCount() {
+		return reusedClassSymbolCount;
+	}
+
+	/**
+	 * Gets the number of classpath symbols that were completed (read from a
+	 * class file) during the current round.
+	 */
+	public int getCompletedClassSymbolCount() {
+		return countCompletedClassSymbols() - reusedClassSymbolCount;
+	}
+
+	/**
+	 * Gets the number of symbols that were invalidated at the beginning of the
+	 * current round.
+	 */
+	public int getInvalidatedClassSymbolCount() {
+		return invalidatedClassSymbolCount;
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,288 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.transpiler.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import javax.lang.model.element.Element;
+
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Symbol.TypeSymbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.code.Type.MethodType;
+import com.sun.tools.javac.code.Types;
+import com.sun.tools.javac.tree.JCTree.JCMethodInvocation;
+
+/**
+ * An index of the members of the types, which replaces the linear scans of
+ * the enclosed elements and the recursive walks of the super types performed
+ * by the lookup functions of {@link Util}, with the same results.
+ * 
+ * <p>
+ * For each type, the index holds its members by name (in the order of
+ * {@link TypeSymbol#getEnclosedElements()}) and its super types, linearized
+ * in the order of the lookups (the type, then its superclass' hierarchy, then
+ * its interfaces' hierarchies). The index also memoizes the results of
+ * {@link Util#isInvocable(Types, MethodType, MethodType)}.
+ * 
+ * <p>
+ * The index shall be used once the types are attributed, and is thread-safe.
+ * 
+ * @author Renaud Pawlak
+ */
+public class MemberIndex {
+
+	private static final String CONSTRUCTOR_NAME = "<init>";
+
+	private static class TypeEntry {
+		final Map<String, List<Symbol>> members = new LinkedHashMap<>();
+		/**
+		 * The super types in depth-first order (a type inherited through
+		 * several paths occurs several times).
+		 */
+		TypeSymbol[] hierarchy;
+		/**
+		 * For each type of the hierarchy, the index following the types
+		 * inherited through it.
+		 */
+		int[] hierarchyEnds;
+		/**
+		 * The super types in depth-first order, without duplicates.
+		 */
+		TypeSymbol[] linearization;
+	}
+
+	private static class InvocationKey {
+		final MethodType from;
+		final MethodType target;
+
+		InvocationKey(MethodType from, MethodType target) {
+			this.from = from;
+			this.target = target;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof InvocationKey && ((InvocationKey) obj).from == from && ((InvocationKey) obj).target == target;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(from) + System.identityHashCode(target);
+		}
+	}
+
+	private final Map<TypeSymbol, TypeEntry> entries = new ConcurrentHashMap<>();
+
+	private final Map<InvocationKey, Boolean> invocables = new ConcurrentHashMap<>();
+
+	private TypeEntry getEntry(TypeSymbol typeSymbol) {
+		TypeEntry entry = entries.get(typeSymbol);
+		if (entry == null) {
+			entry = new TypeEntry();
+			if (typeSymbol.getEnclosedElements() != null) {
+				for (Symbol member : typeSymbol.getEnclosedElements()) {
+					entry.members.computeIfAbsent(member.getSimpleName().toString(), name -> new ArrayList<>(1)).add(member);
+				}
+			}
+			List<TypeSymbol> hierarchy = new ArrayList<>();
+			List<Integer> hierarchyEnds = new ArrayList<>();
+			linearize(typeSymbol, hierarchy, hierarchyEnds);
+			entry.hierarchy = hierarchy.toArray(new TypeSymbol[hierarchy.size()]);
+			entry.hierarchyEnds = hierarchyEnds.stream().mapToInt(Integer::intValue).toArray();
+			Set<TypeSymbol> linearization = new LinkedHashSet<>(hierarchy);
+			entry.linearization = linearization.toArray(new TypeSymbol[linearization.size()]);
+			TypeEntry previous = entries.putIfAbsent(typeSymbol, entry);
+			if (previous != null) {
+				entry = previous;
+			}
+		}
+		return entry;
+	}
+
+	private static void linearize(TypeSymbol typeSymbol, List<TypeSymbol> hierarchy, List<Integer> hierarchyEnds) {
+		int index = hierarchy.size();
+		hierarchy.add(typeSymbol);
+		hierarchyEnds.add(-1);
+		if (typeSymbol instanceof ClassSymbol) {
+			ClassSymbol classSymbol = (ClassSymbol) typeSymbol;
+			if (classSymbol.getSuperclass() != null && classSymbol.getSuperclass().tsym != null) {
+				linearize(classSymbol.getSuperclass().tsym, hierarchy, hierarchyEnds);
+			}
+			if (classSymbol.getInterfaces() != null) {
+				for (Type t : classSymbol.getInterfaces()) {
+					if (t.tsym != null) {
+						linearize(t.tsym, hierarchy, hierarchyEnds);
+					}
+				}
+			}
+		}
+		hierarchyEnds.set(index, hierarchy.size());
+	}
+
+	/**
+	 * Gets the members of the given type (not including the inherited ones)
+	 * that have the given name.
+	 */
+	public List<Symbol> getMembers(TypeSymbol typeSymbol, String name) {
+		if (typeSymbol == null) {
+			return Collections.emptyList();
+		}
+		List<Symbol> members = getEntry(typeSymbol).members.get(name);
+		return members == null ? Collections.emptyList() : Collections.unmodifiableList(members);
+	}
+
+	/**
+	 * Gets the given type and its super types, in the lookup order and without
+	 * duplicates.
+	 */
+	public List<TypeSymbol> getLinearizedHierarchy(TypeSymbol typeSymbol) {
+		if (typeSymbol == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(Arrays.asList(getEntry(typeSymbol).linearization));
+	}
+
+	/**
+	 * Finds the method in the given type hierarchy that matches the given name
+	 * and signature (same as
+	 * {@link Util#findMethodDeclarationInType(Types, TypeSymbol, String, MethodType, boolean)}
+	 * ).
+	 */
+	public MethodSymbol findMethodDeclarationInType(Types types, TypeSymbol typeSymbol, String methodName, MethodType methodType, boolean overrides) {
+		if (typeSymbol == null) {
+			return null;
+		}
+		String name = "this".equals(methodName) ? CONSTRUCTOR_NAME : methodName;
+		TypeSymbol[] linearization = getEntry(typeSymbol).linearization;
+		for (int i = 0; i < linearization.length; i++) {
+			List<Symbol> members = getEntry(linearization[i]).members.get(name);
+			if (members == null) {
+				continue;
+			}
+			for (Symbol member : members) {
+				if (!(member instanceof MethodSymbol)) {
+					continue;
+				}
+				MethodSymbol methodSymbol = (MethodSymbol) member;
+				if (methodType == null) {
+					return methodSymbol;
+				}
+				// as in Util, the overriding check only applies to the given type
+				if (overrides && i == 0 ? isInvocable(types, methodSymbol.type.asMethodType(), methodType)
+						: isInvocable(types, methodType, methodSymbol.type.asMethodType())) {
+					return methodSymbol;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the method in the given type hierarchy that matches the given name
+	 * and signature (same as
+	 * {@link Util#findMethodDeclarationInType(Types, TypeSymbol, String, MethodType)}
+	 * ).
+	 */
+	public MethodSymbol findMethodDeclarationInType(Types types, TypeSymbol typeSymbol, String methodName, MethodType methodType) {
+		return findMethodDeclarationInType(types, typeSymbol, methodName, methodType, false);
+	}
+
+	/**
+	 * Finds the method declaration in the given type hierarchy, for the given
+	 * invocation (same as
+	 * {@link Util#findMethodDeclarationInType(Types, TypeSymbol, JCMethodInvocation)}
+	 * ).
+	 */
+	public MethodSymbol findMethodDeclarationInType(Types types, TypeSymbol typeSymbol, JCMethodInvocation invocation) {
+		String meth = invocation.meth.toString();
+		String methName = meth.substring(meth.lastIndexOf('.') + 1);
+		return findMethodDeclarationInType(types, typeSymbol, methName, (MethodType) invocation.meth.type);
+	}
+
+	/**
+	 * Finds the first member of the given type (not including the inherited
+	 * ones) that has the given name (same as
+	 * {@link Util#findFirstDeclarationInType(TypeSymbol, String)}).
+	 */
+	public Symbol findFirstDeclarationInType(TypeSymbol typeSymbol, String name) {
+		List<Symbol> members = getMembers(typeSymbol, name);
+		return members.isEmpty() ? null : members.get(0);
+	}
+
+	/**
+	 * Scans the members that have the given name in the given type hierarchy
+	 * (same as
+	 * {@link Util#scanMemberDeclarationsInType(TypeSymbol, Set, Function)},
+	 * restricted to the given name).
+	 * 
+	 * @param ignoredTypeNames
+	 *            the names of the types that are not scanned (including their
+	 *            super types when not inherited through another path)
+	 * @param scanner
+	 *            scans a member and returns false to stop scanning
+	 * @return false if the scan was stopped
+	 */
+	public boolean scanMemberDeclarationsInType(TypeSymbol typeSymbol, Set<String> ignoredTypeNames, String name, Function<Element, Boolean> scanner) {
+		if (typeSymbol == null) {
+			return true;
+		}
+		TypeEntry entry = getEntry(typeSymbol);
+		for (int i = 0; i < entry.hierarchy.length;) {
+			if (ignoredTypeNames.contains(entry.hierarchy[i].getQualifiedName().toString())) {
+				i = entry.hierarchyEnds[i];
+				continue;
+			}
+			List<Symbol> members = getEntry(entry.hierarchy[i]).members.get(name);
+			if (members != null) {
+				for (Symbol member : members) {
+					if (!scanner.apply(member)) {
+						return false;
+					}
+				}
+			}
+			i++;
+		}
+		return true;
+	}
+
+	/**
+	 * Tells if a method can be invoked with some given parameter types (same
+	 * as {@link Util#isInvocable(Types, MethodType, MethodType)}, memoized).
+	 */
+	public boolean isInvocable(Types types, MethodType from, MethodType target) {
+		InvocationKey key = new InvocationKey(from, target);
+		Boolean invocable = invocables.get(key);
+		if (invocable == null) {
+			invocable = Util.isInvocable(types, from, target);
+			invocables.put(key, invocable);
+		}
+		return invocable;
+	}
+
+}
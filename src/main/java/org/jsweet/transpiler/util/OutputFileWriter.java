@@ -0,0 +1,317 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.transpiler.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Writes generated files only when their content changes, so that the
+ * modification dates of unchanged files are preserved (and the tools
+ * depending on these dates, such as tsc in watch mode, do not redo their
+ * work).
+ *
+ * <p>
+ * The content hashes of the written files are kept in a manifest, which is
+ * persisted from one transpilation to another. When a file has not been
+ * modified since it was written (same length and modification date), its
+ * recorded hash is compared to the hash of the new content. Otherwise, the
+ * actual file content is compared.
+ *
+ * <p>
+ * Large files (such as bundles) can be streamed with {@link #open(File)}, so
+ * that their content never needs to be held in memory as a whole.
+ *
+ * @author Renaud Pawlak
+ */
+public class OutputFileWriter {
+
+	private static final Logger logger = Logger.getLogger(OutputFileWriter.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static class Entry {
+		String hash;
+		long length;
+		long lastModified;
+
+		Entry(String hash, File file) {
+			this.hash = hash;
+			this.length = file.length();
+			this.lastModified = file.lastModified();
+		}
+	}
+
+	private File manifestFile;
+	private Map<String, Entry> entries;
+	private boolean modified = false;
+	private int writtenCount = 0;
+	private int skippedCount = 0;
+	private long writtenByteCount = 0;
+
+	/**
+	 * Creates a writer.
+	 *
+	 * @param manifestFile
+	 *            the file where the content hashes are persisted (see
+	 *            {@link #save()})
+	 */
+	public OutputFileWriter(File manifestFile) {
+		this.manifestFile = manifestFile;
+	}
+
+	private void load() {
+		if (entries != null) {
+			return;
+		}
+		entries = new HashMap<>();
+		if (manifestFile.exists()) {
+			try {
+				Type type = new TypeToken<HashMap<String, Entry>>() {
+				}.getType();
+				Map<String, Entry> loaded = new Gson().fromJson(FileUtils.readFileToString(manifestFile, StandardCharsets.UTF_8), type);
+				if (loaded != null) {
+					entries.putAll(loaded);
+				}
+			} catch (Exception e) {
+				logger.warn("cannot read output manifest " + manifestFile + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * A writer that streams the content of a file to a temporary file, while
+	 * computing its hash. When closed, the temporary file replaces the file,
+	 * unless the content is unchanged.
+	 */
+	public class Output extends FilterWriter {
+		private File file;
+		private File tempFile;
+		private MessageDigest digest;
+		private boolean closed = false;
+
+		private Output(File file, File tempFile, MessageDigest digest) throws IOException {
+			super(new BufferedWriter(
+					new OutputStreamWriter(new DigestOutputStream(Files.newOutputStream(tempFile.toPath()), digest), Charset.defaultCharset()),
+					BUFFER_SIZE));
+			this.file = file;
+			this.tempFile = tempFile;
+			this.digest = digest;
+		}
+
+		/**
+		 * Closes this writer and replaces the file with the written content
+		 * (if changed).
+		 */
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				super.close();
+			} catch (IOException e) {
+				Files.deleteIfExists(tempFile.toPath());
+				throw e;
+			}
+			commit(file, tempFile, toHex(digest.digest()));
+		}
+
+		/**
+		 * Closes this writer and throws away the written content, leaving the
+		 * file untouched.
+		 */
+		public void discard() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				super.close();
+			} finally {
+				Files.deleteIfExists(tempFile.toPath());
+			}
+		}
+	}
+
+	/**
+	 * Writes the given content (with the platform's default charset) to the
+	 * given file, unless the file already holds that content.
+	 *
+	 * @return true if the file was written, false if it was skipped
+	 */
+	public synchronized boolean write(File file, String content) throws IOException {
+		load();
+		byte[] bytes = content.getBytes(Charset.defaultCharset());
+		String hash = toHex(newDigest().digest(bytes));
+		if (isUnchanged(file, bytes.length, hash)) {
+			return false;
+		}
+		FileUtils.writeByteArrayToFile(file, bytes);
+		entries.put(file.getAbsolutePath(), new Entry(hash, file));
+		modified = true;
+		writtenCount++;
+		writtenByteCount += bytes.length;
+		return true;
+	}
+
+	/**
+	 * Opens a writer to stream the content of the given file (with the
+	 * platform's default charset). The file is actually written when the
+	 * returned writer is closed, unless it already holds that content.
+	 */
+	public Output open(File file) throws IOException {
+		file.getAbsoluteFile().getParentFile().mkdirs();
+		File tempFile = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+		return new Output(file, tempFile, newDigest());
+	}
+
+	private synchronized void commit(File file, File tempFile, String hash) throws IOException {
+		load();
+		if (isUnchanged(file, tempFile.length(), hash)) {
+			Files.delete(tempFile.toPath());
+			return;
+		}
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		entries.put(file.getAbsolutePath(), new Entry(hash, file));
+		modified = true;
+		writtenCount++;
+		writtenByteCount += file.length();
+	}
+
+	private boolean isUnchanged(File file, long length, String hash) throws IOException {
+		if (!file.isFile() || file.length() != length) {
+			return false;
+		}
+		String key = file.getAbsolutePath();
+		Entry entry = entries.get(key);
+		boolean unchanged;
+		if (entry != null && entry.length == file.length() && entry.lastModified == file.lastModified()) {
+			unchanged = entry.hash.equals(hash);
+		} else {
+			// unknown or externally modified file
+			unchanged = hash(file).equals(hash);
+			if (unchanged) {
+				entries.put(key, new Entry(hash, file));
+				modified = true;
+			}
+		}
+		if (unchanged) {
+			logger.debug("unchanged output: " + file);
+			skippedCount++;
+		}
+		return unchanged;
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String hash(File file) throws IOException {
+		MessageDigest digest = newDigest();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, count);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	private static String toHex(byte[] hash) {
+		StringBuilder sb = new StringBuilder();
+		for (byte b : hash) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Persists the content hashes of the written files.
+	 */
+	public synchronized void save() {
+		if (!modified) {
+			return;
+		}
+		try {
+			FileUtils.write(manifestFile, new Gson().toJson(entries), StandardCharsets.UTF_8);
+			modified = false;
+		} catch (IOException e) {
+			logger.warn("cannot write output manifest " + manifestFile + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Gets the number of files written since the last call to
+	 * {@link #resetCounts()}.
+	 */
+	public int getWrittenCount() {
+		return writtenCount;
+	}
+
+	/**
+	 * Gets the number of files skipped (because unchanged) since the last call
+	 * to {@link #resetCounts()}.
+	 */
+	public int getSkippedCount() {
+		return skippedCount;
+	}
+
+	/**
+	 * Gets the number of bytes written since the last call to
+	 * {@link #resetCounts()}.
+	 */
+	public long getWrittenByteCount() {
+		return writtenByteCount;
+	}
+
+	/**
+	 * Resets the written and skipped file counts.
+	 */
+	public synchronized void resetCounts() {
+		writtenCount = 0;
+		skippedCount = 0;
+		writtenByteCount = 0;
+	}
+
+}
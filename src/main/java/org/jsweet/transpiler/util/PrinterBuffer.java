@@ -0,0 +1,233 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.transpiler.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * The output buffer of a printer (see {@link AbstractTreePrinter}).
+ *
+ * <p>
+ * The characters are stored in fixed-size chunks, so that growing the buffer
+ * never copies the printed content. Truncating the buffer (for instance to
+ * roll back a subtree, see {@link #truncate(int)}) is a constant-time
+ * operation, which keeps the allocated chunks for reuse. The beginning of
+ * the content can be flushed to a writer (see {@link #flush(Writer, int)}),
+ * in which case the flushed chunks are released and the flushed characters
+ * cannot be accessed or removed anymore. Positions are always given from the
+ * beginning of the whole content, including the flushed characters.
+ *
+ * @author Renaud Pawlak
+ */
+public class PrinterBuffer {
+
+	private static final int CHUNK_SHIFT = 13;
+
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private char[][] chunks = new char[4][];
+
+	private int length = 0;
+
+	private int flushedLength = 0;
+
+	/**
+	 * Gets the number of characters in this buffer (including the flushed
+	 * ones).
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Gets the number of characters flushed so far.
+	 */
+	public int getFlushedLength() {
+		return flushedLength;
+	}
+
+	private char[] chunkAt(int index) {
+		int chunkIndex = index >>> CHUNK_SHIFT;
+		if (chunkIndex >= chunks.length) {
+			chunks = Arrays.copyOf(chunks, Math.max(chunks.length * 2, chunkIndex + 1));
+		}
+		char[] chunk = chunks[chunkIndex];
+		if (chunk == null) {
+			chunk = chunks[chunkIndex] = new char[CHUNK_SIZE];
+		}
+		return chunk;
+	}
+
+	private void checkRange(int start, int end) {
+		if (start < flushedLength || start > end || end > length) {
+			throw new IndexOutOfBoundsException("range [" + start + ", " + end + "[ is not within [" + flushedLength + ", " + length + "[");
+		}
+	}
+
+	/**
+	 * Appends a string.
+	 */
+	public PrinterBuffer append(String string) {
+		int count = string.length();
+		int offset = 0;
+		while (offset < count) {
+			char[] chunk = chunkAt(length);
+			int chunkOffset = length & CHUNK_MASK;
+			int n = Math.min(count - offset, CHUNK_SIZE - chunkOffset);
+			string.getChars(offset, offset + n, chunk, chunkOffset);
+			offset += n;
+			length += n;
+		}
+		return this;
+	}
+
+	/**
+	 * Appends the given character <code>count</code> times.
+	 */
+	public PrinterBuffer append(char c, int count) {
+		while (count > 0) {
+			char[] chunk = chunkAt(length);
+			int chunkOffset = length & CHUNK_MASK;
+			int n = Math.min(count, CHUNK_SIZE - chunkOffset);
+			Arrays.fill(chunk, chunkOffset, chunkOffset + n, c);
+			count -= n;
+			length += n;
+		}
+		return this;
+	}
+
+	/**
+	 * Gets the character at the given position (which must not be flushed).
+	 */
+	public char charAt(int index) {
+		checkRange(index, index + 1);
+		return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+	}
+
+	/**
+	 * Truncates this buffer to the given length, which must be greater than
+	 * the flushed length.
+	 */
+	public void truncate(int newLength) {
+		if (newLength < flushedLength) {
+			throw new IllegalStateException("cannot truncate flushed output (flushed length: " + flushedLength + ", new length: " + newLength + ")");
+		}
+		checkRange(newLength, length);
+		length = newLength;
+	}
+
+	/**
+	 * Gets the position of the first occurrence of the given character from
+	 * the given position, or -1 if not found.
+	 */
+	public int indexOf(char c, int from) {
+		checkRange(from, length);
+		for (int i = from; i < length; i++) {
+			if (chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Counts the occurrences of the given character from the given position.
+	 */
+	public int count(char c, int from) {
+		checkRange(from, length);
+		int count = 0;
+		for (int i = from; i < length; i++) {
+			if (chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK] == c) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the consecutive occurrences of the given character at the end of
+	 * this buffer (flushed characters are not counted).
+	 */
+	public int countTrailing(char c) {
+		int i = length - 1;
+		while (i >= flushedLength && chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK] == c) {
+			i--;
+		}
+		return length - 1 - i;
+	}
+
+	/**
+	 * Gets the content from the given position to the end of this buffer.
+	 */
+	public String substring(int from) {
+		checkRange(from, length);
+		char[] chars = new char[length - from];
+		for (int i = from; i < length;) {
+			int chunkOffset = i & CHUNK_MASK;
+			int n = Math.min(length - i, CHUNK_SIZE - chunkOffset);
+			System.arraycopy(chunks[i >>> CHUNK_SHIFT], chunkOffset, chars, i - from, n);
+			i += n;
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Writes the characters between the given positions to the given writer.
+	 */
+	private void write(Writer writer, int start, int end) throws IOException {
+		for (int i = start; i < end;) {
+			int chunkOffset = i & CHUNK_MASK;
+			int n = Math.min(end - i, CHUNK_SIZE - chunkOffset);
+			writer.write(chunks[i >>> CHUNK_SHIFT], chunkOffset, n);
+			i += n;
+		}
+	}
+
+	/**
+	 * Writes the content of this buffer that was not flushed to the given
+	 * writer (the content is kept in this buffer).
+	 */
+	public void writeTo(Writer writer) throws IOException {
+		write(writer, flushedLength, length);
+	}
+
+	/**
+	 * Writes the content of this buffer that was not flushed, up to the given
+	 * position, to the given writer, and releases it.
+	 */
+	public void flush(Writer writer, int end) throws IOException {
+		checkRange(flushedLength, end);
+		write(writer, flushedLength, end);
+		flushedLength = end;
+		for (int i = 0; i < flushedLength >>> CHUNK_SHIFT; i++) {
+			chunks[i] = null;
+		}
+	}
+
+	/**
+	 * Gets the content of this buffer that was not flushed.
+	 */
+	@Override
+	public String toString() {
+		return substring(flushedLength);
+	}
+
+}
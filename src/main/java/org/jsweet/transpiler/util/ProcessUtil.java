@@ -99,6 +99,18 @@ public class ProcessUtil {
 		return new File(getNpmPath(command)).exists();
 	}
 
+	/**
+	 * Gets the directory of a node package installed globally with npm (see
+	 * {@link #installNodePackage(String, String, boolean)}).
+	 */
+	public static File getGlobalNodePackageDir(String nodePackageName) {
+		if (System.getProperty("os.name").startsWith("Windows")) {
+			return new File(NPM_DIR, "node_modules" + File.separator + nodePackageName);
+		} else {
+			return new File(NPM_DIR, "lib" + File.separator + "node_modules" + File.separator + nodePackageName);
+		}
+	}
+
 	/**
 	 * Runs the given command.
 	 * 
@@ -161,6 +173,36 @@ public class ProcessUtil {
 	 */
 	public static Process runCommand(String command, File directory, boolean async, Consumer<String> stdoutConsumer, Consumer<Process> endConsumer,
 			Runnable errorHandler, String... args) {
+		return runCommandWithProcessTracker(command, directory, async, null, stdoutConsumer, endConsumer, errorHandler, args);
+	}
+
+	/**
+	 * Runs the given command and gives the created process to a tracker as
+	 * soon as it is started.
+	 * 
+	 * @param command
+	 *            the command name
+	 * @param directory
+	 *            the working directory of the created process
+	 * @param async
+	 *            tells if the command should be run asynchronously (in a
+	 *            separate thread)
+	 * @param startConsumer
+	 *            called when the process is started (before its output is
+	 *            consumed)
+	 * @param stdoutConsumer
+	 *            consumes the standard output stream as lines of characters
+	 * @param endConsumer
+	 *            called when the process actually ends
+	 * @param errorHandler
+	 *            upcalled when the command does not terminate successfully
+	 * @param args
+	 *            the command-line arguments
+	 * @return the process that was created to execute the command (can be still
+	 *         running at this point if <code>async</code> is <code>true</code>)
+	 */
+	public static Process runCommandWithProcessTracker(String command, File directory, boolean async, Consumer<Process> startConsumer,
+			Consumer<String> stdoutConsumer, Consumer<Process> endConsumer, Runnable errorHandler, String... args) {
 
 		String[] cmd;
 		if (System.getProperty("os.name").startsWith("Windows")) {
@@ -191,6 +233,9 @@ public class ProcessUtil {
 			}
 
 			process[0] = processBuilder.start();
+			if (startConsumer != null) {
+				startConsumer.accept(process[0]);
+			}
 
 			Runnable runnable = new Runnable() {
 
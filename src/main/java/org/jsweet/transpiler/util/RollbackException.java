@@ -23,6 +23,10 @@ import com.sun.tools.javac.tree.JCTree;
 /**
  * This exception can be thrown to rollback the scanning of an AST.
  * 
+ * <p>
+ * Since it is used as a control flow signal, this exception has no stack trace
+ * and can be reused (see {@link #reset(JCTree, Consumer)}).
+ * 
  * @author Renaud Pawlak
  */
 public class RollbackException extends RuntimeException {
@@ -41,9 +45,18 @@ public class RollbackException extends RuntimeException {
 	 *            the handler to be executed once rollbacked.
 	 */
 	public RollbackException(JCTree target, Consumer<JCTree> onRollbacked) {
-		super();
+		super(null, null, false, false);
+		this.target = target;
+		this.onRollbacked = onRollbacked;
+	}
+
+	/**
+	 * Reinitializes this exception for another rollback.
+	 */
+	RollbackException reset(JCTree target, Consumer<JCTree> onRollbacked) {
 		this.target = target;
 		this.onRollbacked = onRollbacked;
+		return this;
 	}
 
 	/**
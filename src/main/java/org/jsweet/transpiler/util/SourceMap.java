@@ -16,22 +16,40 @@
  */
 package org.jsweet.transpiler.util;
 
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Arrays;
 
 /**
  * This object represents a source map between an input source file and an
  * output source file.
  * 
+ * <p>
+ * The entries are stored in growable arrays of packed line/column keys (no
+ * object is allocated per entry), in the order they are added. Shifting the
+ * output positions (see {@link #shiftOutputPositions(int)}) only updates an
+ * offset.
+ * 
+ * <p>
+ * The lookups by output position use an index sorted by output position,
+ * which is built on the first lookup (and rebuilt when the map is modified),
+ * so that each lookup is a binary search. Since the entries are usually added
+ * in the output order, the index is most of the time the entries arrays
+ * themselves.
+ * 
  * @author Renaud Pawlak
  */
 public class SourceMap {
 
+	private static final int INITIAL_CAPACITY = 64;
+
 	/**
 	 * An entry in the source map.
 	 * 
 	 * @see SourceMap
+	 * @deprecated the entries are not stored as objects anymore, use
+	 *             {@link SourceMap#getInputLine(int)} and the other
+	 *             accessors by entry index instead
 	 */
+	@Deprecated
 	public static final class Entry implements Comparable<Entry> {
 		private final Position inputPosition;
 		private Position outputPosition;
@@ -50,6 +68,10 @@ public class SourceMap {
 			return outputPosition;
 		}
 
+		/**
+		 * Sets the output position of this entry (does not modify the source
+		 * map it comes from).
+		 */
 		public final void setOutputPosition(Position position) {
 			this.outputPosition = position;
 		}
@@ -65,21 +87,198 @@ public class SourceMap {
 		}
 	}
 
-	private SortedSet<Entry> entries = new TreeSet<>();
+	/**
+	 * The entries sorted by output positions, as packed line/column keys (see
+	 * {@link SourceMap#toKey(int, int)}), with the corresponding input
+	 * positions.
+	 */
+	private static final class OutputIndex {
+		private final long[] outputKeys;
+		private final long[] inputKeys;
+		private final int size;
+
+		private OutputIndex(long[] outputKeys, long[] inputKeys, int size) {
+			this.outputKeys = outputKeys;
+			this.inputKeys = inputKeys;
+			this.size = size;
+		}
+	}
+
+	private long[] inputKeys = new long[INITIAL_CAPACITY];
+	private long[] outputKeys = new long[INITIAL_CAPACITY];
+	private int size = 0;
+	private int outputLineOffset = 0;
+
+	private transient volatile OutputIndex outputIndex;
+
+	private static long toKey(int line, int column) {
+		return ((long) line << 32) | (column & 0xFFFFFFFFL);
+	}
+
+	private static int getLine(long key) {
+		return (int) (key >> 32);
+	}
+
+	private static int getColumn(long key) {
+		return (int) key;
+	}
 
 	/**
-	 * Adds an entry to the source map (entry must be added in order).
+	 * Adds an entry to the source map.
 	 * 
 	 * @param inputPosition
 	 *            the input position in the input source file
 	 * @param outputPosition
 	 *            the output position in the output source file
-	 * @return the added entry (null if the entry cannot be added)
+	 * @return the added entry, as a copy that is not backed by this source
+	 *         map
 	 */
+	@SuppressWarnings("deprecation")
 	public final Entry addEntry(Position inputPosition, Position outputPosition) {
-		Entry entry = new Entry(inputPosition, outputPosition);
-		entries.add(entry);
-		return entry;
+		addEntry(inputPosition.getLine(), inputPosition.getColumn(), outputPosition.getLine(), outputPosition.getColumn());
+		return new Entry(inputPosition, outputPosition);
+	}
+
+	/**
+	 * Adds an entry to the source map.
+	 * 
+	 * @param inputLine
+	 *            the line in the input source file
+	 * @param inputColumn
+	 *            the column in the input source file
+	 * @param outputLine
+	 *            the line in the output source file
+	 * @param outputColumn
+	 *            the column in the output source file
+	 */
+	public final void addEntry(int inputLine, int inputColumn, int outputLine, int outputColumn) {
+		if (size == inputKeys.length) {
+			inputKeys = Arrays.copyOf(inputKeys, size * 2);
+			outputKeys = Arrays.copyOf(outputKeys, size * 2);
+		}
+		inputKeys[size] = toKey(inputLine, inputColumn);
+		outputKeys[size++] = toKey(outputLine - outputLineOffset, outputColumn);
+		outputIndex = null;
+	}
+
+	/**
+	 * Gets the number of entries in this source map.
+	 */
+	public final int size() {
+		return size;
+	}
+
+	/**
+	 * Removes the last entries of this source map, so that it contains the
+	 * given number of entries (typically when the output is rolled back).
+	 */
+	public final void truncate(int size) {
+		if (size < this.size) {
+			this.size = size;
+			outputIndex = null;
+		}
+	}
+
+	/**
+	 * Releases the unused capacity of this source map (once complete).
+	 */
+	public final void trimToSize() {
+		if (size < inputKeys.length) {
+			inputKeys = Arrays.copyOf(inputKeys, size);
+			outputKeys = Arrays.copyOf(outputKeys, size);
+			outputIndex = null;
+		}
+	}
+
+	/**
+	 * Gets the input line of the given entry.
+	 */
+	public final int getInputLine(int entry) {
+		return getLine(inputKeys[entry]);
+	}
+
+	/**
+	 * Gets the input column of the given entry.
+	 */
+	public final int getInputColumn(int entry) {
+		return getColumn(inputKeys[entry]);
+	}
+
+	/**
+	 * Gets the output line of the given entry.
+	 */
+	public final int getOutputLine(int entry) {
+		return getLine(outputKeys[entry]) + outputLineOffset;
+	}
+
+	/**
+	 * Gets the output column of the given entry.
+	 */
+	public final int getOutputColumn(int entry) {
+		return getColumn(outputKeys[entry]);
+	}
+
+	/**
+	 * Gets a copy of the entries of this source map, sorted by input
+	 * positions.
+	 * 
+	 * @deprecated allocates an object per entry, use {@link #size()} and the
+	 *             accessors by entry index instead
+	 */
+	@Deprecated
+	public final Entry[] getSortedEntries() {
+		Entry[] entries = new Entry[size];
+		for (int i = 0; i < size; i++) {
+			entries[i] = new Entry(new Position(getInputLine(i), getInputColumn(i)), new Position(getOutputLine(i), getOutputColumn(i)));
+		}
+		Arrays.sort(entries);
+		return entries;
+	}
+
+	private OutputIndex getOutputIndex() {
+		OutputIndex index = outputIndex;
+		if (index == null) {
+			boolean sorted = true;
+			for (int i = 1; i < size && sorted; i++) {
+				sorted = outputKeys[i - 1] <= outputKeys[i];
+			}
+			if (sorted) {
+				index = new OutputIndex(outputKeys, inputKeys, size);
+			} else {
+				// stable sort: the entries added first come first for a given
+				// output position
+				Integer[] order = new Integer[size];
+				for (int i = 0; i < size; i++) {
+					order[i] = i;
+				}
+				Arrays.sort(order, (i1, i2) -> Long.compare(outputKeys[i1], outputKeys[i2]));
+				long[] sortedOutputKeys = new long[size];
+				long[] sortedInputKeys = new long[size];
+				for (int i = 0; i < size; i++) {
+					sortedOutputKeys[i] = outputKeys[order[i]];
+					sortedInputKeys[i] = inputKeys[order[i]];
+				}
+				index = new OutputIndex(sortedOutputKeys, sortedInputKeys, size);
+			}
+			outputIndex = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the first mapped output line (-1 if this map is empty).
+	 */
+	public final int getFirstOutputLine() {
+		OutputIndex index = getOutputIndex();
+		return index.size == 0 ? -1 : getLine(index.outputKeys[0]) + outputLineOffset;
+	}
+
+	/**
+	 * Gets the last mapped output line (-1 if this map is empty).
+	 */
+	public final int getLastOutputLine() {
+		OutputIndex index = getOutputIndex();
+		return index.size == 0 ? -1 : getLine(index.outputKeys[index.size - 1]) + outputLineOffset;
 	}
 
 	/**
@@ -94,7 +293,14 @@ public class SourceMap {
 	}
 
 	/**
-	 * Finds the input position from an output position.
+	 * Finds the input position from an output position: the input position of
+	 * the closest entry on the same output line (at or before the given
+	 * column if any), or of the last entry before the given line.
+	 * 
+	 * <p>
+	 * Note that the column is taken into account, so that the result may
+	 * differ from the first entry on the line when the line maps several
+	 * input positions (see {@link #findInputPosition(int)}).
 	 * 
 	 * @param outputLine
 	 *            a line in the output source file
@@ -103,41 +309,54 @@ public class SourceMap {
 	 * @return the mapped position in the input source file
 	 */
 	public final Position findInputPosition(int outputLine, int outputColumn) {
-		if (entries.isEmpty()) {
-			return null;
-		}
-		if (outputLine < entries.first().getOutputPosition().getLine()) {
-			return null;
-		}
-		if (outputLine > entries.last().getOutputPosition().getLine()) {
+		OutputIndex index = getOutputIndex();
+		long[] keys = index.outputKeys;
+		int n = index.size;
+		outputLine -= outputLineOffset;
+		if (n == 0 || outputLine < getLine(keys[0]) || outputLine > getLine(keys[n - 1])) {
 			return null;
 		}
-		if (entries != null) {
-			Entry[] e = entries.toArray(new Entry[0]);
-			for (int i = 0; i < entries.size(); i++) {
-				if (i == e.length - 1 || (e[i].getOutputPosition().getLine() == outputLine || e[i + 1].getOutputPosition().getLine() > outputLine)) {
-					return e[i].getInputPosition();
-				}
+		int i = Arrays.binarySearch(keys, 0, n, toKey(outputLine, outputColumn));
+		if (i < 0) {
+			// insertion point: the entry before is the closest one (if on the
+			// same line), otherwise the first entry of the line (if any)
+			i = -i - 1;
+			if (i == n || getLine(keys[i]) != outputLine || (i > 0 && getLine(keys[i - 1]) == outputLine)) {
+				i--;
 			}
 		}
-		return null;
+		// first entry for that output position
+		while (i > 0 && keys[i - 1] == keys[i]) {
+			i--;
+		}
+		return new Position(getLine(index.inputKeys[i]), getColumn(index.inputKeys[i]));
+	}
+
+	/**
+	 * Finds the input position from an output line: the input position of the
+	 * first entry on the given output line, or of the last entry before the
+	 * given line.
+	 * 
+	 * @param outputLine
+	 *            a line in the output source file
+	 * @return the mapped position in the input source file
+	 */
+	public final Position findInputPosition(int outputLine) {
+		return findInputPosition(outputLine, 0);
 	}
 
 	/**
 	 * Shifts the ouput positions by the given line offset.
 	 */
 	public final void shiftOutputPositions(int lineOffset) {
-		for (Entry entry : entries) {
-			entry.setOutputPosition(new Position(entry.getOutputPosition().getLine() + lineOffset, entry.getOutputPosition().getColumn()));
-		}
+		outputLineOffset += lineOffset;
 	}
 
 	@Override
 	public String toString() {
-		StringBuffer sb = new StringBuffer();
-		for (Entry entry : entries) {
-			sb.append(entry.toString());
-			sb.append(" ");
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			sb.append("(" + getInputLine(i) + "," + getInputColumn(i) + ")->(" + getOutputLine(i) + "," + getOutputColumn(i) + ") ");
 		}
 		return sb.toString();
 	}
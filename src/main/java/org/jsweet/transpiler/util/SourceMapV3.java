@@ -0,0 +1,240 @@
+/* 
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.transpiler.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.gson.Gson;
+
+/**
+ * Reads, composes and writes source maps in the standard v3 format (with
+ * Base64 VLQ-encoded mappings).
+ * 
+ * <p>
+ * The JavaScript files generated by tsc are mapped to the TypeScript files,
+ * which are mapped to the Java files by the transpiler's own source maps (see
+ * {@link SourceMap}). Composing both gives the JavaScript to Java source map,
+ * with accurate lines and columns.
+ * 
+ * @author Renaud Pawlak
+ */
+public final class SourceMapV3 {
+
+	private static final String BASE64_DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+	private static final int[] BASE64_VALUES = new int[128];
+
+	static {
+		Arrays.fill(BASE64_VALUES, -1);
+		for (int i = 0; i < BASE64_DIGITS.length(); i++) {
+			BASE64_VALUES[BASE64_DIGITS.charAt(i)] = i;
+		}
+	}
+
+	/**
+	 * The number of ints per decoded segment: generated column, source index,
+	 * source line and source column.
+	 */
+	public static final int SEGMENT_SIZE = 4;
+
+	/**
+	 * The JSON structure of a v3 source map.
+	 */
+	private static class Json {
+		int version = 3;
+		String file;
+		String sourceRoot = "";
+		List<String> sources = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+		String mappings = "";
+	}
+
+	private SourceMapV3() {
+	}
+
+	/**
+	 * Appends the Base64 VLQ encoding of the given value.
+	 */
+	public static void encodeVlq(StringBuilder sb, int value) {
+		int vlq = value < 0 ? ((-value) << 1) | 1 : value << 1;
+		do {
+			int digit = vlq & 31;
+			vlq >>>= 5;
+			if (vlq > 0) {
+				// continuation bit
+				digit |= 32;
+			}
+			sb.append(BASE64_DIGITS.charAt(digit));
+		} while (vlq > 0);
+	}
+
+	/**
+	 * Decodes the given VLQ-encoded mappings.
+	 * 
+	 * @return for each generated line, the mapped segments (groups of
+	 *         {@link #SEGMENT_SIZE} ints, with 0-based lines and columns);
+	 *         unmapped segments are skipped
+	 */
+	public static List<int[]> decodeMappings(String mappings) {
+		List<int[]> lines = new ArrayList<>();
+		int[] segment = new int[5];
+		int[] state = new int[5];
+		int[] line = new int[4 * SEGMENT_SIZE];
+		int lineSize = 0;
+		int fieldCount = 0;
+		int value = 0;
+		int shift = 0;
+		for (int i = 0; i <= mappings.length(); i++) {
+			char c = i == mappings.length() ? ';' : mappings.charAt(i);
+			if (c == ',' || c == ';') {
+				// end of segment
+				for (int field = 0; field < fieldCount; field++) {
+					state[field] += segment[field];
+				}
+				if (fieldCount >= SEGMENT_SIZE) {
+					if (lineSize == line.length) {
+						line = Arrays.copyOf(line, lineSize * 2);
+					}
+					System.arraycopy(state, 0, line, lineSize, SEGMENT_SIZE);
+					lineSize += SEGMENT_SIZE;
+				}
+				fieldCount = 0;
+				if (c == ';') {
+					lines.add(Arrays.copyOf(line, lineSize));
+					lineSize = 0;
+					// the generated column is relative to the line
+					state[0] = 0;
+				}
+				continue;
+			}
+			int digit = c < 128 ? BASE64_VALUES[c] : -1;
+			if (digit < 0) {
+				throw new IllegalArgumentException("invalid mappings character: " + c);
+			}
+			value += (digit & 31) << shift;
+			if ((digit & 32) != 0) {
+				shift += 5;
+			} else {
+				if (fieldCount < segment.length) {
+					segment[fieldCount++] = (value & 1) == 1 ? -(value >>> 1) : value >>> 1;
+				}
+				value = 0;
+				shift = 0;
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Composes a v3 source map generated by tsc (JavaScript to TypeScript)
+	 * with the given source maps (TypeScript to Java). A map that is already
+	 * composed (i.e. which sources are Java files) is returned unchanged, so
+	 * that a map left untouched by tsc is not composed twice.
+	 * 
+	 * @param tscMap
+	 *            the v3 source map generated by tsc, as JSON
+	 * @param sources
+	 *            the Java source paths to be written in the composed map
+	 *            (relative to the JavaScript file)
+	 * @param sourceMaps
+	 *            the TypeScript to Java source maps of the sources (several
+	 *            maps share the same TypeScript file in bundles, in which case
+	 *            they map distinct line ranges)
+	 * @return the composed v3 source map (JavaScript to Java), as JSON
+	 */
+	public static String compose(String tscMap, List<String> sources, List<SourceMap> sourceMaps) {
+		Gson gson = new Gson();
+		Json input = gson.fromJson(tscMap, Json.class);
+		if (input.sources != null && !input.sources.isEmpty() && input.sources.stream().allMatch(source -> source.endsWith(".java"))) {
+			return tscMap;
+		}
+		List<int[]> lines = decodeMappings(input.mappings == null ? "" : input.mappings);
+
+		// the source maps, sorted by output lines
+		Integer[] order = new Integer[sourceMaps.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (i1, i2) -> sourceMaps.get(i1).getFirstOutputLine() - sourceMaps.get(i2).getFirstOutputLine());
+		int[] firstLines = new int[order.length];
+		for (int i = 0; i < order.length; i++) {
+			firstLines[i] = sourceMaps.get(order[i]).getFirstOutputLine();
+		}
+
+		StringBuilder mappings = new StringBuilder();
+		int previousSource = 0;
+		int previousLine = 0;
+		int previousColumn = 0;
+		for (int l = 0; l < lines.size(); l++) {
+			if (l > 0) {
+				mappings.append(';');
+			}
+			int[] segments = lines.get(l);
+			int previousGeneratedColumn = 0;
+			boolean first = true;
+			for (int i = 0; i < segments.length; i += SEGMENT_SIZE) {
+				// TypeScript lines are 1-based in the transpiler's maps
+				int tsLine = segments[i + 2] + 1;
+				int k = Arrays.binarySearch(firstLines, tsLine);
+				if (k < 0) {
+					k = -k - 2;
+				} else {
+					// the last map starting on that line
+					while (k < firstLines.length - 1 && firstLines[k + 1] == tsLine) {
+						k++;
+					}
+				}
+				if (k < 0) {
+					continue;
+				}
+				int source = order[k];
+				SourceMap sourceMap = sourceMaps.get(source);
+				if (tsLine > sourceMap.getLastOutputLine()) {
+					continue;
+				}
+				Position javaPosition = sourceMap.findInputPosition(tsLine, segments[i + 3]);
+				if (javaPosition == null) {
+					continue;
+				}
+				// Java lines and columns are 1-based
+				int javaLine = javaPosition.getLine() - 1;
+				int javaColumn = Math.max(0, javaPosition.getColumn() - 1);
+				if (!first) {
+					mappings.append(',');
+				}
+				first = false;
+				encodeVlq(mappings, segments[i] - previousGeneratedColumn);
+				encodeVlq(mappings, source - previousSource);
+				encodeVlq(mappings, javaLine - previousLine);
+				encodeVlq(mappings, javaColumn - previousColumn);
+				previousGeneratedColumn = segments[i];
+				previousSource = source;
+				previousLine = javaLine;
+				previousColumn = javaColumn;
+			}
+		}
+
+		Json output = new Json();
+		output.file = input.file;
+		output.sources = sources;
+		output.mappings = mappings.toString();
+		return gson.toJson(output);
+	}
+
+}
@@ -0,0 +1,293 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS <renaud.pawlak@cincheo.fr>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jsweet.transpiler.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * A long-lived TypeScript compiler, which runs in a <code>node</code> process
+ * that loads the TypeScript compiler once and keeps the parsed files from one
+ * compilation to another.
+ *
+ * <p>
+ * The worker is driven through a line-delimited JSON protocol on the
+ * process's standard input and output (see the <code>tsc-worker.js</code>
+ * script). The process is started lazily and is restarted if it dies.
+ *
+ * @author Renaud Pawlak
+ */
+public class TscWorker {
+
+	private static final Logger logger = Logger.getLogger(TscWorker.class);
+
+	private static final String SCRIPT_NAME = "tsc-worker.js";
+
+	private static final Gson gson = new Gson();
+
+	/**
+	 * A diagnostic reported by the TypeScript compiler.
+	 */
+	public static class Diagnostic {
+		/**
+		 * The absolute path of the file, or null for global diagnostics.
+		 */
+		public String file;
+		/**
+		 * The line (starting at 1).
+		 */
+		public int line;
+		/**
+		 * The column (starting at 1).
+		 */
+		public int column;
+		/**
+		 * The TypeScript diagnostic code (for instance 2304).
+		 */
+		public int code;
+		/**
+		 * One of <code>error</code>, <code>warning</code> or
+		 * <code>message</code>.
+		 */
+		public String category;
+		/**
+		 * The diagnostic message.
+		 */
+		public String message;
+
+		/**
+		 * Tells if this diagnostic is an error.
+		 */
+		public boolean isError() {
+			return "error".equals(category);
+		}
+
+		@Override
+		public String toString() {
+			return (file == null ? "" : file + "(" + line + "," + column + "): ") + category + " TS" + code + ": " + message;
+		}
+	}
+
+	/**
+	 * The result of a compilation.
+	 */
+	public static class Result {
+		Long id;
+		String error;
+		/**
+		 * The diagnostics reported by the compiler.
+		 */
+		public List<Diagnostic> diagnostics = new ArrayList<>();
+		/**
+		 * The absolute paths of the files written by this compilation
+		 * (unchanged files are not written again).
+		 */
+		public List<String> emitted = new ArrayList<>();
+	}
+
+	private static class Ready {
+		boolean ready;
+		String version;
+	}
+
+	private File workingDir;
+	private File typescriptDir;
+	private Process process;
+	private Writer processInput;
+	private BufferedReader processOutput;
+	private String version;
+	private long requestCount = 0;
+	private int startCount = 0;
+
+	/**
+	 * Creates a worker (the <code>node</code> process is started on the first
+	 * compilation).
+	 *
+	 * @param workingDir
+	 *            the directory where the worker script and log are written
+	 * @param typescriptDir
+	 *            the directory of the <code>typescript</code> node module to
+	 *            be used
+	 */
+	public TscWorker(File workingDir, File typescriptDir) {
+		this.workingDir = workingDir;
+		this.typescriptDir = typescriptDir;
+	}
+
+	private void start() throws IOException {
+		ProcessUtil.initNode();
+		File script = new File(workingDir, SCRIPT_NAME);
+		try (InputStream in = TscWorker.class.getResourceAsStream(SCRIPT_NAME)) {
+			FileUtils.copyInputStreamToFile(in, script);
+		}
+		ProcessBuilder processBuilder = new ProcessBuilder(ProcessUtil.NODE_COMMAND, script.getAbsolutePath(), typescriptDir.getAbsolutePath());
+		processBuilder.redirectError(Redirect.appendTo(new File(workingDir, "tsc-worker.log")));
+		if (!StringUtils.isBlank(ProcessUtil.EXTRA_PATH)) {
+			processBuilder.environment().put("PATH", processBuilder.environment().get("PATH") + File.pathSeparator + ProcessUtil.EXTRA_PATH);
+		}
+		logger.info("starting tsc worker: " + processBuilder.command());
+		startCount++;
+		process = processBuilder.start();
+		processInput = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+		processOutput = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+		String line;
+		while ((line = processOutput.readLine()) != null) {
+			Ready ready = parse(line, Ready.class);
+			if (ready != null && ready.ready) {
+				version = ready.version;
+				logger.info("tsc worker ready (TypeScript " + version + ")");
+				return;
+			}
+		}
+		throw new IOException("tsc worker exited before being ready (see " + new File(workingDir, "tsc-worker.log") + ")");
+	}
+
+	private static <T> T parse(String line, Class<T> type) {
+		if (line.startsWith("{")) {
+			try {
+				return gson.fromJson(line, type);
+			} catch (JsonSyntaxException e) {
+				// not a protocol message
+			}
+		}
+		logger.info("tsc worker - " + line);
+		return null;
+	}
+
+	/**
+	 * Compiles TypeScript files.
+	 *
+	 * @param directory
+	 *            the directory relative file names are resolved against
+	 * @param args
+	 *            the <code>tsc</code> command line arguments (watch mode is
+	 *            not supported)
+	 * @return the compilation result
+	 * @throws IOException
+	 *             if the worker failed twice in a row (once before and once
+	 *             after a restart) to handle the request
+	 */
+	public synchronized Result compile(File directory, String... args) throws IOException {
+		try {
+			return send(directory, args);
+		} catch (IOException e) {
+			logger.warn("tsc worker failed: " + e.getMessage() + " - restarting");
+			destroy();
+			return send(directory, args);
+		}
+	}
+
+	private Result send(File directory, String... args) throws IOException {
+		if (!isAlive()) {
+			destroy();
+			start();
+		}
+		long id = ++requestCount;
+		Map<String, Object> request = new HashMap<>();
+		request.put("id", id);
+		request.put("directory", directory.getAbsolutePath());
+		request.put("args", Arrays.asList(args));
+		processInput.write(gson.toJson(request));
+		processInput.write("\n");
+		processInput.flush();
+		String line;
+		while ((line = processOutput.readLine()) != null) {
+			Result result = parse(line, Result.class);
+			if (result != null && result.id != null && result.id == id) {
+				if (result.error != null) {
+					throw new IOException(result.error);
+				}
+				return result;
+			}
+		}
+		throw new IOException("tsc worker exited (see " + new File(workingDir, "tsc-worker.log") + ")");
+	}
+
+	/**
+	 * Tells if the worker process is running.
+	 */
+	public synchronized boolean isAlive() {
+		return process != null && process.isAlive();
+	}
+
+	/**
+	 * Gets the process running the worker, if started.
+	 */
+	public synchronized Process getProcess() {
+		return process;
+	}
+
+	/**
+	 * Gets the version of the TypeScript compiler, once started.
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gets the number of times the worker process was restarted after a
+	 * failure or a stop.
+	 */
+	public int getRestartCount() {
+		return Math.max(0, startCount - 1);
+	}
+
+	private void destroy() {
+		if (process != null) {
+			process.destroyForcibly();
+			process = null;
+		}
+	}
+
+	/**
+	 * Stops the worker process (it will be started again on the next
+	 * compilation).
+	 */
+	public synchronized void stop() {
+		if (process != null) {
+			try {
+				// the worker exits when its input is closed
+				processInput.close();
+				process.waitFor(5, TimeUnit.SECONDS);
+			} catch (Exception e) {
+				logger.debug(e.getMessage(), e);
+			}
+			destroy();
+		}
+	}
+
+}
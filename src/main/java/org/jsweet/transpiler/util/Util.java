@@ -383,7 +383,7 @@ public class Util {
 		if (typeSymbol == null) {
 			return;
 		}
-		if (ignoredTypeNames.contains(typeSymbol.getQualifiedName())) {
+		if (ignoredTypeNames.contains(typeSymbol.getQualifiedName().toString())) {
 			return;
 		}
 		if (typeSymbol.getEnclosedElements() != null) {
@@ -446,7 +446,7 @@ public class Util {
 		if (typeSymbol == null) {
 			return true;
 		}
-		if (ignoredTypeNames.contains(typeSymbol.getQualifiedName())) {
+		if (ignoredTypeNames.contains(typeSymbol.getQualifiedName().toString())) {
 			return true;
 		}
 		if (typeSymbol.getEnclosedElements() != null) {
@@ -487,9 +487,11 @@ public class Util {
 		if (from.getParameterTypes().length() != target.getParameterTypes().length()) {
 			return false;
 		}
-		for (int i = 0; i < from.getParameterTypes().length(); i++) {
-			if (!types.isAssignable(types.erasure(from.getParameterTypes().get(i)), types.erasure(target.getParameterTypes().get(i)))) {
-				return false;
+		synchronized (types) {
+			for (int i = 0; i < from.getParameterTypes().length(); i++) {
+				if (!types.isAssignable(types.erasure(from.getParameterTypes().get(i)), types.erasure(target.getParameterTypes().get(i)))) {
+					return false;
+				}
 			}
 		}
 		return true;
@@ -827,7 +829,9 @@ public class Util {
 		if (to.equals(from)) {
 			return true;
 		} else {
-			return types.isAssignable(from.asType(), to.asType());
+			synchronized (types) {
+				return types.isAssignable(from.asType(), to.asType());
+			}
 		}
 	}
 
@@ -835,9 +839,11 @@ public class Util {
 	 * Tells if the given list contains an type which is assignable from type.
 	 */
 	public static boolean containsAssignableType(Types types, List<Type> list, Type type) {
-		for (Type t : list) {
-			if (types.isAssignable(t, type)) {
-				return true;
+		synchronized (types) {
+			for (Type t : list) {
+				if (types.isAssignable(t, type)) {
+					return true;
+				}
 			}
 		}
 		return false;
@@ -1164,7 +1170,9 @@ public class Util {
 	 * @return null if not found
 	 */
 	public static PackageSymbol getPackageByName(JSweetContext context, String qualifiedName) {
-		return context.symtab.packages.get(context.names.fromString(qualifiedName));
+		synchronized (context.types) {
+			return context.symtab.packages.get(context.names.fromString(qualifiedName));
+		}
 	}
 
 	/**
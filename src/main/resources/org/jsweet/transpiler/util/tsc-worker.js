@@ -0,0 +1,221 @@
+/*
+ * JSweet - http://www.jsweet.org
+ * Copyright (C) 2015 CINCHEO SAS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// A long-lived TypeScript compiler, driven by org.jsweet.transpiler.util.TscWorker.
+//
+// Usage: node tsc-worker.js <typescript module directory>
+//
+// The worker reads one JSON request per line on its standard input:
+//   {"id":1,"directory":"/path/to/ts","args":["--target","ES5","a.ts"]}
+// and answers one JSON response per line on its standard output:
+//   {"id":1,"diagnostics":[{"file":...,"line":...,"column":...,"code":...,
+//    "category":"error","message":...}],"emitted":["/path/to/a.js"]}
+// or {"id":1,"error":"..."} if the request could not be handled. The first
+// line written by the worker is {"ready":true,"version":"<tsc version>"}.
+//
+// A language service is kept from one request to another, so that unchanged
+// files (typically the candies' definition files) are parsed only once, and
+// only the files that changed since the last request are emitted again.
+
+var fs = require('fs');
+var path = require('path');
+var readline = require('readline');
+var ts = require(process.argv[2]);
+
+var documentRegistry = ts.createDocumentRegistry();
+var service = null;
+var serviceKey = null;
+var currentDirectory = process.cwd();
+var compilerOptions = {};
+var rootFileNames = [];
+// file name -> { stamp, text, version, snapshot }
+var scripts = {};
+var versionCount = 0;
+// file name -> { version, outputs }
+var emittedFiles = {};
+
+function getScript(fileName) {
+	var stat;
+	try {
+		stat = fs.statSync(fileName);
+	} catch (e) {
+		delete scripts[fileName];
+		return undefined;
+	}
+	var stamp = stat.mtime.getTime() + ':' + stat.size;
+	var script = scripts[fileName];
+	if (!script || script.stamp !== stamp) {
+		var text = fs.readFileSync(fileName, 'utf8');
+		// a file rewritten with the same content keeps its version
+		if (!script || script.text !== text) {
+			script = { text: text, version: String(++versionCount), snapshot: ts.ScriptSnapshot.fromString(text) };
+			scripts[fileName] = script;
+		}
+		script.stamp = stamp;
+	}
+	return script;
+}
+
+var host = {
+	getScriptFileNames: function() {
+		return rootFileNames;
+	},
+	getScriptVersion: function(fileName) {
+		var script = getScript(fileName);
+		return script ? script.version : '';
+	},
+	getScriptSnapshot: function(fileName) {
+		var script = getScript(fileName);
+		return script ? script.snapshot : undefined;
+	},
+	getCurrentDirectory: function() {
+		return currentDirectory;
+	},
+	getCompilationSettings: function() {
+		return compilerOptions;
+	},
+	getDefaultLibFileName: function(options) {
+		return ts.getDefaultLibFilePath(options);
+	},
+	fileExists: function(fileName) {
+		return ts.sys.fileExists(fileName);
+	},
+	readFile: function(fileName) {
+		return ts.sys.readFile(fileName);
+	},
+	directoryExists: function(directoryName) {
+		return ts.sys.directoryExists(directoryName);
+	}
+};
+
+function mkdirs(directory) {
+	if (!fs.existsSync(directory)) {
+		mkdirs(path.dirname(directory));
+		fs.mkdirSync(directory);
+	}
+}
+
+function toJson(diagnostic) {
+	var result = {
+		code: diagnostic.code,
+		category: ts.DiagnosticCategory[diagnostic.category].toLowerCase(),
+		message: ts.flattenDiagnosticMessageText(diagnostic.messageText, '\n')
+	};
+	if (diagnostic.file) {
+		var position = diagnostic.file.getLineAndCharacterOfPosition(diagnostic.start);
+		result.file = diagnostic.file.fileName;
+		result.line = position.line + 1;
+		result.column = position.character + 1;
+	}
+	return result;
+}
+
+function isStale(fileName) {
+	var emitted = emittedFiles[fileName];
+	var script = scripts[fileName];
+	if (!emitted || !script || emitted.version !== script.version) {
+		return true;
+	}
+	return emitted.outputs.some(function(output) {
+		return !fs.existsSync(output);
+	});
+}
+
+function compile(request) {
+	currentDirectory = path.resolve(request.directory);
+	process.chdir(currentDirectory);
+	var commandLine = ts.parseCommandLine(request.args);
+	var key = JSON.stringify(commandLine.options);
+	if (service === null || key !== serviceKey) {
+		// the emitted outputs depend on the options
+		service = ts.createLanguageService(host, documentRegistry);
+		serviceKey = key;
+		emittedFiles = {};
+	}
+	compilerOptions = commandLine.options;
+	rootFileNames = commandLine.fileNames.map(function(fileName) {
+		return path.resolve(currentDirectory, fileName);
+	});
+
+	var program = service.getProgram();
+	var diagnostics = commandLine.errors.concat(ts.getPreEmitDiagnostics(program));
+	var emitted = [];
+
+	function emit(sourceFile) {
+		var outputs = [];
+		var result = program.emit(sourceFile, function(fileName, data, writeByteOrderMark) {
+			var outputFile = path.resolve(currentDirectory, fileName);
+			mkdirs(path.dirname(outputFile));
+			ts.sys.writeFile(outputFile, data, writeByteOrderMark);
+			outputs.push(outputFile);
+		});
+		diagnostics = diagnostics.concat(result.diagnostics);
+		emitted = emitted.concat(outputs);
+		return outputs;
+	}
+
+	var sourceFiles = program.getSourceFiles().filter(function(sourceFile) {
+		return !/\.d\.ts$/.test(sourceFile.fileName);
+	});
+	var staleFiles = sourceFiles.filter(function(sourceFile) {
+		return isStale(sourceFile.fileName);
+	});
+	if (compilerOptions.out || compilerOptions.outFile) {
+		// a single output: all the files are emitted together
+		if (staleFiles.length > 0) {
+			var outputs = emit(undefined);
+			sourceFiles.forEach(function(sourceFile) {
+				emittedFiles[sourceFile.fileName] = { version: host.getScriptVersion(sourceFile.fileName), outputs: outputs };
+			});
+		}
+	} else {
+		staleFiles.forEach(function(sourceFile) {
+			emittedFiles[sourceFile.fileName] = { version: host.getScriptVersion(sourceFile.fileName), outputs: emit(sourceFile) };
+		});
+	}
+
+	return {
+		diagnostics: diagnostics.map(toJson),
+		emitted: emitted
+	};
+}
+
+function send(response) {
+	process.stdout.write(JSON.stringify(response) + '\n');
+}
+
+var input = readline.createInterface({ input: process.stdin, terminal: false });
+input.on('line', function(line) {
+	if (!line.trim()) {
+		return;
+	}
+	var request = null;
+	var response;
+	try {
+		request = JSON.parse(line);
+		response = compile(request);
+	} catch (e) {
+		response = { error: String(e && e.stack ? e.stack : e) };
+	}
+	response.id = request ? request.id : null;
+	send(response);
+});
+// the worker's lifetime is bound to the one of the Java process
+input.on('close', function() {
+	process.exit(0);
+});
+send({ ready: true, version: ts.version });
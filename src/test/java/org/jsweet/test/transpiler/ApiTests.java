@@ -20,8 +20,10 @@ import static org.junit.Assert.assertEquals;
 
 import java.io.File;
 
+import org.apache.commons.io.FileUtils;
 import org.jsweet.transpiler.JSweetTranspiler;
 import org.jsweet.transpiler.ModuleKind;
+import org.jsweet.transpiler.SourceFile;
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -33,6 +35,7 @@ import source.api.ErasingJava;
 import source.api.ExpressionBuilderTest;
 import source.api.ExpressionBuilderTest2;
 import source.api.ForeachIteration;
+import source.api.ForeachIterationLength;
 import source.api.J4TSInvocations;
 import source.api.JdkInvocations;
 import source.api.Numbers;
@@ -100,6 +103,20 @@ public class ApiTests extends AbstractTest {
 		} , getSourceFile(ForeachIteration.class));
 	}
 
+	@Test
+	public void testForeachIterationLength() throws Exception {
+		SourceFile file = getSourceFile(ForeachIterationLength.class);
+		transpile(ModuleKind.none, logHandler -> {
+			Assert.assertEquals("There should be no errors", 0, logHandler.reportedProblems.size());
+		} , file);
+		String ts = FileUtils.readFileToString(file.getTsFile());
+		// length fields (including inherited ones) allow indexed loops
+		Assert.assertTrue(ts, ts.contains(" < indexed.length; "));
+		Assert.assertTrue(ts, ts.contains(" < subIndexed.length; "));
+		// the erased types are not scanned for length fields
+		Assert.assertTrue(ts, ts.contains("=notIndexed.iterator();"));
+	}
+
 	@Test
 	public void testPrimitiveInstantiation() {
 		transpile(logHandler -> {
@@ -18,6 +18,10 @@ package org.jsweet.test.transpiler;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.jsweet.transpiler.ModuleKind;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -50,4 +54,22 @@ public class EnumTests extends AbstractTest {
 		}, getSourceFile(ComplexEnums.class));
 	}
 
+	@Test
+	public void testComplexEnumsInStreamedBundle() throws Exception {
+		// the bundle is streamed when the source line numbers are not
+		// preserved (the enum is the second top-level type of the unit)
+		transpiler.setPreserveSourceLineNumbers(false);
+		transpiler.setBundle(true);
+		try {
+			transpile(ModuleKind.none, logHandler -> {
+				assertEquals("There should be no errors", 0, logHandler.reportedProblems.size());
+			}, getSourceFile(ComplexEnums.class));
+		} finally {
+			transpiler.setBundle(false);
+			transpiler.setPreserveSourceLineNumbers(true);
+		}
+		String bundle = FileUtils.readFileToString(new File(TMPOUT_DIR, getCurrentTestName() + "/none_bundle/bundle.ts"));
+		Assert.assertTrue(bundle, bundle.contains("new MyComplexEnum_$WRAPPER(5, \"RATIO_2_1\", 2.0 / 1.0)"));
+	}
+
 }
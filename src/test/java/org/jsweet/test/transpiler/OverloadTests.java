@@ -17,8 +17,11 @@
 package org.jsweet.test.transpiler;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import org.apache.commons.io.FileUtils;
 import org.jsweet.transpiler.ModuleKind;
+import org.jsweet.transpiler.SourceFile;
 import org.junit.Test;
 
 import source.overload.BasicOverride;
@@ -227,5 +230,40 @@ public class OverloadTests extends AbstractTest {
 			assertEquals("1,2,3,3", r.get("trace"));
 		}, getSourceFile(OverloadWithInterfaces.class));
 	}
+
+	@Test
+	public void testWrongOverloadWithGenericsDispatch() throws Exception {
+		SourceFile file = getSourceFile(WrongOverloadWithGenerics.class);
+		transpile(ModuleKind.none, logHandler -> {
+			logHandler.assertReportedProblems();
+		}, file);
+		// type variables are erased to their bounds when ordering the overloads
+		assertDispatchOrder(FileUtils.readFileToString(file.getTsFile()), "public m(t? : any, i? : any, t2? : any) : any {",
+				"((t2 != null) || t2 === null)", "this.m$java_lang_Object$int(t, i)", "this.m$java_lang_Object$java_lang_Object(t, i)",
+				"this.m$java_lang_Object(t)");
+	}
+
+	@Test
+	public void testWrongOverloadWithInheritanceDispatch() throws Exception {
+		SourceFile file = getSourceFile(WrongOverloadWithInheritance.class);
+		transpile(ModuleKind.none, logHandler -> {
+			logHandler.assertReportedProblems();
+		}, file);
+		// the subclass dispatches to its own method and to all the inherited
+		// overloads (from the super classes and the interfaces)
+		assertDispatchOrder(FileUtils.readFileToString(file.getTsFile()), "public overloaded(i? : any, arg? : any) : any {",
+				"((typeof arg === 'string') || arg === null)", "this.overloaded$int$java_lang_Object(i, arg)", "this.overloaded$jsweet_lang_Date(i)",
+				"this.overloaded$boolean(i)", "this.overloaded$java_lang_Object(i)");
+	}
+
+	private void assertDispatchOrder(String ts, String dispatcher, String... fragments) {
+		int index = ts.lastIndexOf(dispatcher);
+		assertTrue("dispatcher not found: " + dispatcher, index >= 0);
+		for (String fragment : fragments) {
+			int next = ts.indexOf(fragment, index);
+			assertTrue("fragment not found or misplaced: " + fragment, next >= 0);
+			index = next + fragment.length();
+		}
+	}
 	
 }
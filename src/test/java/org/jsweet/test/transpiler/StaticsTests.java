@@ -21,6 +21,7 @@ import org.junit.Test;
 import source.statics.AnonymousClasses;
 import source.statics.Classes;
 import source.statics.InnerClasses;
+import source.statics.StaticIncrements;
 import source.statics.StaticsInInterfaces;
 import source.statics.StaticInitializer;
 import source.statics.StaticInitializerWithNoFields;
@@ -71,6 +72,16 @@ public class StaticsTests extends AbstractTest {
 		} , getSourceFile(StaticInitializerWithNoFields.class));
 	}
 	
+	@Test
+	public void testStaticIncrements() {
+		eval((h, r) -> {
+			h.assertReportedProblems();
+			Assert.assertEquals(6, (int) r.get("counter"));
+			Assert.assertEquals(4, (int) r.get("other"));
+			Assert.assertEquals(7, (int) r.get("x"));
+		} , getSourceFile(StaticIncrements.class));
+	}
+
 	@Test
 	public void testStaticsInInterfaces() {
 		eval((h, r) -> {
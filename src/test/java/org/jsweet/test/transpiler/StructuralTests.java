@@ -20,9 +20,12 @@ import static org.jsweet.transpiler.JSweetProblem.GLOBAL_DELETE;
 import static org.jsweet.transpiler.JSweetProblem.GLOBAL_INDEXER_GET;
 import static org.jsweet.transpiler.JSweetProblem.GLOBAL_INDEXER_SET;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import org.apache.commons.io.FileUtils;
 import org.jsweet.transpiler.JSweetProblem;
 import org.jsweet.transpiler.ModuleKind;
+import org.jsweet.transpiler.SourceFile;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -305,10 +308,16 @@ public class StructuralTests extends AbstractTest {
 	}
 
 	@Test
-	public void testJSNI() {
+	public void testJSNI() throws Exception {
+		SourceFile file = getSourceFile(JSNI.class);
 		transpile(ModuleKind.none, logHandler -> {
 			logHandler.assertReportedProblems();
-		}, getSourceFile(JSNI.class));
+		}, file);
+		String ts = FileUtils.readFileToString(file.getTsFile()).replaceAll("\\s+", " ");
+		assertTrue(ts, ts.contains("public m(a : number, b : number) : number { var c = a + b; return c; }"));
+		assertTrue(ts, ts.contains("public m2(a : number, b : number, c : number) : number { var c = a + this.i; return c; }"));
+		assertTrue(ts, ts.contains("public m3() : number { var c = 2; return this.m(1, c); }"));
+		assertTrue(ts, ts.contains("public m4() : number { var c = 2; return this.m(1, c); }"));
 	}
 
 	@Test
@@ -18,21 +18,33 @@ package org.jsweet.test.transpiler;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.net.InetAddress;
+import java.net.Socket;
 import java.util.LinkedList;
 
+import org.apache.commons.io.FileUtils;
 import org.jsweet.JSweetCommandLineLauncher;
+import org.jsweet.JSweetDaemon;
 import org.jsweet.transpiler.JSweetTranspiler;
+import org.jsweet.transpiler.JavaSourceWatcher;
 import org.jsweet.transpiler.ModuleKind;
 import org.jsweet.transpiler.SourceFile;
+import org.jsweet.transpiler.TranspilationMetrics;
+import org.jsweet.transpiler.util.JavaCompilationEnvironment;
 import org.jsweet.transpiler.util.ProcessUtil;
+import org.jsweet.transpiler.util.SourceMapV3;
 import org.jsweet.transpiler.util.Util;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
 import source.overload.Overload;
 import source.structural.AbstractClass;
 
@@ -121,6 +133,487 @@ public class TranspilerTests extends AbstractTest {
 		transpile(ModuleKind.none, h -> h.assertReportedProblems(), getSourceFile(Overload.class));
 	}
 
+	@Test
+	public void testIncrementalMode() throws Exception {
+		TestTranspilationHandler logHandler = new TestTranspilationHandler();
+		File overload = getSourceFile(Overload.class).getJavaFile();
+		File abstractClass = getSourceFile(AbstractClass.class).getJavaFile();
+		JSweetTranspiler transpiler = new JSweetTranspiler();
+		transpiler.setTsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName()));
+		transpiler.setGenerateJsFiles(false);
+		transpiler.setIncremental(true);
+		SourceFile[] files = { new SourceFile(overload), new SourceFile(abstractClass) };
+		transpiler.transpile(logHandler, files);
+		assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		File overloadTsFile = files[0].getTsFile();
+		File abstractClassTsFile = files[1].getTsFile();
+		assertTrue("File not generated", overloadTsFile.exists());
+		assertTrue("File not generated", abstractClassTsFile.exists());
+		long overloadTs = overloadTsFile.lastModified();
+		long abstractClassTs = abstractClassTsFile.lastModified();
+
+		Thread.sleep(1500);
+		overload.setLastModified(System.currentTimeMillis());
+
+		transpiler.transpile(logHandler, files);
+		assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		assertTrue("File not regenerated", overloadTsFile.lastModified() != overloadTs);
+		assertEquals("File regenerated", abstractClassTs, abstractClassTsFile.lastModified());
+		assertEquals("Wrong output file", abstractClassTsFile, files[1].getTsFile());
+	}
+
+	@Test
+	public void testPersistentIncrementalMode() throws Exception {
+		File testDir = new File(new File(TMPOUT_DIR), getCurrentTestName());
+		FileUtils.deleteQuietly(testDir);
+		File overload = new File(testDir, "src/source/overload/Overload.java");
+		File abstractClass = new File(testDir, "src/source/structural/AbstractClass.java");
+		FileUtils.copyFile(getSourceFile(Overload.class).getJavaFile(), overload);
+		FileUtils.copyFile(getSourceFile(AbstractClass.class).getJavaFile(), abstractClass);
+		File overloadTsFile = null;
+		long overloadTs = 0;
+		for (int i = 0; i < 3; i++) {
+			if (i == 2) {
+				// same modification date and length, but different content
+				long lastModified = overload.lastModified();
+				FileUtils.write(overload, FileUtils.readFileToString(overload).replace("\"default\"", "\"DEFAULT\""));
+				overload.setLastModified(lastModified);
+			}
+			// a new transpiler (as in a new process) reuses the persisted index
+			TestTranspilationHandler logHandler = new TestTranspilationHandler();
+			JSweetTranspiler transpiler = new JSweetTranspiler(new File(testDir, ".jsweet"), new File(testDir, "ts"), null, null,
+					System.getProperty("java.class.path"));
+			transpiler.setGenerateJsFiles(false);
+			transpiler.setIncremental(true);
+			SourceFile[] files = { new SourceFile(overload), new SourceFile(abstractClass) };
+			transpiler.transpile(logHandler, files);
+			assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+			TranspilationMetrics metrics = transpiler.getLastMetrics();
+			switch (i) {
+			case 0:
+				assertEquals(2, metrics.getCounter(TranspilationMetrics.COUNTER_TRANSLATED_UNITS));
+				overloadTsFile = files[0].getTsFile();
+				overloadTs = overloadTsFile.lastModified();
+				Thread.sleep(1500);
+				break;
+			case 1:
+				assertEquals(2, metrics.getCounter(TranspilationMetrics.COUNTER_RESTORED_UNITS));
+				assertEquals("File regenerated", overloadTs, overloadTsFile.lastModified());
+				assertEquals("Wrong output file", overloadTsFile, files[0].getTsFile());
+				break;
+			case 2:
+				assertEquals(1, metrics.getCounter(TranspilationMetrics.COUNTER_TRANSLATED_UNITS));
+				assertTrue("File not regenerated", FileUtils.readFileToString(overloadTsFile).contains("DEFAULT"));
+				break;
+			}
+		}
+	}
+
+	@Test
+	public void testParallelEmission() throws Exception {
+		File sourceDir = new File(TEST_DIRECTORY_NAME + "/source/blocksgame");
+		File sequentialOutDir = new File(new File(TMPOUT_DIR), getCurrentTestName() + "/sequential");
+		File parallelOutDir = new File(new File(TMPOUT_DIR), getCurrentTestName() + "/parallel");
+		for (File outDir : new File[] { sequentialOutDir, parallelOutDir }) {
+			TestTranspilationHandler logHandler = new TestTranspilationHandler();
+			JSweetTranspiler transpiler = new JSweetTranspiler();
+			transpiler.setTsOutputDir(outDir);
+			transpiler.setGenerateJsFiles(false);
+			transpiler.setParallelEmission(outDir == parallelOutDir);
+			transpiler.transpile(logHandler, SourceFile.getSourceFiles(sourceDir));
+			assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		}
+		LinkedList<File> files = new LinkedList<>();
+		Util.addFiles(".ts", sequentialOutDir, files);
+		assertFalse(files.isEmpty());
+		for (File file : files) {
+			File parallelFile = new File(parallelOutDir, sequentialOutDir.toPath().relativize(file.toPath()).toString());
+			assertTrue("File not generated: " + parallelFile, parallelFile.exists());
+			assertEquals("Different outputs for " + file, FileUtils.readFileToString(file), FileUtils.readFileToString(parallelFile));
+		}
+	}
+
+	@Test
+	public void testParallelBundleEmission() throws Exception {
+		File sourceDir = new File(TEST_DIRECTORY_NAME + "/source/blocksgame");
+		File sequentialOutDir = new File(new File(TMPOUT_DIR), getCurrentTestName() + "/sequential");
+		File parallelOutDir = new File(new File(TMPOUT_DIR), getCurrentTestName() + "/parallel");
+		for (File outDir : new File[] { sequentialOutDir, parallelOutDir }) {
+			TestTranspilationHandler logHandler = new TestTranspilationHandler();
+			JSweetTranspiler transpiler = new JSweetTranspiler();
+			transpiler.setTsOutputDir(outDir);
+			transpiler.setGenerateJsFiles(false);
+			transpiler.setBundle(true);
+			transpiler.setParallelEmission(outDir == parallelOutDir);
+			transpiler.transpile(logHandler, SourceFile.getSourceFiles(sourceDir));
+			assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		}
+		File sequentialBundle = new File(sequentialOutDir, "bundle.ts");
+		assertTrue("Bundle not generated", sequentialBundle.exists());
+		assertEquals("Different bundles", FileUtils.readFileToString(sequentialBundle), FileUtils.readFileToString(new File(parallelOutDir, "bundle.ts")));
+	}
+
+	// several units translating foreach loops (with generated local variables)
+	private static final String[] FOREACH_SOURCES = { TEST_DIRECTORY_NAME + "/source/api/ForeachIterationLength.java",
+			TEST_DIRECTORY_NAME + "/source/syntax/FinalVariablesRuntime.java", TEST_DIRECTORY_NAME + "/source/syntax/FinalVariables.java",
+			TEST_DIRECTORY_NAME + "/source/syntax/StatementsWithNoBlocks.java",
+			TEST_DIRECTORY_NAME + "/source/overload/LocalVariablesNameCollision.java" };
+
+	@Test
+	public void testParallelEmissionWithForeachLoops() throws Exception {
+		assertSameParallelEmission(false, FOREACH_SOURCES);
+	}
+
+	@Test
+	public void testParallelBundleEmissionWithForeachLoops() throws Exception {
+		assertSameParallelEmission(true, FOREACH_SOURCES);
+	}
+
+	private void assertSameParallelEmission(boolean bundle, String... javaFilePaths) throws Exception {
+		File sequentialOutDir = new File(new File(TMPOUT_DIR), getCurrentTestName() + "/sequential");
+		File parallelOutDir = new File(new File(TMPOUT_DIR), getCurrentTestName() + "/parallel");
+		for (File outDir : new File[] { sequentialOutDir, parallelOutDir }) {
+			TestTranspilationHandler logHandler = new TestTranspilationHandler();
+			JSweetTranspiler transpiler = new JSweetTranspiler();
+			transpiler.setTsOutputDir(outDir);
+			transpiler.setGenerateJsFiles(false);
+			transpiler.setBundle(bundle);
+			transpiler.setParallelEmission(outDir == parallelOutDir);
+			transpiler.transpile(logHandler, SourceFile.toSourceFiles(javaFilePaths));
+			assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		}
+		LinkedList<File> files = new LinkedList<>();
+		Util.addFiles(".ts", sequentialOutDir, files);
+		assertFalse(files.isEmpty());
+		for (File file : files) {
+			File parallelFile = new File(parallelOutDir, sequentialOutDir.toPath().relativize(file.toPath()).toString());
+			assertTrue("File not generated: " + parallelFile, parallelFile.exists());
+			assertEquals("Different outputs for " + file, FileUtils.readFileToString(file), FileUtils.readFileToString(parallelFile));
+		}
+	}
+
+	@Test
+	public void testReuseCompilationEnvironment() throws Exception {
+		File sourceDir = new File(TEST_DIRECTORY_NAME + "/source/blocksgame");
+		File freshOutDir = new File(new File(TMPOUT_DIR), getCurrentTestName() + "/fresh");
+		File reusedOutDir = new File(new File(TMPOUT_DIR), getCurrentTestName() + "/reused");
+		TestTranspilationHandler logHandler = new TestTranspilationHandler();
+		JSweetTranspiler transpiler = new JSweetTranspiler();
+		transpiler.setTsOutputDir(freshOutDir);
+		transpiler.setGenerateJsFiles(false);
+		transpiler.setReuseCompilationEnvironment(true);
+		transpiler.transpile(logHandler, SourceFile.getSourceFiles(sourceDir));
+		assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		JavaCompilationEnvironment environment = transpiler.getCompilationEnvironment();
+		assertEquals(0, environment.getReuseCount());
+
+		transpiler.setTsOutputDir(reusedOutDir);
+		transpiler.transpile(logHandler, SourceFile.getSourceFiles(sourceDir));
+		assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		assertTrue("Environment not reused", environment == transpiler.getCompilationEnvironment());
+		assertEquals(1, environment.getReuseCount());
+		assertTrue(environment.getReusedClassSymbolCount() > 0);
+		assertEquals(0, environment.getCompletedClassSymbolCount());
+		assertTrue(environment.getInvalidatedClassSymbolCount() > 0);
+
+		LinkedList<File> files = new LinkedList<>();
+		Util.addFiles(".ts", freshOutDir, files);
+		assertFalse(files.isEmpty());
+		for (File file : files) {
+			File reusedFile = new File(reusedOutDir, freshOutDir.toPath().relativize(file.toPath()).toString());
+			assertTrue("File not generated: " + reusedFile, reusedFile.exists());
+			assertEquals("Different outputs for " + file, FileUtils.readFileToString(file), FileUtils.readFileToString(reusedFile));
+		}
+	}
+
+	@Test
+	public void testPipelinedCompilation() throws Exception {
+		TestTranspilationHandler logHandler = new TestTranspilationHandler();
+		JSweetTranspiler transpiler = new JSweetTranspiler();
+		transpiler.setTsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/ts"));
+		transpiler.setJsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/js"));
+		transpiler.setPipelinedCompilation(true);
+		SourceFile[] files = SourceFile.getSourceFiles(new File(TEST_DIRECTORY_NAME + "/source/blocksgame"));
+		transpiler.transpile(logHandler, files);
+		assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		for (SourceFile file : files) {
+			assertTrue("File not generated: " + file.getJsFile(), file.getJsFile() != null && file.getJsFile().exists());
+		}
+	}
+
+	@Test
+	public void testShardedCompilation() throws Exception {
+		TestTranspilationHandler logHandler = new TestTranspilationHandler();
+		JSweetTranspiler transpiler = new JSweetTranspiler();
+		transpiler.setTsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/ts"));
+		transpiler.setJsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/js"));
+		transpiler.setTscShardCount(4);
+		SourceFile[] files = SourceFile.getSourceFiles(new File(TEST_DIRECTORY_NAME + "/source/blocksgame"));
+		transpiler.transpile(logHandler, files);
+		assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		for (SourceFile file : files) {
+			assertTrue("File not generated: " + file.getJsFile(), file.getJsFile() != null && file.getJsFile().exists());
+		}
+	}
+
+	@Test
+	public void testTscWorker() throws Exception {
+		JSweetTranspiler transpiler = new JSweetTranspiler();
+		transpiler.setTsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/ts"));
+		transpiler.setJsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/js"));
+		transpiler.setUseTscWorker(true);
+		try {
+			SourceFile[] files = SourceFile.getSourceFiles(new File(TEST_DIRECTORY_NAME + "/source/blocksgame"));
+			for (int i = 0; i < 3; i++) {
+				if (i == 2) {
+					// simulates a crash: the worker shall be restarted
+					transpiler.getTscWorker().getProcess().destroyForcibly().waitFor();
+				}
+				TestTranspilationHandler logHandler = new TestTranspilationHandler();
+				transpiler.transpile(logHandler, files);
+				assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+				for (SourceFile file : files) {
+					assertTrue("File not generated: " + file.getJsFile(), file.getJsFile() != null && file.getJsFile().exists());
+				}
+				assertTrue(transpiler.getTscWorker().isAlive());
+			}
+			assertEquals(1, transpiler.getTscWorker().getRestartCount());
+		} finally {
+			transpiler.setUseTscWorker(false);
+		}
+	}
+
+	@Test
+	public void testSkipUnchangedOutputs() throws Exception {
+		JSweetTranspiler transpiler = new JSweetTranspiler();
+		transpiler.setTsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/ts"));
+		transpiler.setJsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/js"));
+		transpiler.setSkipUnchangedOutputs(true);
+		File sourceDir = new File(TEST_DIRECTORY_NAME + "/source/blocksgame");
+		TestTranspilationHandler logHandler = new TestTranspilationHandler();
+		SourceFile[] files = SourceFile.getSourceFiles(sourceDir);
+		transpiler.transpile(logHandler, files);
+		assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		long tsTimestamp = files[0].getTsFile().lastModified();
+		long jsTimestamp = files[0].getJsFile().lastModified();
+
+		Thread.sleep(1500);
+		files = SourceFile.getSourceFiles(sourceDir);
+		transpiler.transpile(logHandler, files);
+		assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		assertEquals(0, transpiler.getWrittenOutputCount());
+		assertTrue(transpiler.getSkippedOutputCount() > 0);
+		assertEquals("File rewritten", tsTimestamp, files[0].getTsFile().lastModified());
+		assertEquals("File recompiled", jsTimestamp, files[0].getJsFile().lastModified());
+	}
+
+	@Test
+	public void testComposedSourceMapsUnchanged() throws Exception {
+		JSweetTranspiler transpiler = new JSweetTranspiler();
+		transpiler.setTsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/ts"));
+		transpiler.setJsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/js"));
+		transpiler.setGenerateSourceMaps(true);
+		transpiler.setSkipUnchangedOutputs(true);
+		File sourceDir = new File(TEST_DIRECTORY_NAME + "/source/blocksgame");
+		TestTranspilationHandler logHandler = new TestTranspilationHandler();
+		SourceFile[] files = SourceFile.getSourceFiles(sourceDir);
+		transpiler.transpile(logHandler, files);
+		assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		File mapFile = files[0].getJsMapFile();
+		assertTrue("Map not generated", mapFile != null && mapFile.exists());
+		String map = FileUtils.readFileToString(mapFile);
+		assertTrue("Map not composed", map.contains(".java\""));
+
+		// tsc is skipped and the map must not be composed again
+		files = SourceFile.getSourceFiles(sourceDir);
+		transpiler.transpile(logHandler, files);
+		assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		assertEquals("Map changed", map, FileUtils.readFileToString(mapFile));
+	}
+
+	@Test
+	public void testComposedSourceMapsWithTabs() throws Exception {
+		File sourceDir = new File(new File(TMPOUT_DIR), getCurrentTestName() + "/src");
+		File javaFile = new File(sourceDir, "Tabs.java");
+		// the mapped Java columns count characters: a tab is one column
+		FileUtils.write(javaFile, "class Tabs {\n\tint f() {\n\t\treturn 42;\n\t}\n}\n");
+		JSweetTranspiler transpiler = new JSweetTranspiler();
+		transpiler.setTsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/ts"));
+		transpiler.setJsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/js"));
+		transpiler.setGenerateSourceMaps(true);
+		TestTranspilationHandler logHandler = new TestTranspilationHandler();
+		SourceFile[] files = SourceFile.getSourceFiles(sourceDir);
+		transpiler.transpile(logHandler, files);
+		assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		File mapFile = files[0].getJsMapFile();
+		assertTrue("Map not generated", mapFile != null && mapFile.exists());
+		JsonObject map = new Gson().fromJson(FileUtils.readFileToString(mapFile), JsonObject.class);
+		boolean returnMapped = false;
+		for (int[] segments : SourceMapV3.decodeMappings(map.get("mappings").getAsString())) {
+			for (int i = 0; i < segments.length; i += SourceMapV3.SEGMENT_SIZE) {
+				// 0-based Java line and column
+				if (segments[i + 2] == 2) {
+					assertTrue("Column " + segments[i + 3] + " beyond '\t\treturn 42;'", segments[i + 3] < 12);
+					returnMapped |= segments[i + 3] == 2;
+				}
+			}
+		}
+		assertTrue("Return statement not mapped", returnMapped);
+	}
+
+	@Test
+	public void testStreamedBundle() throws Exception {
+		File tsOutputDir = new File(new File(TMPOUT_DIR), getCurrentTestName() + "/ts");
+		FileUtils.deleteQuietly(tsOutputDir);
+		JSweetTranspiler transpiler = new JSweetTranspiler();
+		transpiler.setTsOutputDir(tsOutputDir);
+		transpiler.setJsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/js"));
+		transpiler.setBundle(true);
+		transpiler.setSkipUnchangedOutputs(true);
+		File sourceDir = new File(TEST_DIRECTORY_NAME + "/source/blocksgame");
+		TestTranspilationHandler logHandler = new TestTranspilationHandler();
+		transpiler.transpile(logHandler, SourceFile.getSourceFiles(sourceDir));
+		assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		File bundle = new File(tsOutputDir, "bundle.ts");
+		assertTrue(bundle.exists());
+		assertTrue(FileUtils.readFileToString(bundle).contains("class Ball"));
+		assertEquals("Temporary files left", 0, tsOutputDir.list((dir, name) -> name.endsWith(".tmp")).length);
+
+		transpiler.transpile(logHandler, SourceFile.getSourceFiles(sourceDir));
+		assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		assertEquals(0, transpiler.getWrittenOutputCount());
+	}
+
+	@Test
+	public void testTranspilationMetrics() throws Exception {
+		JSweetTranspiler transpiler = new JSweetTranspiler();
+		transpiler.setTsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/ts"));
+		transpiler.setJsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/js"));
+		File sourceDir = new File(TEST_DIRECTORY_NAME + "/source/blocksgame");
+		TranspilationMetrics[] reportedMetrics = { null };
+		TestTranspilationHandler logHandler = new TestTranspilationHandler() {
+			@Override
+			public void onMetrics(JSweetTranspiler transpiler, TranspilationMetrics metrics) {
+				reportedMetrics[0] = metrics;
+			}
+		};
+		SourceFile[] files = SourceFile.getSourceFiles(sourceDir);
+		transpiler.transpile(logHandler, files);
+		assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+		TranspilationMetrics metrics = transpiler.getLastMetrics();
+		assertTrue(metrics == reportedMetrics[0]);
+		for (String phase : new String[] { TranspilationMetrics.PHASE_PARSE, TranspilationMetrics.PHASE_ATTRIBUTE,
+				TranspilationMetrics.PHASE_TRANSLATION, TranspilationMetrics.PHASE_WRITE, TranspilationMetrics.PHASE_TSC }) {
+			assertTrue("Missing phase " + phase, metrics.getPhase(phase) != null);
+		}
+		assertEquals(files.length, metrics.getCounter(TranspilationMetrics.COUNTER_TRANSLATED_UNITS));
+		assertEquals(files.length, metrics.getUnitTranslationTimes().size());
+		assertTrue(metrics.getCounter(TranspilationMetrics.COUNTER_WRITTEN_BYTES) > 0);
+		assertTrue(metrics.toJson().contains("\"unitTranslationTimes\""));
+	}
+
+	@Test
+	public void testTranspilationMetricsPhasesOnOtherThreads() throws Exception {
+		TranspilationMetrics metrics = new TranspilationMetrics();
+		metrics.startPhase(TranspilationMetrics.PHASE_TRANSLATION);
+		Thread thread = new Thread(() -> {
+			metrics.startPhase(TranspilationMetrics.PHASE_WRITE);
+			metrics.endPhase(TranspilationMetrics.PHASE_WRITE);
+			metrics.endPhase(TranspilationMetrics.PHASE_TRANSLATION);
+		});
+		thread.start();
+		thread.join();
+		metrics.endPhase(TranspilationMetrics.PHASE_TRANSLATION);
+		assertNull(metrics.getPhase(TranspilationMetrics.PHASE_WRITE));
+		assertEquals(1, metrics.getPhase(TranspilationMetrics.PHASE_TRANSLATION).getCount());
+	}
+
+	@Test
+	public void testLowMemory() throws Exception {
+		SourceFile[] files = SourceFile.toSourceFiles(TEST_DIRECTORY_NAME + "/source/structural/DefaultMethods.java",
+				TEST_DIRECTORY_NAME + "/source/structural/DefaultMethodsConsumer.java",
+				TEST_DIRECTORY_NAME + "/source/overload/WrongOverloadsWithDefaultMethods.java",
+				TEST_DIRECTORY_NAME + "/source/overload/WrongOverloadWithInheritance.java");
+		File[] tsOutputDirs = new File[2];
+		for (int i = 0; i < 2; i++) {
+			tsOutputDirs[i] = new File(new File(TMPOUT_DIR), getCurrentTestName() + "/ts" + i);
+			FileUtils.deleteQuietly(tsOutputDirs[i]);
+			JSweetTranspiler transpiler = new JSweetTranspiler();
+			transpiler.setTsOutputDir(tsOutputDirs[i]);
+			transpiler.setJsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/js" + i));
+			transpiler.setGenerateJsFiles(false);
+			transpiler.setLowMemory(i == 1);
+			TestTranspilationHandler logHandler = new TestTranspilationHandler();
+			transpiler.transpile(logHandler, files);
+			assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+			if (transpiler.isLowMemory()) {
+				assertTrue(transpiler.getLastMetrics().getCounter(TranspilationMetrics.COUNTER_RELEASED_METHOD_BODIES) > 0);
+			}
+		}
+		for (File tsFile : FileUtils.listFiles(tsOutputDirs[0], new String[] { "ts" }, true)) {
+			File lowMemoryTsFile = new File(tsOutputDirs[1], tsOutputDirs[0].toPath().relativize(tsFile.toPath()).toString());
+			assertEquals(FileUtils.readFileToString(tsFile), FileUtils.readFileToString(lowMemoryTsFile));
+		}
+	}
+
+	@Test
+	public void testJavaSourceWatcher() throws Exception {
+		File sourceDir = new File(new File(TMPOUT_DIR), getCurrentTestName() + "/src");
+		FileUtils.deleteQuietly(sourceDir);
+		FileUtils.copyDirectory(new File(TEST_DIRECTORY_NAME + "/source/blocksgame"), new File(sourceDir, "source/blocksgame"));
+		TestTranspilationHandler logHandler = new TestTranspilationHandler();
+		JSweetTranspiler transpiler = new JSweetTranspiler();
+		transpiler.setTsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/ts"));
+		transpiler.setJsOutputDir(new File(new File(TMPOUT_DIR), getCurrentTestName() + "/js"));
+		transpiler.setIncremental(true);
+		transpiler.transpile(logHandler, SourceFile.getSourceFiles(sourceDir));
+		try (JavaSourceWatcher watcher = new JavaSourceWatcher(transpiler, logHandler, sourceDir)) {
+			watcher.start();
+			assertEquals(-1, watcher.getLastLatency());
+			File ball = new File(sourceDir, "source/blocksgame/Ball.java");
+			FileUtils.write(ball, "\n// modified", true);
+			for (int i = 0; i < 600 && watcher.getTranspilationCount() == 0; i++) {
+				Thread.sleep(100);
+			}
+			assertEquals(1, watcher.getTranspilationCount());
+			assertTrue(watcher.getLastLatency() >= 0);
+		} finally {
+			transpiler.setUseTscWorker(false);
+		}
+		assertEquals("There should be no problems", 0, logHandler.reportedProblems.size());
+	}
+
+	@Test
+	public void testDaemon() throws Exception {
+		int port = JSweetDaemon.DEFAULT_PORT + 1;
+		Thread daemon = new Thread(() -> {
+			try {
+				new JSweetDaemon(port, 10).run();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		});
+		daemon.start();
+		for (int i = 0; i < 50 && !JSweetDaemon.getTokenFile(port).exists(); i++) {
+			Thread.sleep(100);
+		}
+		File outDir = new File(new File(TMPOUT_DIR), getCurrentTestName() + "/" + ModuleKind.none);
+		String[] args = { "--tsout", outDir.getPath(), "--jsout", outDir.getPath(), "-i", TEST_DIRECTORY_NAME + "/source/blocksgame" };
+		// a client that does not send its request shall not block the daemon
+		try (Socket stalledClient = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			for (int i = 0; i < 2; i++) {
+				LinkedList<String> output = new LinkedList<>();
+				Integer exitCode = JSweetDaemon.runClient(port, args, output::add);
+				assertEquals("Wrong exit code: " + output, (Integer) 0, exitCode);
+				LinkedList<File> files = new LinkedList<>();
+				Util.addFiles(".js", outDir, files);
+				assertTrue(!files.isEmpty());
+			}
+		}
+		daemon.join();
+		assertFalse(JSweetDaemon.getTokenFile(port).exists());
+	}
+
 	@Test
 	public void testCommandLine() throws Throwable {
 		File outDir = new File(new File(TMPOUT_DIR), getCurrentTestName() + "/" + ModuleKind.none);
@@ -16,11 +16,29 @@
  */
 package org.jsweet.test.transpiler;
 
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsweet.transpiler.util.DirectedGraph;
+import org.jsweet.transpiler.util.Position;
+import org.jsweet.transpiler.util.PrinterBuffer;
+import org.jsweet.transpiler.util.SourceMap;
+import org.jsweet.transpiler.util.SourceMapV3;
 import org.jsweet.transpiler.util.Util;
 import org.junit.Test;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
 public class UtilTests {
 
 	@Test
@@ -34,5 +52,163 @@ public class UtilTests {
 		assertEquals("../..", Util.getRelativePath("/a/b/c", "/a"));
 		assertEquals("..", Util.getRelativePath("/a/b/c", "/a/b"));
 	}
-	
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testSourceMap() {
+		SourceMap sourceMap = new SourceMap();
+		sourceMap.addEntry(new Position(3, 0), new Position(5, 4));
+		sourceMap.addEntry(new Position(3, 8), new Position(5, 12));
+		sourceMap.addEntry(new Position(4, 2), new Position(6, 4));
+		sourceMap.addEntry(new Position(9, 2), new Position(10, 4));
+		assertNull(sourceMap.findInputPosition(4, 0));
+		assertNull(sourceMap.findInputPosition(11, 0));
+		assertEquals(3, sourceMap.findInputPosition(5, 0).getLine());
+		assertEquals(0, sourceMap.findInputPosition(5, 10).getColumn());
+		assertEquals(8, sourceMap.findInputPosition(5, 12).getColumn());
+		assertEquals(8, sourceMap.findInputPosition(5, 40).getColumn());
+		assertEquals(4, sourceMap.findInputPosition(6, 4).getLine());
+		// no entry on that line: the previous entry is used
+		assertEquals(4, sourceMap.findInputPosition(8, 0).getLine());
+		assertEquals(9, sourceMap.findInputPosition(10, 0).getLine());
+		sourceMap.shiftOutputPositions(10);
+		assertNull(sourceMap.findInputPosition(10, 0));
+		assertEquals(9, sourceMap.findInputPosition(20, 4).getLine());
+		// rolled back entries
+		sourceMap.truncate(3);
+		assertEquals(3, sourceMap.size());
+		assertNull(sourceMap.findInputPosition(20, 4));
+		assertEquals(4, sourceMap.findInputPosition(16, 0).getLine());
+		// entries added out of the output order
+		sourceMap.addEntry(new Position(2, 0), new Position(15, 0));
+		assertEquals(2, sourceMap.findInputPosition(15, 2).getLine());
+		assertEquals(4, sourceMap.findInputPosition(16, 8).getLine());
+		// lookups by line: first entry on the line
+		assertEquals(2, sourceMap.findInputPosition(15).getLine());
+		assertEquals(8, sourceMap.findInputPosition(15, 40).getColumn());
+		assertEquals(4, sourceMap.findInputPosition(16).getLine());
+		assertNull(sourceMap.findInputPosition(17));
+		// entries copies, sorted by input positions
+		SourceMap.Entry[] entries = sourceMap.getSortedEntries();
+		assertEquals(4, entries.length);
+		assertEquals(2, entries[0].getInputPosition().getLine());
+		assertEquals(15, entries[0].getOutputPosition().getLine());
+		assertEquals(0, entries[0].getOutputPosition().getColumn());
+		assertEquals(4, entries[3].getInputPosition().getLine());
+		assertEquals(16, entries[3].getOutputPosition().getLine());
+		assertEquals(4, entries[3].getOutputPosition().getColumn());
+	}
+
+	@Test
+	public void testSourceMapV3() {
+		StringBuilder vlq = new StringBuilder();
+		SourceMapV3.encodeVlq(vlq, 0);
+		SourceMapV3.encodeVlq(vlq, 1);
+		SourceMapV3.encodeVlq(vlq, -1);
+		SourceMapV3.encodeVlq(vlq, 16);
+		assertEquals("ACDgB", vlq.toString());
+
+		// JavaScript line 1, column 4 -> TypeScript line 1, column 4 (0-based)
+		StringBuilder mappings = new StringBuilder(";");
+		for (int value : new int[] { 4, 0, 1, 4 }) {
+			SourceMapV3.encodeVlq(mappings, value);
+		}
+		String tscMap = "{\"version\":3,\"file\":\"A.js\",\"sourceRoot\":\"\",\"sources\":[\"A.ts\"],\"names\":[],\"mappings\":\"" + mappings
+				+ "\"}";
+		// Java line 10, column 3 -> TypeScript line 2, column 4 (1-based lines)
+		SourceMap sourceMap = new SourceMap();
+		sourceMap.addEntry(10, 3, 2, 4);
+		String javaMap = SourceMapV3.compose(tscMap, asList("A.java"), asList(sourceMap));
+		JsonObject map = new Gson().fromJson(javaMap, JsonObject.class);
+		assertEquals(3, map.get("version").getAsInt());
+		assertEquals("A.js", map.get("file").getAsString());
+		assertEquals("A.java", map.get("sources").getAsJsonArray().get(0).getAsString());
+		List<int[]> lines = SourceMapV3.decodeMappings(map.get("mappings").getAsString());
+		assertEquals(2, lines.size());
+		assertEquals(0, lines.get(0).length);
+		assertArrayEquals(new int[] { 4, 0, 9, 2 }, lines.get(1));
+		// a map that is already composed is left unchanged
+		assertEquals(javaMap, SourceMapV3.compose(javaMap, asList("A.java"), asList(sourceMap)));
+	}
+
+	@Test
+	public void testPrinterBuffer() throws Exception {
+		PrinterBuffer buffer = new PrinterBuffer();
+		StringBuilder expected = new StringBuilder();
+		// spans several chunks
+		for (int i = 0; i < 5000; i++) {
+			buffer.append("line " + i).append('\n', 1);
+			expected.append("line " + i).append('\n');
+		}
+		assertEquals(expected.length(), buffer.length());
+		assertEquals(expected.toString(), buffer.toString());
+		int mark = buffer.length();
+		buffer.append(' ', 20000).append("x\n\n");
+		assertEquals(2, buffer.countTrailing('\n'));
+		assertEquals(mark + 20000, buffer.indexOf('x', mark));
+		assertEquals(2, buffer.count('\n', mark));
+		buffer.truncate(mark);
+		assertEquals(expected.toString(), buffer.toString());
+		assertEquals('\n', buffer.charAt(mark - 1));
+		assertEquals("line 4999\n", buffer.substring(mark - 10));
+
+		StringWriter writer = new StringWriter();
+		buffer.flush(writer, 20000);
+		buffer.append("end");
+		assertEquals(20000, buffer.getFlushedLength());
+		assertEquals(expected.substring(20000) + "end", buffer.toString());
+		buffer.writeTo(writer);
+		assertEquals(expected + "end", writer.toString());
+		try {
+			buffer.truncate(19999);
+			fail("flushed output cannot be truncated");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testDirectedGraph() {
+		DirectedGraph<Integer> graph = new DirectedGraph<>();
+		graph.add(7, 5, 3, 11, 8, 2, 9, 10);
+		graph.buildEdges((Integer i1, Integer i2) -> i1 == 5 && i2 == 3 ? 1 : 0);
+		assertTrue(graph.hasEdge(3, 5));
+		assertFalse(graph.hasEdge(5, 3));
+		assertEquals(asList(7, 3, 11, 8, 2, 9, 10, 5), graph.topologicalSort(null));
+		graph.addEdge(3, 5);
+		graph.addEdge(5, 5);
+		assertEquals(asList(5), graph.getDestinationElements(3));
+		assertEquals(asList(3), graph.getSourceElements(5));
+		assertArrayEquals(new Integer[] { 7, 5, 3, 11, 8, 2, 9, 10 }, graph.toArray(new Integer[0]));
+		assertTrue(graph.findCycles().isEmpty());
+
+		// two cycles, and a node depending on a cycle
+		graph.addEdge(5, 11);
+		graph.addEdge(11, 3);
+		graph.addEdge(9, 2);
+		graph.addEdge(2, 9);
+		graph.addEdge(9, 10);
+		List<Integer> unsorted = new ArrayList<>();
+		assertEquals(asList(7, 8), graph.topologicalSort(node -> unsorted.add(node.element)));
+		assertEquals(asList(5, 3, 11, 2, 9, 10), unsorted);
+		assertEquals(asList(asList(5, 3, 11), asList(2, 9)), graph.findCycles());
+
+		graph.remove(11);
+		assertFalse(graph.contains(11));
+		assertNull(graph.getDestinationElements(11));
+		assertEquals(asList(), graph.getDestinationElements(5));
+		assertEquals(asList(asList(2, 9)), graph.findCycles());
+		assertEquals(asList(7, 3, 8, 5), graph.topologicalSort(null));
+
+		// large chain (checks that the algorithms are not recursive)
+		DirectedGraph<Integer> chain = new DirectedGraph<>();
+		for (int i = 0; i < 100000; i++) {
+			chain.addEdge(i, i + 1);
+		}
+		assertEquals(100001, chain.topologicalSort(null).size());
+		chain.addEdge(100000, 0);
+		assertEquals(1, chain.findCycles().size());
+		assertEquals(100001, chain.findCycles().get(0).size());
+	}
+
 }
@@ -0,0 +1,32 @@
+package source.statics;
+
+import static jsweet.util.Globals.$export;
+
+public class StaticIncrements {
+
+	static int counter = init();
+
+	static int other = init();
+
+	static int init() {
+		return 3;
+	}
+
+	public static void main(String[] args) {
+		counter++;
+		int x = counter++ + other++;
+		OtherClass.increment();
+		$export("counter", counter);
+		$export("other", other);
+		$export("x", x);
+	}
+
+}
+
+class OtherClass {
+
+	static void increment() {
+		StaticIncrements.counter++;
+	}
+
+}